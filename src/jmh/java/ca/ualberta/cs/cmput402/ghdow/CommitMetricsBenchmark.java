@@ -0,0 +1,74 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GitHub;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The commit metrics of {@link MyGithub} over an in-memory history, with
+ * no GitHub calls: only the aggregation loops are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommitMetricsBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int commits;
+
+    @Param({"500"})
+    int repos;
+
+    private MyGithub my;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CommitStore store = SyntheticHistory.commits(commits, repos, 42);
+        my = new MyGithub((GitHub) null) {
+            @Override
+            protected CommitStore getCommitStore() {
+                return store;
+            }
+        };
+    }
+
+    @Benchmark
+    public String mostPopularDayUtc() throws IOException {
+        return my.getMostPopularDay(ZoneOffset.UTC);
+    }
+
+    /** A zone with DST, so offsets change across the history. */
+    @Benchmark
+    public String mostPopularDayEdmonton() throws IOException {
+        return my.getMostPopularDay(ZoneId.of("America/Edmonton"));
+    }
+
+    @Benchmark
+    public OptionalDouble averageTimeBetweenCommits() throws IOException {
+        return my.getAverageTimeBetweenCommitsSeconds();
+    }
+
+    /** Radix sort of the times and of the gaps, for the median and longest gap. */
+    @Benchmark
+    public GapAnalysis commitGapAnalysis() throws IOException {
+        return my.getCommitGapAnalysis();
+    }
+}
@@ -0,0 +1,72 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.OptionalDouble;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The closed issue and pull request open-time averages, fed the same way
+ * a {@link RepoScan} feeds them: one callback per item, with the items
+ * spread over {@code repos} repositories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OpenTimeBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    int items;
+
+    @Param({"500"})
+    int repos;
+
+    private IssueRow[] issues;
+    private IssueRow[] pulls;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        issues = SyntheticHistory.issues(items, 7);
+        pulls = SyntheticHistory.pullRequests(items, 11);
+    }
+
+    @Benchmark
+    public OptionalDouble closedIssueOpenTime() throws IOException {
+        OpenTimeAggregator aggregator = OpenTimeAggregator.closedIssues();
+        int perRepo = Math.max(1, items / repos);
+        for (int i = 0; i < items; i++) {
+            if (i % perRepo == 0) {
+                aggregator.onRepository(null);
+            }
+            aggregator.onIssue(null, SyntheticHistory.at(issues, i));
+        }
+        return aggregator.getAverageSeconds();
+    }
+
+    @Benchmark
+    public OptionalDouble closedPullRequestOpenTime() throws IOException {
+        OpenTimeAggregator aggregator = OpenTimeAggregator.closedPullRequests();
+        int perRepo = Math.max(1, items / repos);
+        for (int i = 0; i < items; i++) {
+            if (i % perRepo == 0) {
+                aggregator.onRepository(null);
+            }
+            aggregator.onPullRequest(null, SyntheticHistory.at(pulls, i));
+        }
+        return aggregator.getAverageSeconds();
+    }
+}
@@ -0,0 +1,85 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.Date;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic fake activity for the benchmarks: commits, issues and pull
+ * requests spread over several years and many repositories, with the
+ * weekday/working-hours skew of a real history.
+ */
+final class SyntheticHistory {
+    static final long START = 1_420_070_400_000L; // 2015-01-01T00:00:00Z
+    static final long SPAN = 8L * 365 * 24 * 3_600_000L;
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 24 * HOUR;
+
+    private SyntheticHistory() {
+    }
+
+    /** {@code n} commits over {@code repos} repositories, in no particular order. */
+    static CommitStore commits(int n, int repos, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        CommitStore store = new CommitStore(n);
+        for (int r = 0; r < repos; r++) {
+            store.repoIndex("owner/repo-" + r);
+        }
+        for (int i = 0; i < n; i++) {
+            store.add(random.nextInt(repos), random.nextLong(), commitTime(random));
+        }
+        return store;
+    }
+
+    private static long commitTime(SplittableRandom random) {
+        long day = START + random.nextLong(SPAN / DAY) * DAY;
+        // 2015-01-01 was a Thursday; push most weekend commits onto weekdays
+        int dow = (int) Math.floorMod((day - START) / DAY + 4, 7L);
+        if ((dow == 0 || dow == 6) && random.nextInt(4) != 0) {
+            day += (dow == 0 ? 1 : 2) * DAY;
+        }
+        long hour = random.nextInt(10) != 0 ? 9 + random.nextInt(9) : random.nextInt(24);
+        return day + hour * HOUR + random.nextLong(HOUR);
+    }
+
+    /**
+     * {@code n} closed issues. For large {@code n} the same
+     * {@code min(n, 65536)} rows are handed out repeatedly; see {@link #at}.
+     */
+    static IssueRow[] issues(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        IssueRow[] pool = new IssueRow[poolSize(n)];
+        for (int i = 0; i < pool.length; i++) {
+            long created = START + random.nextLong(SPAN);
+            long closed = created + openFor(random);
+            pool[i] = new IssueRow(new Date(created), new Date(closed), new Date(closed));
+        }
+        return pool;
+    }
+
+    /** Like {@link #issues}, with about one in ten still open. */
+    static IssueRow[] pullRequests(int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        IssueRow[] pool = new IssueRow[poolSize(n)];
+        for (int i = 0; i < pool.length; i++) {
+            long created = START + random.nextLong(SPAN);
+            Date closed = random.nextInt(10) == 0 ? null : new Date(created + openFor(random));
+            pool[i] = new IssueRow(new Date(created), closed, closed == null ? new Date(created) : closed);
+        }
+        return pool;
+    }
+
+    /** The {@code i}th item of a pool built by {@link #issues} or {@link #pullRequests}. */
+    static <T> T at(T[] pool, int i) {
+        return pool[i & (pool.length - 1)];
+    }
+
+    private static int poolSize(int n) {
+        return Math.min(Integer.highestOneBit(Math.max(n, 1) * 2 - 1), 1 << 16);
+    }
+
+    // mostly hours to days, with a long tail of months
+    private static long openFor(SplittableRandom random) {
+        double days = Math.exp(random.nextDouble() * 6 - 2);
+        return (long) (days * DAY);
+    }
+}
@@ -0,0 +1,53 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * What {@link MockGitHubServer} does to request number {@code n}: every
+ * request is delayed by {@code latencyMillis} plus up to
+ * {@code jitterMillis}, every {@code errorEvery}-th one fails with a 502
+ * and every {@code rateLimitEvery}-th one is refused as rate limited
+ * (alternating between a 403 with an exhausted quota and a 429 with
+ * {@code Retry-After}). 0 turns a fault off.
+ */
+final class FaultSchedule {
+    enum Fault {
+        NONE,
+        SERVER_ERROR,
+        RATE_LIMITED
+    }
+
+    static final FaultSchedule NONE = new FaultSchedule(0, 0, 0, 0, 1);
+
+    final long latencyMillis;
+    final long jitterMillis;
+    final int errorEvery;
+    final int rateLimitEvery;
+    final int rateLimitSeconds;
+
+    FaultSchedule(long latencyMillis, long jitterMillis, int errorEvery, int rateLimitEvery, int rateLimitSeconds) {
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.errorEvery = errorEvery;
+        this.rateLimitEvery = rateLimitEvery;
+        this.rateLimitSeconds = rateLimitSeconds;
+    }
+
+    Fault faultFor(long n) {
+        if (rateLimitEvery > 0 && n % rateLimitEvery == 0) return Fault.RATE_LIMITED;
+        if (errorEvery > 0 && n % errorEvery == 0) return Fault.SERVER_ERROR;
+        return Fault.NONE;
+    }
+
+    long delayMillis() {
+        long jitter = jitterMillis > 0 ? ThreadLocalRandom.current().nextLong(jitterMillis + 1) : 0;
+        return latencyMillis + jitter;
+    }
+
+    @Override
+    public String toString() {
+        return "latency=" + latencyMillis + "+" + jitterMillis + "ms"
+                + " errorEvery=" + errorEvery
+                + " rateLimitEvery=" + rateLimitEvery;
+    }
+}
@@ -0,0 +1,122 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Runs each metric of {@link MyGithub} end to end against a
+ * {@link MockGitHubServer} and reports wall time, requests issued and
+ * peak heap. Every metric starts from a fresh {@code MyGithub}, so nothing
+ * is shared between rows.
+ * <p>
+ * Configured with system properties ({@code ./gradlew loadTest
+ * -Dloadtest.repos=5000 ...}):
+ * <ul>
+ *     <li>{@code loadtest.repos} (2000), {@code loadtest.commits} (200),
+ *     {@code loadtest.deepCommits} (20000), {@code loadtest.issues} (300),
+ *     {@code loadtest.pulls} (200), {@code loadtest.branches} (20): the
+ *     account's size; see {@link SyntheticAccount}</li>
+ *     <li>{@code loadtest.latencyMs} (20), {@code loadtest.jitterMs} (10),
+ *     {@code loadtest.errorEvery} (0), {@code loadtest.rateLimitEvery} (0):
+ *     the {@link FaultSchedule}</li>
+ *     <li>{@code loadtest.parallelism} (8), {@code loadtest.prefetch} (2):
+ *     passed on to {@code MyGithub}</li>
+ *     <li>{@code loadtest.metrics}: comma-separated subset of the rows to
+ *     run; {@code loadtest.verbose}: keep {@code MyGithub}'s progress
+ *     output</li>
+ * </ul>
+ */
+public class LoadTest {
+    @FunctionalInterface
+    interface Metric {
+        Object run(MyGithub my) throws IOException;
+    }
+
+    private static final String TOKEN = "synthetic-token";
+
+    public static void main(String[] args) throws Exception {
+        SyntheticAccount account = new SyntheticAccount("synth",
+                Integer.getInteger("loadtest.repos", 2000),
+                Integer.getInteger("loadtest.commits", 200),
+                Integer.getInteger("loadtest.deepCommits", 20_000),
+                Integer.getInteger("loadtest.issues", 300),
+                Integer.getInteger("loadtest.pulls", 200),
+                Integer.getInteger("loadtest.branches", 20));
+        FaultSchedule faults = new FaultSchedule(
+                Long.getLong("loadtest.latencyMs", 20),
+                Long.getLong("loadtest.jitterMs", 10),
+                Integer.getInteger("loadtest.errorEvery", 0),
+                Integer.getInteger("loadtest.rateLimitEvery", 0),
+                1);
+
+        Map<String, Metric> metrics = new LinkedHashMap<>();
+        metrics.put("mostPopularDay", MyGithub::getMostPopularDay);
+        metrics.put("avgTimeBetweenCommits", MyGithub::getAverageTimeBetweenCommitsSeconds);
+        metrics.put("avgClosedIssueOpenTime", MyGithub::getAverageClosedIssueOpenTimeSeconds);
+        metrics.put("avgClosedPullRequestOpenTime", MyGithub::getAverageClosedPullRequestOpenTimeSeconds);
+        metrics.put("avgBranchesPerRepo", MyGithub::getAverageBranchesPerRepo);
+        metrics.put("report", MyGithub::getReport);
+        String only = System.getProperty("loadtest.metrics");
+        if (only != null) {
+            metrics.keySet().retainAll(Arrays.asList(only.split(",")));
+        }
+
+        PrintStream out = System.out;
+        boolean verbose = Boolean.getBoolean("loadtest.verbose");
+        try (MockGitHubServer server = new MockGitHubServer(account, faults, 0, 64).start()) {
+            out.println("Mock GitHub at " + server.getEndpoint() + " with " + account.repos + " repos, " + faults);
+            out.printf("%-30s %10s %10s %12s  %s%n", "metric", "wall ms", "requests", "peak heap MB", "result");
+            for (Map.Entry<String, Metric> e : metrics.entrySet()) {
+                MyGithub my = new MyGithub(TOKEN, server.getEndpoint());
+                my.setCrawlParallelism(Integer.getInteger("loadtest.parallelism", 8));
+                my.setPrefetchPages(Integer.getInteger("loadtest.prefetch", 2));
+
+                System.gc();
+                resetPeakHeap();
+                long requestsBefore = server.getRequestCount();
+                long start = System.nanoTime();
+                Object result;
+                if (!verbose) System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                try {
+                    result = e.getValue().run(my);
+                } finally {
+                    System.setOut(out);
+                }
+                long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+                out.printf("%-30s %10d %10d %12.1f  %s%n", e.getKey(), wallMillis,
+                        server.getRequestCount() - requestsBefore, peakHeapBytes() / 1048576.0,
+                        String.valueOf(result).replace('\n', ' '));
+                out.println("    retries: " + my.getRetryStats());
+            }
+            out.println("Requests by route: " + server.getRequestsByRoute());
+            out.printf("Bytes served: %.1f MB%n", server.getBytesServed() / 1048576.0);
+        }
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    // sum of the pools' peaks; an upper bound, since they peak at different times
+    private static long peakHeapBytes() {
+        long total = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                total += pool.getPeakUsage().getUsed();
+            }
+        }
+        return total;
+    }
+}
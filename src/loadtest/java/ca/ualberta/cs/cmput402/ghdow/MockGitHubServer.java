@@ -0,0 +1,394 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local stand-in for the parts of the GitHub REST API that
+ * {@link MyGithub} uses, serving a {@link SyntheticAccount}. Point a client
+ * at {@link #getEndpoint()} with {@code GitHubBuilder.withEndpoint(...)}.
+ * <p>
+ * Lists are paged like GitHub's ({@code per_page} up to 100, {@code Link}
+ * headers with absolute {@code next}/{@code last} URLs), commits honour
+ * {@code since}/{@code until}, and empty repositories answer 409 to a
+ * commit listing. Faults are injected according to a {@link FaultSchedule}.
+ * Any token is accepted.
+ */
+final class MockGitHubServer implements AutoCloseable {
+    private static final Pattern REPO_PATH = Pattern.compile("/repos/([^/]+)/([^/]+)(/[a-z_]+)?");
+
+    private final SyntheticAccount account;
+    private final FaultSchedule faults;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Map<String, AtomicLong> byRoute = new ConcurrentHashMap<>();
+    private final AtomicInteger rateLimitFaults = new AtomicInteger();
+
+    MockGitHubServer(SyntheticAccount account, FaultSchedule faults, int port, int threads) throws IOException {
+        this.account = account;
+        this.faults = faults;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "mock-github-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    MockGitHubServer start() {
+        server.start();
+        return this;
+    }
+
+    String getEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long getBytesServed() {
+        return bytes.get();
+    }
+
+    /** Requests per route, e.g. {@code commits -> 1234}. */
+    Map<String, Long> getRequestsByRoute() {
+        Map<String, Long> counts = new TreeMap<>();
+        byRoute.forEach((route, n) -> counts.put(route, n.get()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // -----------------------------
+    // Dispatch
+    // -----------------------------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            long n = requests.incrementAndGet();
+            sleep(faults.delayMillis());
+
+            String path = exchange.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                send(exchange, "other", 405, error("Method not allowed"));
+                return;
+            }
+
+            switch (faults.faultFor(n)) {
+                case SERVER_ERROR -> {
+                    send(exchange, "fault", 502, error("Server Error"));
+                    return;
+                }
+                case RATE_LIMITED -> {
+                    sendRateLimited(exchange);
+                    return;
+                }
+                default -> {
+                }
+            }
+            route(exchange, path, query);
+        }
+    }
+
+    private void route(HttpExchange exchange, String path, Map<String, String> query) throws IOException {
+        if (path.equals("/user") || path.equals("/users/" + account.login)) {
+            send(exchange, "user", 200, userJson());
+            return;
+        }
+        if (path.equals("/user/repos") || path.equals("/users/" + account.login + "/repos")) {
+            sendPage(exchange, "repos", path, query, account.repos, i -> repoJson(i));
+            return;
+        }
+        if (path.equals("/rate_limit")) {
+            send(exchange, "rate_limit", 200, "{\"resources\":{\"core\":{\"limit\":5000,\"remaining\":5000,"
+                    + "\"reset\":" + resetEpoch() + "}},\"rate\":{\"limit\":5000,\"remaining\":5000,"
+                    + "\"reset\":" + resetEpoch() + "}}");
+            return;
+        }
+
+        Matcher m = REPO_PATH.matcher(path);
+        int repo = m.matches() && m.group(1).equals(account.login) ? account.repoIndex(m.group(2)) : -1;
+        if (repo < 0) {
+            send(exchange, "other", 404, error("Not Found"));
+            return;
+        }
+        String resource = m.group(3) == null ? "" : m.group(3);
+        switch (resource) {
+            case "" -> send(exchange, "repo", 200, repoJson(repo));
+            case "/commits" -> listCommits(exchange, path, query, repo);
+            case "/issues" -> listIssues(exchange, path, query, repo, false);
+            case "/pulls" -> listIssues(exchange, path, query, repo, true);
+            case "/branches" -> sendPage(exchange, "branches", path, query, account.branchCount(repo),
+                    i -> branchJson(repo, i));
+            default -> send(exchange, "other", 404, error("Not Found"));
+        }
+    }
+
+    private void listCommits(HttpExchange exchange, String path, Map<String, String> query, int repo)
+            throws IOException {
+        if (account.isEmpty(repo)) {
+            send(exchange, "commits", 409, error("Git Repository is empty."));
+            return;
+        }
+        int from = 0;
+        int to = account.commitCount(repo);
+        if (query.containsKey("until")) {
+            from = account.firstAtOrBefore(repo, Instant.parse(query.get("until")).toEpochMilli());
+        }
+        if (query.containsKey("since")) {
+            to = Math.max(from, account.endAtOrAfter(repo, Instant.parse(query.get("since")).toEpochMilli()));
+        }
+        int first = from;
+        sendPage(exchange, "commits", path, query, to - from, i -> commitJson(repo, first + i));
+    }
+
+    private void listIssues(HttpExchange exchange, String path, Map<String, String> query, int repo,
+                            boolean pullsOnly) throws IOException {
+        String state = query.getOrDefault("state", "open");
+        int total = account.issueCount(repo) + account.pullCount(repo);
+        // newest first, like GitHub's default sort
+        int[] numbers = new int[total];
+        int count = 0;
+        for (int number = total; number >= 1; number--) {
+            if (pullsOnly && !account.isPullRequest(repo, number)) continue;
+            boolean open = account.closedAt(repo, number) < 0;
+            if (state.equals("open") && !open || state.equals("closed") && open) continue;
+            numbers[count++] = number;
+        }
+        String route = pullsOnly ? "pulls" : "issues";
+        sendPage(exchange, route, path, query, count, i -> issueJson(repo, numbers[i], pullsOnly));
+    }
+
+    // -----------------------------
+    // Paging and responses
+    // -----------------------------
+
+    @FunctionalInterface
+    private interface Item {
+        String json(int index);
+    }
+
+    private void sendPage(HttpExchange exchange, String route, String path, Map<String, String> query,
+                          int total, Item item) throws IOException {
+        int perPage = clamp(parseInt(query.get("per_page"), 30), 1, 100);
+        int lastPage = Math.max(1, (total + perPage - 1) / perPage);
+        int page = Math.max(1, parseInt(query.get("page"), 1));
+
+        StringBuilder body = new StringBuilder(perPage * 256).append('[');
+        int start = (page - 1) * perPage;
+        for (int i = start; i < Math.min(total, start + perPage); i++) {
+            if (i > start) body.append(',');
+            body.append(item.json(i));
+        }
+        body.append(']');
+
+        if (lastPage > 1) {
+            StringBuilder link = new StringBuilder();
+            if (page < lastPage) {
+                link.append('<').append(pageUrl(path, query, page + 1)).append(">; rel=\"next\", ");
+            }
+            if (page > 1) {
+                link.append('<').append(pageUrl(path, query, page - 1)).append(">; rel=\"prev\", ");
+                link.append('<').append(pageUrl(path, query, 1)).append(">; rel=\"first\", ");
+            }
+            link.append('<').append(pageUrl(path, query, lastPage)).append(">; rel=\"last\"");
+            exchange.getResponseHeaders().add("Link", link.toString());
+        }
+        send(exchange, route, 200, body.toString());
+    }
+
+    private String pageUrl(String path, Map<String, String> query, int page) {
+        Map<String, String> params = new TreeMap<>(query);
+        params.put("page", Integer.toString(page));
+        StringBuilder url = new StringBuilder(getEndpoint()).append(path);
+        char sep = '?';
+        for (Map.Entry<String, String> e : params.entrySet()) {
+            url.append(sep).append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8))
+                    .append('=').append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+            sep = '&';
+        }
+        return url.toString();
+    }
+
+    private void sendRateLimited(HttpExchange exchange) throws IOException {
+        if (rateLimitFaults.incrementAndGet() % 2 == 1) {
+            exchange.getResponseHeaders().add("X-RateLimit-Limit", "5000");
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", "0");
+            exchange.getResponseHeaders().add("X-RateLimit-Reset",
+                    Long.toString(System.currentTimeMillis() / 1000 + faults.rateLimitSeconds));
+            writeBody(exchange, "rate_limited", 403, error("API rate limit exceeded"));
+        } else {
+            exchange.getResponseHeaders().add("Retry-After", Integer.toString(faults.rateLimitSeconds));
+            writeBody(exchange, "rate_limited", 429, error("You have exceeded a secondary rate limit."));
+        }
+    }
+
+    private void send(HttpExchange exchange, String route, int status, String body) throws IOException {
+        exchange.getResponseHeaders().add("X-RateLimit-Limit", "5000");
+        exchange.getResponseHeaders().add("X-RateLimit-Remaining", "4999");
+        exchange.getResponseHeaders().add("X-RateLimit-Reset", Long.toString(resetEpoch()));
+        writeBody(exchange, route, status, body);
+    }
+
+    private void writeBody(HttpExchange exchange, String route, int status, String body) throws IOException {
+        byRoute.computeIfAbsent(route, r -> new AtomicLong()).incrementAndGet();
+        byte[] data = body.getBytes(StandardCharsets.UTF_8);
+        bytes.addAndGet(data.length);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+
+    private static long resetEpoch() {
+        return System.currentTimeMillis() / 1000 + 3600;
+    }
+
+    // -----------------------------
+    // JSON
+    // -----------------------------
+
+    private String userJson() {
+        return "{\"login\":\"" + account.login + "\",\"id\":1,\"type\":\"User\","
+                + "\"url\":\"" + getEndpoint() + "/users/" + account.login + "\","
+                + "\"public_repos\":" + account.repos + "}";
+    }
+
+    private String ownerJson() {
+        return "{\"login\":\"" + account.login + "\",\"id\":1,\"type\":\"User\"}";
+    }
+
+    private String repoJson(int repo) {
+        String name = account.repoName(repo);
+        String fullName = account.login + "/" + name;
+        String pushed = date(account.pushedAt(repo));
+        return "{\"id\":" + (1000 + repo) + ",\"name\":\"" + name + "\",\"full_name\":\"" + fullName + "\","
+                + "\"owner\":" + ownerJson() + ",\"private\":false,\"fork\":false,"
+                + "\"url\":\"" + getEndpoint() + "/repos/" + fullName + "\","
+                + "\"html_url\":\"https://github.invalid/" + fullName + "\","
+                + "\"default_branch\":\"main\",\"created_at\":\"" + date(0) + "\","
+                + "\"updated_at\":\"" + pushed + "\",\"pushed_at\":\"" + pushed + "\"}";
+    }
+
+    private String commitJson(int repo, int k) {
+        String sha = account.commitSha(repo, k);
+        String when = date(account.commitTime(repo, k));
+        String person = "{\"name\":\"Synthetic\",\"email\":\"" + account.login + "@example.invalid\","
+                + "\"date\":\"" + when + "\"}";
+        return "{\"sha\":\"" + sha + "\","
+                + "\"url\":\"" + getEndpoint() + "/repos/" + account.login + "/" + account.repoName(repo)
+                + "/commits/" + sha + "\","
+                + "\"commit\":{\"author\":" + person + ",\"committer\":" + person + ",\"message\":\"commit " + k + "\"},"
+                + "\"author\":" + ownerJson() + ",\"committer\":" + ownerJson() + ",\"parents\":[]}";
+    }
+
+    private String issueJson(int repo, int number, boolean asPull) {
+        String repoUrl = getEndpoint() + "/repos/" + account.login + "/" + account.repoName(repo);
+        long closed = account.closedAt(repo, number);
+        boolean pull = account.isPullRequest(repo, number);
+        StringBuilder json = new StringBuilder(320)
+                .append("{\"id\":").append(repo * 1_000_000L + number)
+                .append(",\"number\":").append(number)
+                .append(",\"title\":\"").append(pull ? "Pull request " : "Issue ").append(number)
+                .append("\",\"state\":\"").append(closed < 0 ? "open" : "closed")
+                .append("\",\"user\":").append(ownerJson())
+                .append(",\"created_at\":\"").append(date(account.createdAt(repo, number)))
+                .append("\",\"updated_at\":\"").append(date(account.updatedAt(repo, number)))
+                .append("\",\"closed_at\":").append(closed < 0 ? "null" : "\"" + date(closed) + "\"")
+                .append(",\"url\":\"").append(repoUrl).append(pull && asPull ? "/pulls/" : "/issues/").append(number)
+                .append('"');
+        if (pull && !asPull) {
+            json.append(",\"pull_request\":{\"url\":\"").append(repoUrl).append("/pulls/").append(number).append("\"}");
+        }
+        if (asPull) {
+            json.append(",\"merged_at\":").append(closed < 0 || number % 3 == 0 ? "null" : "\"" + date(closed) + "\"")
+                    .append(",\"head\":{\"ref\":\"topic-").append(number).append("\"},\"base\":{\"ref\":\"main\"}");
+        }
+        return json.append('}').toString();
+    }
+
+    private String branchJson(int repo, int i) {
+        String name = i == 0 ? "main" : "branch-" + i;
+        return "{\"name\":\"" + name + "\",\"commit\":{\"sha\":\"" + account.commitSha(repo, i) + "\"},"
+                + "\"protected\":false}";
+    }
+
+    private static String error(String message) {
+        return "{\"message\":\"" + message + "\",\"documentation_url\":\"https://docs.github.com/rest\"}";
+    }
+
+    private static String date(long millis) {
+        return Instant.ofEpochSecond(Math.floorDiv(millis, 1000L)).toString();
+    }
+
+    // -----------------------------
+    // Helpers
+    // -----------------------------
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> query = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    private static int parseInt(String s, int fallback) {
+        if (s == null) return fallback;
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
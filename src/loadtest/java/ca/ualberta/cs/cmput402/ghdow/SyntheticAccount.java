@@ -0,0 +1,160 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+/**
+ * The data served by {@link MockGitHubServer}: one user owning
+ * {@code repos} repositories, every item computed from its indices, so
+ * nothing is stored however large the account is.
+ * <p>
+ * Commits are numbered newest first and their times strictly decrease, so
+ * a {@code since}/{@code until} window is a contiguous range found by
+ * binary search. Issue numbers {@code 1..issues} are plain issues and
+ * {@code issues+1..issues+pulls} are pull requests; every fifth item is
+ * still open.
+ */
+final class SyntheticAccount {
+    static final long END = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    private static final long HOUR = 3_600_000L;
+
+    final String login;
+    final int repos;
+    private final int commits;
+    private final int deepCommits;
+    private final int issues;
+    private final int pulls;
+    private final int branches;
+
+    /**
+     * Every 50th repo gets {@code deepCommits} commits and the rest up to
+     * {@code commits}; every 25th repo is empty.
+     */
+    SyntheticAccount(String login, int repos, int commits, int deepCommits, int issues, int pulls, int branches) {
+        this.login = login;
+        this.repos = repos;
+        this.commits = commits;
+        this.deepCommits = deepCommits;
+        this.issues = issues;
+        this.pulls = pulls;
+        this.branches = branches;
+    }
+
+    String repoName(int repo) {
+        return String.format("repo-%05d", repo);
+    }
+
+    /** Index of {@code name}, or -1 if there is no such repo. */
+    int repoIndex(String name) {
+        if (!name.startsWith("repo-")) {
+            return -1;
+        }
+        try {
+            int repo = Integer.parseInt(name.substring(5));
+            return repo >= 0 && repo < repos && repoName(repo).equals(name) ? repo : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    boolean isEmpty(int repo) {
+        return repo % 25 == 24;
+    }
+
+    int commitCount(int repo) {
+        if (isEmpty(repo)) return 0;
+        if (repo % 50 == 0) return deepCommits;
+        return 1 + (int) Long.remainderUnsigned(mix(repo, 1), commits);
+    }
+
+    int issueCount(int repo) {
+        return isEmpty(repo) ? 0 : (int) Long.remainderUnsigned(mix(repo, 2), issues + 1L);
+    }
+
+    int pullCount(int repo) {
+        return isEmpty(repo) ? 0 : (int) Long.remainderUnsigned(mix(repo, 3), pulls + 1L);
+    }
+
+    int branchCount(int repo) {
+        return isEmpty(repo) ? 0 : 1 + (int) Long.remainderUnsigned(mix(repo, 4), branches);
+    }
+
+    // -----------------------------
+    // Commits (index 0 is the newest)
+    // -----------------------------
+
+    private long commitGap(int repo) {
+        return HOUR + Long.remainderUnsigned(mix(repo, 5), 12 * HOUR);
+    }
+
+    long commitTime(int repo, int k) {
+        long gap = commitGap(repo);
+        return END - k * gap - Long.remainderUnsigned(mix(repo, k, 6), gap);
+    }
+
+    String commitSha(int repo, int k) {
+        return String.format("%016x%016x%08x", mix(repo, k, 7), mix(repo, k, 8), k);
+    }
+
+    /** First commit index with a time at or before {@code until}. */
+    int firstAtOrBefore(int repo, long until) {
+        int lo = 0;
+        int hi = commitCount(repo);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (commitTime(repo, mid) > until) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** One past the last commit index with a time at or after {@code since}. */
+    int endAtOrAfter(int repo, long since) {
+        int lo = 0;
+        int hi = commitCount(repo);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (commitTime(repo, mid) >= since) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // -----------------------------
+    // Issues and pull requests (numbered from 1)
+    // -----------------------------
+
+    boolean isPullRequest(int repo, int number) {
+        return number > issueCount(repo);
+    }
+
+    long createdAt(int repo, int number) {
+        int total = issueCount(repo) + pullCount(repo);
+        return END - (long) (total - number + 1) * 7 * HOUR - Long.remainderUnsigned(mix(repo, number, 9), HOUR);
+    }
+
+    /** Close time, or -1 while open. */
+    long closedAt(int repo, int number) {
+        if (number % 5 == 0) return -1;
+        return createdAt(repo, number) + Long.remainderUnsigned(mix(repo, number, 10), 30 * 24 * HOUR);
+    }
+
+    long updatedAt(int repo, int number) {
+        long closed = closedAt(repo, number);
+        return closed < 0 ? createdAt(repo, number) : closed;
+    }
+
+    /** Newest commit time, or the epoch for an empty repo. */
+    long pushedAt(int repo) {
+        return commitCount(repo) == 0 ? 0 : commitTime(repo, 0);
+    }
+
+    private static long mix(long a, long b) {
+        return mix(a, b, 0);
+    }
+
+    // splitmix64 over the combined indices
+    private static long mix(long a, long b, long c) {
+        long z = a * 0x9E3779B97F4A7C15L + b * 0xC2B2AE3D27D4EB4FL + c * 0x165667B19E3779F9L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
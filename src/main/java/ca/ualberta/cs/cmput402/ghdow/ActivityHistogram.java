@@ -0,0 +1,184 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Commit counts by day of week and by hour of week in a given time zone.
+ * <p>
+ * Days are indexed Sunday first (0 = Sunday ... 6 = Saturday), matching
+ * {@code Calendar.DAY_OF_WEEK - 1}; hour-of-week bucket {@code d * 24 + h}
+ * is hour {@code h} of day {@code d}. Bucketing is plain epoch arithmetic:
+ * the zone's offsets over the data's time span are looked up once into a
+ * small transition table, so counting a commit allocates nothing.
+ * <p>
+ * Histograms of different repositories or shards {@link #merge} into the
+ * histogram of all of them, as long as they were built in the same zone.
+ */
+public class ActivityHistogram implements Aggregate<ActivityHistogram> {
+    public static final int DAYS = 7;
+    public static final int HOURS_PER_WEEK = DAYS * 24;
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+
+    private final int[] days = new int[DAYS];
+    private final int[] hours = new int[HOURS_PER_WEEK];
+    private long total;
+
+    /** Buckets every commit of {@code store} in {@code zone}. */
+    public static ActivityHistogram of(CommitStore store, ZoneId zone) {
+        ActivityHistogram histogram = new ActivityHistogram();
+        if (store.isEmpty()) {
+            return histogram;
+        }
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < store.size(); i++) {
+            long t = store.time(i);
+            if (t < min) min = t;
+            if (t > max) max = t;
+        }
+        OffsetTable table = OffsetTable.build(zone, min, max);
+        for (int i = 0; i < store.size(); i++) {
+            long t = store.time(i);
+            histogram.addLocal(t + table.offsetMillisAt(t));
+        }
+        return histogram;
+    }
+
+    /** Counts one commit at {@code epochMillis}, with the local offset already known. */
+    public void add(long epochMillis, int offsetSeconds) {
+        addLocal(epochMillis + offsetSeconds * 1000L);
+    }
+
+    private void addLocal(long localMillis) {
+        long localDay = Math.floorDiv(localMillis, MILLIS_PER_DAY);
+        // 1970-01-01 was a Thursday (index 4)
+        int day = (int) Math.floorMod(localDay + 4, DAYS);
+        int hour = (int) (Math.floorMod(localMillis, MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+        days[day]++;
+        hours[day * 24 + hour]++;
+        total++;
+    }
+
+    @Override
+    public ActivityHistogram merge(ActivityHistogram other) {
+        for (int i = 0; i < DAYS; i++) {
+            days[i] += other.days[i];
+        }
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            hours[i] += other.hours[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    /** Only the hour-of-week counts are written; the day counts are their sums. */
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        for (int count : hours) {
+            out.writeInt(count);
+        }
+    }
+
+    public static ActivityHistogram readFrom(DataInput in) throws IOException {
+        ActivityHistogram histogram = new ActivityHistogram();
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            int count = in.readInt();
+            histogram.hours[i] = count;
+            histogram.days[i / 24] += count;
+            histogram.total += count;
+        }
+        return histogram;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /** Commits per day, Sunday first. */
+    public int[] getDayCounts() {
+        return days.clone();
+    }
+
+    /** Commits per hour of week, starting at Sunday 00:00. */
+    public int[] getHourOfWeekCounts() {
+        return hours.clone();
+    }
+
+    public int getCount(DayOfWeek day) {
+        return days[day.getValue() % DAYS];
+    }
+
+    public int getCount(DayOfWeek day, int hourOfDay) {
+        if (hourOfDay < 0 || hourOfDay >= 24) {
+            throw new IllegalArgumentException("Not an hour: " + hourOfDay);
+        }
+        return hours[(day.getValue() % DAYS) * 24 + hourOfDay];
+    }
+
+    @Override
+    public String toString() {
+        return "ActivityHistogram{days=" + Arrays.toString(days) + ", total=" + total + "}";
+    }
+
+    /**
+     * UTC offsets of a zone over a time span, as a sorted table of the
+     * instants at which the offset changes.
+     */
+    static final class OffsetTable {
+        private final long[] starts;
+        private final long[] offsets;
+        private int last; // most recent hit; commit times are often sorted
+
+        private OffsetTable(long[] starts, long[] offsets) {
+            this.starts = starts;
+            this.offsets = offsets;
+        }
+
+        static OffsetTable build(ZoneId zone, long fromMillis, long toMillis) {
+            ZoneRules rules = zone.getRules();
+            Instant from = Instant.ofEpochMilli(fromMillis);
+            if (rules.isFixedOffset()) {
+                long offset = rules.getOffset(from).getTotalSeconds() * 1000L;
+                return new OffsetTable(new long[]{Long.MIN_VALUE}, new long[]{offset});
+            }
+            List<long[]> entries = new ArrayList<>();
+            entries.add(new long[]{Long.MIN_VALUE, rules.getOffset(from).getTotalSeconds() * 1000L});
+            ZoneOffsetTransition next = rules.nextTransition(from);
+            while (next != null && next.toEpochSecond() * 1000L <= toMillis) {
+                entries.add(new long[]{next.toEpochSecond() * 1000L,
+                        next.getOffsetAfter().getTotalSeconds() * 1000L});
+                next = rules.nextTransition(next.getInstant());
+            }
+            long[] starts = new long[entries.size()];
+            long[] offsets = new long[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                starts[i] = entries.get(i)[0];
+                offsets[i] = entries.get(i)[1];
+            }
+            return new OffsetTable(starts, offsets);
+        }
+
+        long offsetMillisAt(long epochMillis) {
+            int i = last;
+            if (starts[i] <= epochMillis && (i + 1 == starts.length || epochMillis < starts[i + 1])) {
+                return offsets[i];
+            }
+            int pos = Arrays.binarySearch(starts, epochMillis);
+            i = pos >= 0 ? pos : -pos - 2;
+            last = Math.max(i, 0);
+            return offsets[last];
+        }
+    }
+}
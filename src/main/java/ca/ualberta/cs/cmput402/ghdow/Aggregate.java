@@ -0,0 +1,19 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running state of one metric that can be combined with another shard's:
+ * per repository, per thread, per process or per day. {@link #merge} is
+ * associative and commutative, and merging an empty aggregate changes
+ * nothing, so shards can be combined in any grouping and order.
+ * <p>
+ * Each implementation has a matching static {@code readFrom(DataInput)}.
+ */
+public interface Aggregate<T extends Aggregate<T>> {
+    /** Adds {@code other}'s data to this one and returns this. */
+    T merge(T other);
+
+    void writeTo(DataOutput out) throws IOException;
+}
@@ -0,0 +1,296 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-endpoint counters for GitHub API traffic, fed by an
+ * {@link InstrumentedConnector}: requests, latency histogram (time until
+ * the response headers arrive), body bytes, list pages, error and
+ * rate-limit responses, retries and cache hits.
+ * <p>
+ * Endpoints are coarse on purpose ({@code user}, {@code repos},
+ * {@code commits}, {@code issues}, {@code pulls}, {@code branches},
+ * {@code search}, {@code stats}, {@code other}) so a snapshot stays
+ * readable. Everything can be read while requests are running, and
+ * exported as Prometheus text or JSON.
+ */
+public class ApiMetrics {
+    /** Upper bounds of the latency buckets, in milliseconds; the last bucket is unbounded. */
+    static final long[] LATENCY_BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final Pattern REPO_RESOURCE = Pattern.compile("/repos/[^/]+/[^/]+(?:/([a-z_]+))?(?:/.*)?");
+
+    /** Counters of one endpoint. */
+    public static final class Endpoint {
+        final LongAdder requests = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder pages = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder rateLimited = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        final LongAdder latencyMicros = new LongAdder();
+        final AtomicLongArray buckets = new AtomicLongArray(LATENCY_BOUNDS_MILLIS.length + 1);
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        /** Response body bytes read. */
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        /** Successful responses of list endpoints. */
+        public long getPages() {
+            return pages.sum();
+        }
+
+        /** Responses with status 400 or above, rate limits included. */
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRateLimited() {
+            return rateLimited.sum();
+        }
+
+        /** Requests for a URL whose previous request failed. */
+        public long getRetries() {
+            return retries.sum();
+        }
+
+        /** Answers that didn't need a full response: 304s and local cache hits. */
+        public long getCacheHits() {
+            return cacheHits.sum();
+        }
+
+        public double getTotalLatencySeconds() {
+            return latencyMicros.sum() / 1e6;
+        }
+
+        /** Non-cumulative count of bucket {@code i}; see {@link #LATENCY_BOUNDS_MILLIS}. */
+        long bucket(int i) {
+            return buckets.get(i);
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> failedUrls = new ConcurrentHashMap<>();
+
+    /** The endpoint a request path belongs to, e.g. {@code /repos/o/r/commits?page=2} is {@code commits}. */
+    static String endpointOf(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        // Enterprise servers put the API under a prefix such as /api/v3
+        int at = firstOf(path, "/repos/", "/user", "/search/");
+        if (at > 0) {
+            path = path.substring(at);
+        }
+        if (path.equals("/user") || path.equals("/user/")) return "user";
+        if (path.equals("/user/repos") || path.matches("/users/[^/]+/repos")) return "repos";
+        if (path.startsWith("/search/")) return "search";
+        Matcher m = REPO_RESOURCE.matcher(path);
+        if (m.matches()) {
+            String resource = m.group(1);
+            if (resource == null) return "repos";
+            return switch (resource) {
+                case "commits", "issues", "pulls", "branches", "stats" -> resource;
+                default -> "other";
+            };
+        }
+        return "other";
+    }
+
+    private static int firstOf(String path, String... needles) {
+        int best = -1;
+        for (String needle : needles) {
+            int i = path.indexOf(needle);
+            if (i >= 0 && (best < 0 || i < best)) best = i;
+        }
+        return best;
+    }
+
+    public Endpoint get(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+    }
+
+    /** Endpoints seen so far, by name. */
+    public Map<String, Endpoint> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+
+    /** Records a response to {@code url}; {@code list} marks endpoints that return pages. */
+    void recordResponse(String url, String endpoint, int status, long latencyNanos, boolean list,
+                        boolean rateLimited) {
+        Endpoint e = get(endpoint);
+        e.requests.increment();
+        long micros = latencyNanos / 1000;
+        e.latencyMicros.add(micros);
+        e.buckets.incrementAndGet(bucketOf(micros / 1000));
+
+        if (failedUrls.remove(url) != null) {
+            e.retries.increment();
+        }
+        if (status == 304) {
+            e.cacheHits.increment();
+        } else if (status >= 400) {
+            e.errors.increment();
+            if (rateLimited) {
+                e.rateLimited.increment();
+            }
+            failedUrls.put(url, Boolean.TRUE);
+        } else if (list && status < 300) {
+            e.pages.increment();
+        }
+    }
+
+    /** Records a request that failed without a response (timeout, reset, ...). */
+    void recordFailure(String url, String endpoint, long latencyNanos) {
+        Endpoint e = get(endpoint);
+        e.requests.increment();
+        e.errors.increment();
+        e.latencyMicros.add(latencyNanos / 1000);
+        e.buckets.incrementAndGet(bucketOf(latencyNanos / 1_000_000));
+        if (failedUrls.put(url, Boolean.TRUE) != null) {
+            e.retries.increment();
+        }
+    }
+
+    void recordBytes(String endpoint, long n) {
+        get(endpoint).bytes.add(n);
+    }
+
+    /** Counts an answer served from a local cache without a request. */
+    void recordCacheHit(String endpoint) {
+        get(endpoint).cacheHits.increment();
+    }
+
+    private static int bucketOf(long millis) {
+        for (int i = 0; i < LATENCY_BOUNDS_MILLIS.length; i++) {
+            if (millis <= LATENCY_BOUNDS_MILLIS[i]) return i;
+        }
+        return LATENCY_BOUNDS_MILLIS.length;
+    }
+
+    // -----------------------------
+    // Export
+    // -----------------------------
+
+    /** Prometheus text exposition format; {@code retries} (may be null) adds the retry engine's counters. */
+    public String toPrometheus(RetryStats retries) {
+        StringBuilder out = new StringBuilder();
+        Map<String, Endpoint> snapshot = getEndpoints();
+        counter(out, snapshot, "ghdow_api_requests_total", "API requests sent", Endpoint::getRequests);
+        counter(out, snapshot, "ghdow_api_response_bytes_total", "Response body bytes read", Endpoint::getBytes);
+        counter(out, snapshot, "ghdow_api_pages_total", "List pages fetched", Endpoint::getPages);
+        counter(out, snapshot, "ghdow_api_errors_total", "Responses with status >= 400 and failed requests",
+                Endpoint::getErrors);
+        counter(out, snapshot, "ghdow_api_rate_limited_total", "403/429 responses", Endpoint::getRateLimited);
+        counter(out, snapshot, "ghdow_api_retries_total", "Requests repeating a failed one", Endpoint::getRetries);
+        counter(out, snapshot, "ghdow_api_cache_hits_total", "304s and local cache hits", Endpoint::getCacheHits);
+
+        out.append("# HELP ghdow_api_latency_seconds Time until response headers arrive\n");
+        out.append("# TYPE ghdow_api_latency_seconds histogram\n");
+        for (Map.Entry<String, Endpoint> e : snapshot.entrySet()) {
+            String label = "endpoint=\"" + e.getKey() + "\"";
+            long cumulative = 0;
+            for (int i = 0; i <= LATENCY_BOUNDS_MILLIS.length; i++) {
+                cumulative += e.getValue().bucket(i);
+                String le = i < LATENCY_BOUNDS_MILLIS.length
+                        ? seconds(LATENCY_BOUNDS_MILLIS[i] / 1000.0) : "+Inf";
+                out.append("ghdow_api_latency_seconds_bucket{").append(label)
+                        .append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            out.append("ghdow_api_latency_seconds_sum{").append(label).append("} ")
+                    .append(seconds(e.getValue().getTotalLatencySeconds())).append('\n');
+            out.append("ghdow_api_latency_seconds_count{").append(label).append("} ")
+                    .append(cumulative).append('\n');
+        }
+
+        if (retries != null) {
+            total(out, "ghdow_retry_calls_total", "Operations run by the retry engine", retries.getCalls());
+            total(out, "ghdow_retry_retries_total", "Operations retried", retries.getRetries());
+            total(out, "ghdow_retry_failed_total", "Operations that gave up", retries.getFailed());
+            total(out, "ghdow_retry_budget_exhausted_total", "Retries refused by the budget",
+                    retries.getBudgetExhausted());
+            total(out, "ghdow_retry_backoff_seconds_total", "Time spent backing off",
+                    retries.getBackoffMillis() / 1000.0);
+        }
+        return out.toString();
+    }
+
+    /** The same numbers as {@link #toPrometheus} as one JSON object. */
+    public String toJson(RetryStats retries) {
+        StringBuilder out = new StringBuilder("{\"endpoints\":{");
+        boolean first = true;
+        for (Map.Entry<String, Endpoint> e : getEndpoints().entrySet()) {
+            Endpoint ep = e.getValue();
+            if (!first) out.append(',');
+            first = false;
+            out.append('"').append(e.getKey()).append("\":{")
+                    .append("\"requests\":").append(ep.getRequests())
+                    .append(",\"bytes\":").append(ep.getBytes())
+                    .append(",\"pages\":").append(ep.getPages())
+                    .append(",\"errors\":").append(ep.getErrors())
+                    .append(",\"rateLimited\":").append(ep.getRateLimited())
+                    .append(",\"retries\":").append(ep.getRetries())
+                    .append(",\"cacheHits\":").append(ep.getCacheHits())
+                    .append(",\"latencySecondsTotal\":").append(seconds(ep.getTotalLatencySeconds()))
+                    .append(",\"latencyBucketsMillis\":{");
+            for (int i = 0; i <= LATENCY_BOUNDS_MILLIS.length; i++) {
+                if (i > 0) out.append(',');
+                String le = i < LATENCY_BOUNDS_MILLIS.length ? Long.toString(LATENCY_BOUNDS_MILLIS[i]) : "inf";
+                out.append("\"le_").append(le).append("\":").append(ep.bucket(i));
+            }
+            out.append("}}");
+        }
+        out.append('}');
+        if (retries != null) {
+            out.append(",\"retry\":{")
+                    .append("\"calls\":").append(retries.getCalls())
+                    .append(",\"attempts\":").append(retries.getAttempts())
+                    .append(",\"retries\":").append(retries.getRetries())
+                    .append(",\"failed\":").append(retries.getFailed())
+                    .append(",\"rateLimited\":").append(retries.getRateLimited())
+                    .append(",\"budgetExhausted\":").append(retries.getBudgetExhausted())
+                    .append(",\"backoffMillis\":").append(retries.getBackoffMillis())
+                    .append('}');
+        }
+        return out.append('}').toString();
+    }
+
+    private interface Value {
+        long of(Endpoint e);
+    }
+
+    private static void counter(StringBuilder out, Map<String, Endpoint> snapshot, String name, String help,
+                                Value value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        for (Map.Entry<String, Endpoint> e : snapshot.entrySet()) {
+            out.append(name).append("{endpoint=\"").append(e.getKey()).append("\"} ")
+                    .append(value.of(e.getValue())).append('\n');
+        }
+    }
+
+    private static void total(StringBuilder out, String name, String help, double value) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value == Math.rint(value) ? Long.toString((long) value) : seconds(value))
+                .append('\n');
+    }
+
+    private static String seconds(double s) {
+        return String.format(Locale.ROOT, "%.6f", s);
+    }
+}
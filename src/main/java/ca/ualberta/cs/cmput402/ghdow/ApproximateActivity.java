@@ -0,0 +1,189 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Commit activity estimated from GitHub's repository statistics instead of
+ * listing commits: two requests per repository (plus polls while GitHub
+ * computes them) rather than one per hundred commits.
+ * <p>
+ * It differs from the exact crawl in known ways:
+ * <ul>
+ * <li>The punch card counts every author. Each repository's card is scaled
+ * by my share of its commits from {@code /stats/contributors}, which
+ * assumes I commit at the same hours as everyone else there; for
+ * repositories only I commit to it is exact.</li>
+ * <li>Punch card hours are UTC and are moved into the zone by one fixed
+ * offset (rounded to the hour), so DST and per-commit author offsets are
+ * not honoured.</li>
+ * <li>The contributor stats list the top 100 authors only, and GitHub
+ * reports no weekly numbers for repositories with 10,000 commits or more.</li>
+ * <li>Repositories GitHub was still computing after the last poll are left
+ * out and listed in {@link #getPendingRepos()}.</li>
+ * </ul>
+ */
+public class ApproximateActivity {
+    private final double[] hours = new double[ActivityHistogram.HOURS_PER_WEEK]; // in the zone
+    private final SortedMap<LocalDate, Integer> weekly = new TreeMap<>();
+    private final List<String> pending = new ArrayList<>();
+    private final int repos;
+    private final int offsetHours;
+    private final long requests;
+    private long myCommits;
+    private long estimatedExactRequests;
+
+    private ApproximateActivity(int repos, int offsetHours, long requests) {
+        this.repos = repos;
+        this.offsetHours = offsetHours;
+        this.requests = requests;
+    }
+
+    /** Combines per-repo stats; hours are moved into {@code zone} at its offset as of {@code at}. */
+    static ApproximateActivity of(List<RepoStatsClient.Stats> stats, ZoneId zone, Instant at, long requests) {
+        ZoneOffset offset = zone.getRules().getOffset(at);
+        int shift = (int) Math.round(offset.getTotalSeconds() / 3600.0);
+        ApproximateActivity activity = new ApproximateActivity(stats.size(), shift, requests);
+        for (RepoStatsClient.Stats s : stats) {
+            if (!s.complete()) {
+                activity.pending.add(s.repo);
+                continue;
+            }
+            activity.add(s);
+        }
+        return activity;
+    }
+
+    private void add(RepoStatsClient.Stats s) {
+        // the exact crawl lists my commits in pages of 100, and at least one page per repo
+        estimatedExactRequests += Math.max(1, (s.myCommits + Paging.PAGE_SIZE - 1) / Paging.PAGE_SIZE);
+        myCommits += s.myCommits;
+        for (var week : s.myWeeks.entrySet()) {
+            LocalDate start = LocalDate.ofEpochDay(Math.floorDiv(week.getKey(), 86_400L));
+            weekly.merge(start, week.getValue(), Integer::sum);
+        }
+        long cardTotal = 0;
+        for (int c : s.punchCard) {
+            cardTotal += c;
+        }
+        if (cardTotal == 0 || s.myCommits == 0) return;
+        double share = (double) s.myCommits / cardTotal;
+        for (int utc = 0; utc < hours.length; utc++) {
+            int local = Math.floorMod(utc + offsetHours, hours.length);
+            hours[local] += s.punchCard[utc] * share;
+        }
+    }
+
+    /** Estimated commits per day of week in the zone, Sunday first. */
+    public double[] getDayWeights() {
+        double[] days = new double[ActivityHistogram.DAYS];
+        for (int h = 0; h < hours.length; h++) {
+            days[h / 24] += hours[h];
+        }
+        return days;
+    }
+
+    /** Estimated commits per hour of week in the zone, as {@link ActivityHistogram#getHourOfWeekCounts()}. */
+    public double[] getHourOfWeekWeights() {
+        return hours.clone();
+    }
+
+    /** Same naming and tie-breaking as {@link MyGithub#getMostPopularDay()}. */
+    public String getMostPopularDay() {
+        return dayName(argMax(getDayWeights()));
+    }
+
+    /** My commits per week (weeks start on Sunday, UTC), across all repositories. */
+    public SortedMap<LocalDate, Integer> getWeeklyCommits() {
+        return Collections.unmodifiableSortedMap(weekly);
+    }
+
+    /** My commits in the repositories that were complete, from the contributor stats. */
+    public long getCommitCount() {
+        return myCommits;
+    }
+
+    public int getRepoCount() {
+        return repos;
+    }
+
+    /** Repositories GitHub was still computing statistics for; not counted. */
+    public List<String> getPendingRepos() {
+        return Collections.unmodifiableList(pending);
+    }
+
+    /** Requests this estimate took, polls for 202 answers included. */
+    public long getRequests() {
+        return requests;
+    }
+
+    /** Commit pages the exact crawl would fetch for the same repositories. */
+    public long getEstimatedExactRequests() {
+        return estimatedExactRequests;
+    }
+
+    /**
+     * How this estimate compares with the exact day-of-week histogram: the
+     * per-day share of commits from both, their largest difference, whether
+     * the most popular day agrees and what each cost in requests.
+     */
+    public String compareWith(ActivityHistogram exact) {
+        double[] approx = getDayWeights();
+        int[] counts = exact.getDayCounts();
+        double approxTotal = 0;
+        for (double d : approx) {
+            approxTotal += d;
+        }
+        StringBuilder sb = new StringBuilder("Approximate vs exact commit activity\n");
+        sb.append(String.format(Locale.ROOT, "  commits: %d estimated vs %d listed\n", myCommits, exact.getTotal()));
+        double worst = 0;
+        for (int d = 0; d < ActivityHistogram.DAYS; d++) {
+            double a = approxTotal == 0 ? 0 : 100.0 * approx[d] / approxTotal;
+            double e = exact.getTotal() == 0 ? 0 : 100.0 * counts[d] / exact.getTotal();
+            worst = Math.max(worst, Math.abs(a - e));
+            sb.append(String.format(Locale.ROOT, "  %-9s %5.1f%% vs %5.1f%%\n", dayName(d), a, e));
+        }
+        String exactDay = exact.getTotal() == 0 ? "-" : MyGithub.mostPopularDay(exact);
+        sb.append(String.format(Locale.ROOT, "  largest difference: %.1f percentage points\n", worst));
+        sb.append("  most popular day: ").append(getMostPopularDay()).append(" vs ").append(exactDay)
+                .append(getMostPopularDay().equals(exactDay) ? " (agree)" : " (differ)").append('\n');
+        sb.append("  requests: ").append(requests).append(" vs about ").append(estimatedExactRequests)
+                .append(" commit pages");
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Most popular day (approximate): " + getMostPopularDay() + "\n"
+                + "  from repository statistics: " + myCommits + " commits in " + (repos - pending.size())
+                + " of " + repos + " repos, " + weekly.size() + " active weeks, UTC" + (offsetHours >= 0 ? "+" : "")
+                + offsetHours + "h\n"
+                + "  requests: " + requests + " (listing commits: about " + estimatedExactRequests + ")"
+                + (pending.isEmpty() ? "" : "\n  still computing on GitHub, left out: " + pending);
+    }
+
+    private static int argMax(double[] values) {
+        int arg = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[arg]) {
+                arg = i;
+            }
+        }
+        return arg;
+    }
+
+    private static String dayName(int sundayFirst) {
+        // DayOfWeek is Monday first
+        return DayOfWeek.SUNDAY.plus(sundayFirst).getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+    }
+}
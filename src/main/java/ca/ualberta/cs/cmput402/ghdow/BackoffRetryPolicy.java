@@ -0,0 +1,159 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHFileNotFoundException;
+import org.kohsuke.github.GHIOException;
+import org.kohsuke.github.HttpException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Exponential backoff with full jitter that knows about GitHub's rate
+ * limits.
+ * <p>
+ * Transient failures wait a random time between 0 and
+ * {@code baseDelay * 2^(attempt-1)}, capped at {@code maxDelay}. Rate-limit
+ * responses wait for {@code Retry-After} or until {@code X-RateLimit-Reset},
+ * unless that is further away than {@code maxRateLimitWait}, in which case
+ * the call gives up rather than hanging the run.
+ */
+public class BackoffRetryPolicy implements RetryPolicy {
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final long maxRateLimitWaitMillis;
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public BackoffRetryPolicy() {
+        this(3, 100, 10_000, 15 * 60_000);
+    }
+
+    public BackoffRetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                              long maxRateLimitWaitMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be >= 1: " + maxAttempts);
+        }
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("Bad delays: base=" + baseDelayMillis + " max=" + maxDelayMillis);
+        }
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxRateLimitWaitMillis = maxRateLimitWaitMillis;
+    }
+
+    /** For tests: the wall clock used to interpret {@code X-RateLimit-Reset}. */
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public Failure classify(IOException failure) {
+        if (failure instanceof InterruptedIOException && !(failure instanceof SocketTimeoutException)) {
+            return Failure.FATAL;
+        }
+        if (failure instanceof GHFileNotFoundException) {
+            return Failure.FATAL;
+        }
+        if (failure instanceof HttpException http) {
+            return classifyStatus(http.getResponseCode(), http.getResponseHeaderFields());
+        }
+        if (failure instanceof RestClient.StatusException status) {
+            return classifyStatus(status.status, status.headers);
+        }
+        // connection resets, timeouts, unknown hosts while the network comes back, ...
+        return Failure.TRANSIENT;
+    }
+
+    private static Failure classifyStatus(int code, Map<String, List<String>> headers) {
+        if (code == 429) {
+            return Failure.RATE_LIMITED;
+        }
+        if (code == 403 && ("0".equals(header(headers, "X-RateLimit-Remaining"))
+                || header(headers, "Retry-After") != null)) {
+            return Failure.RATE_LIMITED;
+        }
+        if (code >= 500 || code == 408 || code <= 0) {
+            return Failure.TRANSIENT;
+        }
+        return Failure.FATAL;
+    }
+
+    @Override
+    public long backoffMillis(int attempt, IOException failure, Failure kind) {
+        if (kind == Failure.FATAL) {
+            return -1;
+        }
+        if (kind == Failure.RATE_LIMITED) {
+            long wait = rateLimitWaitMillis(failure);
+            if (wait >= 0) {
+                return wait <= maxRateLimitWaitMillis ? wait : -1;
+            }
+        }
+        long ceiling = baseDelayMillis << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        return ceiling == 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /** How long the response asked us to wait, or -1 if it didn't say. */
+    long rateLimitWaitMillis(IOException failure) {
+        Map<String, List<String>> headers = headersOf(failure);
+        String retryAfter = header(headers, "Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000L);
+            } catch (NumberFormatException ignored) {
+                // HTTP-date form; GitHub sends seconds, so fall through
+            }
+        }
+        String reset = header(headers, "X-RateLimit-Reset");
+        if (reset != null) {
+            try {
+                long resetMillis = Long.parseLong(reset.trim()) * 1000L;
+                // a second of slack for clock skew
+                return Math.max(0, resetMillis - clock.getAsLong() + 1000L);
+            } catch (NumberFormatException ignored) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, List<String>> headersOf(IOException failure) {
+        if (failure instanceof GHIOException gh) {
+            return gh.getResponseHeaderFields();
+        }
+        if (failure instanceof GHFileNotFoundException nf) {
+            return nf.getResponseHeaderFields();
+        }
+        if (failure instanceof RestClient.StatusException status) {
+            return status.headers;
+        }
+        return null;
+    }
+
+    static String header(Map<String, List<String>> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            if (e.getKey() != null && e.getKey().equalsIgnoreCase(name)
+                    && e.getValue() != null && !e.getValue().isEmpty()) {
+                return e.getValue().get(0);
+            }
+        }
+        return null;
+    }
+}
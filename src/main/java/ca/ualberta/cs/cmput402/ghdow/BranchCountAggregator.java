@@ -0,0 +1,40 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHRepository;
+
+import java.util.EnumSet;
+import java.util.OptionalDouble;
+import java.util.Set;
+
+/** Average number of branches per repository. */
+class BranchCountAggregator implements RepoAggregator {
+    private final BranchStats stats = new BranchStats();
+
+    @Override
+    public Set<Resource> resources() {
+        return EnumSet.of(Resource.BRANCH_COUNT);
+    }
+
+    @Override
+    public void onBranchCount(GHRepository repo, int branches) {
+        stats.add(branches);
+    }
+
+    @Override
+    public boolean acceptsPartials() {
+        return true;
+    }
+
+    @Override
+    public void onPartial(GHRepository repo, RepoPartial partial) {
+        stats.add(partial.branches);
+    }
+
+    BranchStats getStats() {
+        return stats;
+    }
+
+    OptionalDouble getAveragePerRepo() {
+        return stats.getAveragePerRepo();
+    }
+}
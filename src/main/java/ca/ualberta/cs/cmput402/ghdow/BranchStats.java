@@ -0,0 +1,56 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.OptionalDouble;
+
+/** Total branches over a number of repositories. */
+public class BranchStats implements Aggregate<BranchStats> {
+    private long totalBranches;
+    private long repoCount;
+
+    /** Counts one repository with {@code branches} branches. */
+    public void add(int branches) {
+        totalBranches += branches;
+        repoCount++;
+    }
+
+    @Override
+    public BranchStats merge(BranchStats other) {
+        totalBranches += other.totalBranches;
+        repoCount += other.repoCount;
+        return this;
+    }
+
+    public long getTotalBranches() {
+        return totalBranches;
+    }
+
+    public long getRepoCount() {
+        return repoCount;
+    }
+
+    public OptionalDouble getAveragePerRepo() {
+        if (repoCount == 0) return OptionalDouble.empty();
+        return OptionalDouble.of((double) totalBranches / (double) repoCount);
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(totalBranches);
+        out.writeLong(repoCount);
+    }
+
+    public static BranchStats readFrom(DataInput in) throws IOException {
+        BranchStats stats = new BranchStats();
+        stats.totalBranches = in.readLong();
+        stats.repoCount = in.readLong();
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "BranchStats{totalBranches=" + totalBranches + ", repoCount=" + repoCount + "}";
+    }
+}
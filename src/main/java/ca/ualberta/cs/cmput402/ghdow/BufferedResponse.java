@@ -0,0 +1,47 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/** A response whose body is already in memory; it can be read any number of times. */
+class BufferedResponse extends GitHubConnectorResponse {
+    private final byte[] body;
+    private final boolean fromCache;
+
+    BufferedResponse(GitHubConnectorRequest request, int status, Map<String, List<String>> headers, byte[] body) {
+        this(request, status, headers, body, false);
+    }
+
+    BufferedResponse(GitHubConnectorRequest request, int status, Map<String, List<String>> headers, byte[] body,
+                     boolean fromCache) {
+        super(request, status, headers);
+        this.body = body;
+        this.fromCache = fromCache;
+    }
+
+    /** True if GitHub answered 304 and the body came from a local cache. */
+    boolean isFromCache() {
+        return fromCache;
+    }
+
+    byte[] body() {
+        return body;
+    }
+
+    /** The body, gunzipped if the headers still say it is gzip-encoded. */
+    @Override
+    public InputStream bodyStream() throws IOException {
+        return wrapStream(new ByteArrayInputStream(body));
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+}
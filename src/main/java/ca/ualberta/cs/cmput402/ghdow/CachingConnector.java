@@ -0,0 +1,158 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Revalidates GET requests against a {@link ConditionalCache}: a cached
+ * response's {@code ETag} / {@code Last-Modified} are sent as
+ * {@code If-None-Match} / {@code If-Modified-Since}, and a 304 is answered
+ * with the cached body as if GitHub had sent it again. Responses carrying
+ * either validator are cached.
+ * <p>
+ * Entries are keyed by URL, {@code Accept} header and a hash of the
+ * {@code Authorization} header, since the same URL answers differently for
+ * different media types and different users.
+ */
+class CachingConnector implements GitHubConnector {
+    private final GitHubConnector delegate;
+    private final ConditionalCache cache;
+
+    CachingConnector(GitHubConnector delegate, ConditionalCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    ConditionalCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        if (!"GET".equals(request.method()) || request.hasBody()) {
+            return delegate.send(request);
+        }
+        String key = key(request);
+        ConditionalCache.Entry cached = cache.get(key);
+
+        GitHubConnectorResponse response = delegate.send(cached == null ? request : new Conditional(request, cached));
+        int status = response.statusCode();
+        if (status == 304 && cached != null) {
+            response.close();
+            cache.recordHit();
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            headers.putAll(cached.headers);
+            // keep the fresh rate-limit numbers
+            for (Map.Entry<String, List<String>> e : response.allHeaders().entrySet()) {
+                if (e.getKey() != null && e.getKey().regionMatches(true, 0, "X-RateLimit-", 0, 12)) {
+                    headers.put(e.getKey(), e.getValue());
+                }
+            }
+            return new BufferedResponse(request, 200, headers, cached.body, true);
+        }
+        cache.recordMiss();
+
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (status != 200 || etag == null && lastModified == null) {
+            return response;
+        }
+        try (response) {
+            byte[] body;
+            try (InputStream in = response.bodyStream()) {
+                body = in == null ? new byte[0] : in.readAllBytes();
+            }
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> e : response.allHeaders().entrySet()) {
+                if (e.getKey() != null && HttpArchive.KEPT_HEADERS.contains(e.getKey())) {
+                    headers.put(e.getKey(), List.copyOf(e.getValue()));
+                }
+            }
+            cache.put(key, new ConditionalCache.Entry(etag, lastModified, headers, body));
+            return new BufferedResponse(request, status, headers, body);
+        }
+    }
+
+    static String key(GitHubConnectorRequest request) {
+        String key = request.url().toString();
+        String accept = request.header("Accept");
+        if (accept != null) {
+            key += " " + accept;
+        }
+        String auth = request.header("Authorization");
+        if (auth == null) {
+            return key;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(auth.getBytes(StandardCharsets.UTF_8));
+            return key + " " + HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** {@code request} with the validators of {@code cached} added. */
+    private static final class Conditional implements GitHubConnectorRequest {
+        private final GitHubConnectorRequest request;
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        Conditional(GitHubConnectorRequest request, ConditionalCache.Entry cached) {
+            this.request = request;
+            headers.putAll(request.allHeaders());
+            if (cached.etag != null) {
+                headers.put("If-None-Match", List.of(cached.etag));
+            }
+            if (cached.lastModified != null) {
+                headers.put("If-Modified-Since", List.of(cached.lastModified));
+            }
+        }
+
+        @Override
+        public String method() {
+            return request.method();
+        }
+
+        @Override
+        public Map<String, List<String>> allHeaders() {
+            return headers;
+        }
+
+        @Override
+        public String header(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public String contentType() {
+            return request.contentType();
+        }
+
+        @Override
+        public InputStream body() {
+            return request.body();
+        }
+
+        @Override
+        public URL url() {
+            return request.url();
+        }
+
+        @Override
+        public boolean hasBody() {
+            return request.hasBody();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk store of the authenticated user's commits, keyed by repository
+ * full name.
+ * <p>
+ * For every repository it remembers the SHA fingerprint and commit date of
+ * each commit seen so far, plus a watermark: the newest commit date synced.
+ * A later run only has to ask GitHub for commits {@code since} the
+ * watermark. The {@code since} filter is inclusive, so commits are
+ * de-duplicated by SHA. Commits pushed later with a commit date older than
+ * the watermark are not picked up; delete the cache file to force a full
+ * re-sync.
+ */
+public class CommitCache {
+    private static final int MAGIC = 0x67686377; // "ghcw"
+    private static final int VERSION = 3;
+
+    private final Path file;
+    private final Map<String, RepoEntry> repos = new TreeMap<>();
+    private final Map<String, Long> searchWatermarks = new TreeMap<>();
+    private boolean dirty;
+
+    private static final class RepoEntry {
+        long watermark = Long.MIN_VALUE;
+        final CommitStore rows = new CommitStore(16);
+        final int repo;
+
+        RepoEntry(String name) {
+            repo = rows.repoIndex(name);
+        }
+    }
+
+    private CommitCache(Path file) {
+        this.file = file;
+    }
+
+    /** Loads the cache from {@code file}, or starts an empty one if it doesn't exist yet. */
+    public static CommitCache open(Path file) throws IOException {
+        CommitCache cache = new CommitCache(file);
+        if (Files.exists(file)) {
+            cache.load();
+        }
+        return cache;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /** Newest commit date synced for {@code repo}, or null if it has never been synced. */
+    public synchronized Date getWatermark(String repo) {
+        RepoEntry entry = repos.get(repo);
+        if (entry == null || entry.watermark == Long.MIN_VALUE) return null;
+        return new Date(entry.watermark);
+    }
+
+    /**
+     * Newest commit date a commit search for {@code author} returned, or null
+     * if it was never searched. Kept apart from the repo watermarks, which
+     * the per-repo listing also moves.
+     */
+    public synchronized Date getSearchWatermark(String author) {
+        Long watermark = searchWatermarks.get(author);
+        return watermark == null ? null : new Date(watermark);
+    }
+
+    public synchronized void setSearchWatermark(String author, Date newest) {
+        Long old = searchWatermarks.get(author);
+        if (old == null || old < newest.getTime()) {
+            searchWatermarks.put(author, newest.getTime());
+            dirty = true;
+        }
+    }
+
+    /** Every repository in the cache, including ones only a search found. */
+    public synchronized List<String> repoNames() {
+        return new ArrayList<>(repos.keySet());
+    }
+
+    /** True if {@code repo} has been synced before, with or without commits. */
+    public synchronized boolean contains(String repo) {
+        return repos.containsKey(repo);
+    }
+
+    /** Marks {@code repo} as synced even if it has no commits, so it is known next time. */
+    public synchronized void touch(String repo) {
+        if (!repos.containsKey(repo)) {
+            repos.put(repo, new RepoEntry(repo));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Adds every commit of {@code fetched} (whatever repo it was recorded
+     * under) to {@code repo}, skipping ones already cached. Returns how many
+     * were new.
+     */
+    public synchronized int merge(String repo, CommitStore fetched) {
+        RepoEntry entry = entry(repo);
+        long[] known = entry.rows.shasCopy();
+        Arrays.sort(known);
+        int added = 0;
+        for (int i = 0; i < fetched.size(); i++) {
+            long fp = fetched.sha(i);
+            if (Arrays.binarySearch(known, fp) >= 0) continue;
+            append(entry, fp, fetched.time(i));
+            added++;
+        }
+        return added;
+    }
+
+    public synchronized int size(String repo) {
+        RepoEntry entry = repos.get(repo);
+        return entry == null ? 0 : entry.rows.size();
+    }
+
+    /** Commits of the given repositories as one store, repo by repo in the order given. */
+    public synchronized CommitStore snapshot(Collection<String> repoNames) {
+        int total = 0;
+        for (String repo : repoNames) {
+            total += size(repo);
+        }
+        CommitStore result = new CommitStore(total);
+        for (String repo : repoNames) {
+            RepoEntry entry = repos.get(repo);
+            if (entry != null) {
+                result.addAll(entry.rows);
+            }
+        }
+        return result;
+    }
+
+    /** Writes the cache back to disk if anything changed. The file is replaced atomically. */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(repos.size());
+            for (Map.Entry<String, RepoEntry> e : repos.entrySet()) {
+                CommitStore rows = e.getValue().rows;
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().watermark);
+                out.writeInt(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    out.writeLong(rows.sha(i));
+                    out.writeLong(rows.time(i));
+                }
+            }
+            out.writeInt(searchWatermarks.size());
+            for (Map.Entry<String, Long> e : searchWatermarks.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private RepoEntry entry(String repo) {
+        return repos.computeIfAbsent(repo, RepoEntry::new);
+    }
+
+    private void append(RepoEntry entry, long fp, long time) {
+        entry.rows.add(entry.repo, fp, time);
+        entry.watermark = Math.max(entry.watermark, time);
+        dirty = true;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a commit cache: " + file);
+            }
+            int version = in.readInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported commit cache version " + version + ": " + file);
+            }
+            int repoCount = in.readInt();
+            for (int r = 0; r < repoCount; r++) {
+                String name = in.readUTF();
+                RepoEntry entry = new RepoEntry(name);
+                entry.watermark = in.readLong();
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    // version 1 kept full SHA strings
+                    long sha = version == 1 ? CommitStore.fingerprint(in.readUTF()) : in.readLong();
+                    long t = in.readLong();
+                    entry.rows.add(entry.repo, sha, t);
+                }
+                entry.rows.trimToSize();
+                repos.put(name, entry);
+            }
+            if (version >= 3) {
+                int searches = in.readInt();
+                for (int i = 0; i < searches; i++) {
+                    searchWatermarks.put(in.readUTF(), in.readLong());
+                }
+            }
+            // rewrite older files in the current format on the next save
+            dirty = version != VERSION;
+        }
+    }
+}
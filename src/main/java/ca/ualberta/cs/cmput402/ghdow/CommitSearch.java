@@ -0,0 +1,202 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An author's commits across every repository, from the commit search
+ * endpoint ({@code author:<login>}) instead of listing each repository.
+ * Repositories without any of the author's commits cost nothing, and
+ * repositories the author doesn't own are found too.
+ * <p>
+ * A search only ever returns its first 1000 results. When a query matches
+ * more, its committer-date range is halved until each window fits, and
+ * the windows are read one after another. Like the per-repo listing, the
+ * search covers default branches only; unlike it, forks are only indexed
+ * when they have more stars than their parent.
+ * <p>
+ * The search endpoint is used through {@link RestClient} rather than
+ * github-api, which looks up each result's repository with a request of
+ * its own.
+ */
+class CommitSearch {
+    static final int RESULT_CAP = 1000;
+    private static final long DAY_SECONDS = 86_400;
+
+    private final RestClient rest;
+    private final Retrier retrier;
+    private final Clock clock;
+    private long requests;
+    private int windows;
+    private boolean incomplete;
+    private long newest = Long.MIN_VALUE;
+
+    CommitSearch(RestClient rest, Retrier retrier, Clock clock) {
+        this.rest = rest;
+        this.retrier = retrier;
+        this.clock = clock;
+    }
+
+    /** Search requests sent so far, split windows included. */
+    long getRequests() {
+        return requests;
+    }
+
+    /** Date windows read; 1 if the whole query fit under the cap. */
+    int getWindows() {
+        return windows;
+    }
+
+    /**
+     * True if some results could not be read: GitHub flagged a search as
+     * incomplete (it timed out), or more than 1000 commits share one second.
+     */
+    boolean isIncomplete() {
+        return incomplete;
+    }
+
+    /** Newest commit date returned so far, or null if nothing was. */
+    Date getNewest() {
+        return newest == Long.MIN_VALUE ? null : new Date(newest);
+    }
+
+    /**
+     * Every commit by {@code login} with a committer date at or after
+     * {@code since} (all of them if null), each under the repository it
+     * was found in.
+     */
+    CommitStore search(String login, Date since) throws IOException {
+        return search(login, since, null);
+    }
+
+    /** The same, limited to committer dates before {@code until} unless it is null. */
+    CommitStore search(String login, Date since, Date until) throws IOException {
+        CommitStore store = new CommitStore();
+        long from = since == null ? 0 : Math.floorDiv(since.getTime(), 1000);
+        long to = until == null
+                ? clock.millis() / 1000 + DAY_SECONDS // allow for committer clocks running ahead
+                : Math.floorDiv(until.getTime() - 1, 1000) + 1;
+        if (since == null && until == null) {
+            // most authors fit under the cap without any date filter
+            Page first = query(login, null, 1);
+            if (first.total <= RESULT_CAP) {
+                windows++;
+                readWindow(login, null, first, store);
+                return store;
+            }
+        }
+        if (from < to) {
+            search(login, from, to, store);
+        }
+        return store;
+    }
+
+    /** Commits in {@code [from, to)}, epoch seconds, split until each window fits. */
+    private void search(String login, long from, long to, CommitStore store) throws IOException {
+        String range = "committer-date:" + Instant.ofEpochSecond(from) + ".." + Instant.ofEpochSecond(to - 1);
+        Page first = query(login, range, 1);
+        if (first.total > RESULT_CAP && to - from > 1) {
+            long mid = from + (to - from) / 2;
+            search(login, from, mid, store);
+            search(login, mid, to, store);
+            return;
+        }
+        if (first.total > RESULT_CAP) {
+            incomplete = true;
+        }
+        windows++;
+        readWindow(login, range, first, store);
+    }
+
+    private void readWindow(String login, String range, Page first, CommitStore store) throws IOException {
+        int reachable = Math.min(first.total, RESULT_CAP);
+        int pages = (reachable + Paging.PAGE_SIZE - 1) / Paging.PAGE_SIZE;
+        Page page = first;
+        for (int p = 1; ; p++) {
+            add(page, store);
+            if (p >= pages || page.items.size() < Paging.PAGE_SIZE) break;
+            page = query(login, range, p + 1);
+        }
+    }
+
+    private void add(Page page, CommitStore store) throws IOException {
+        for (JsonNode item : page.items) {
+            String sha = item.path("sha").textValue();
+            JsonNode repo = item.path("repository");
+            String date = item.path("commit").path("committer").path("date").textValue();
+            if (sha == null || !repo.isObject() || date == null) {
+                continue;
+            }
+            long time;
+            try {
+                time = OffsetDateTime.parse(date).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                throw new IOException("Bad commit date '" + date + "' in search results", e);
+            }
+            store.add(repo.path("full_name").asText(), sha, time);
+            newest = Math.max(newest, time);
+        }
+    }
+
+    private static final class Page {
+        final int total;
+        final JsonNode items;
+
+        Page(int total, JsonNode items) {
+            this.total = total;
+            this.items = items;
+        }
+    }
+
+    private Page query(String login, String range, int page) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("q", "author:" + login + (range == null ? "" : " " + range));
+        params.put("sort", "committer-date");
+        params.put("order", "asc");
+        params.put("per_page", String.valueOf(Paging.PAGE_SIZE));
+        params.put("page", String.valueOf(page));
+        RestClient.Response response = retrier.call(() -> {
+            requests++;
+            return rest.get("/search/commits", params);
+        });
+        JsonNode body = response.json();
+        if (!body.isObject()) {
+            throw new IOException("Unexpected commit search response for " + params.get("q"));
+        }
+        if (body.path("incomplete_results").asBoolean()) {
+            incomplete = true;
+        }
+        JsonNode items = body.path("items");
+        return new Page(body.path("total_count").asInt(0), items.isArray() ? items : MissingNode.getInstance());
+    }
+
+    /**
+     * {@code primary} followed by the rows of {@code extra} whose SHA
+     * fingerprint isn't in it yet, whichever repository they are under.
+     * Rows without a SHA can't be matched and are always added.
+     */
+    static CommitStore union(CommitStore primary, CommitStore extra) {
+        FingerprintSet seen = new FingerprintSet(primary.size() + extra.size());
+        for (int i = 0; i < primary.size(); i++) {
+            seen.add(primary.sha(i));
+        }
+        CommitStore result = new CommitStore(primary.size() + extra.size());
+        result.addAll(primary);
+        for (int i = 0; i < extra.size(); i++) {
+            long sha = extra.sha(i);
+            if (sha == 0L || seen.add(sha)) {
+                result.add(result.repoIndex(extra.repoName(extra.repo(i))), sha, extra.time(i));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,168 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact column store of commits: one row per commit, holding only what the
+ * metrics need.
+ * <p>
+ * Each column is a growable primitive array: the commit time in epoch
+ * millis, an index into the repository name table, and a 64-bit SHA
+ * fingerprint (the first 16 hex digits of the SHA). That is 20 bytes a
+ * commit, against several kilobytes for a retained {@code GHCommit}.
+ * Not thread-safe.
+ */
+public class CommitStore {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<String> repoNames = new ArrayList<>();
+    private final Map<String, Integer> repoIndex = new HashMap<>();
+    private long[] times;
+    private int[] repos;
+    private long[] shas;
+    private int size;
+
+    public CommitStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public CommitStore(int capacity) {
+        int cap = Math.max(capacity, 1);
+        times = new long[cap];
+        repos = new int[cap];
+        shas = new long[cap];
+    }
+
+    /** Index of {@code repo} in this store's name table, adding it if needed. */
+    public int repoIndex(String repo) {
+        Integer idx = repoIndex.get(repo);
+        if (idx == null) {
+            idx = repoNames.size();
+            repoNames.add(repo);
+            repoIndex.put(repo, idx);
+        }
+        return idx;
+    }
+
+    public int repoCount() {
+        return repoNames.size();
+    }
+
+    public String repoName(int repo) {
+        return repoNames.get(repo);
+    }
+
+    public void add(int repo, long shaFingerprint, long timeMillis) {
+        if (repo < 0 || repo >= repoNames.size()) {
+            throw new IndexOutOfBoundsException("Unknown repo index: " + repo);
+        }
+        if (size == times.length) {
+            int cap = Math.max(size + (size >> 1), size + 1);
+            times = Arrays.copyOf(times, cap);
+            repos = Arrays.copyOf(repos, cap);
+            shas = Arrays.copyOf(shas, cap);
+        }
+        times[size] = timeMillis;
+        repos[size] = repo;
+        shas[size] = shaFingerprint;
+        size++;
+    }
+
+    public void add(String repo, String sha, long timeMillis) {
+        add(repoIndex(repo), fingerprint(sha), timeMillis);
+    }
+
+    /** Appends every row of {@code other}, remapping its repositories onto this store's names. */
+    public void addAll(CommitStore other) {
+        int[] mapping = new int[other.repoCount()];
+        for (int r = 0; r < mapping.length; r++) {
+            mapping[r] = repoIndex(other.repoName(r));
+        }
+        for (int i = 0; i < other.size; i++) {
+            add(mapping[other.repos[i]], other.shas[i], other.times[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long time(int row) {
+        checkRow(row);
+        return times[row];
+    }
+
+    public int repo(int row) {
+        checkRow(row);
+        return repos[row];
+    }
+
+    public long sha(int row) {
+        checkRow(row);
+        return shas[row];
+    }
+
+    /** Copy of the commit-time column. */
+    public long[] timesCopy() {
+        return Arrays.copyOf(times, size);
+    }
+
+    /** Copy of the SHA fingerprint column. */
+    public long[] shasCopy() {
+        return Arrays.copyOf(shas, size);
+    }
+
+    /** Drops spare capacity once loading is done. */
+    public void trimToSize() {
+        if (times.length != size) {
+            int cap = Math.max(size, 1);
+            times = Arrays.copyOf(times, cap);
+            repos = Arrays.copyOf(repos, cap);
+            shas = Arrays.copyOf(shas, cap);
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /**
+     * 64-bit fingerprint of a commit SHA: its first 16 hex digits. Anything
+     * that isn't a hex SHA falls back to a spread string hash.
+     */
+    public static long fingerprint(String sha) {
+        if (sha == null) {
+            return 0L;
+        }
+        if (sha.length() >= 16) {
+            long v = 0L;
+            boolean hex = true;
+            for (int i = 0; i < 16 && hex; i++) {
+                int d = Character.digit(sha.charAt(i), 16);
+                if (d < 0) {
+                    hex = false;
+                } else {
+                    v = (v << 4) | d;
+                }
+            }
+            if (hex) {
+                return v;
+            }
+        }
+        long h = 1125899906842597L;
+        for (int i = 0; i < sha.length(); i++) {
+            h = 31 * h + sha.charAt(i);
+        }
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,221 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of GitHub responses with their validators ({@code ETag},
+ * {@code Last-Modified}), used by {@link CachingConnector} to make
+ * conditional requests. A 304 answer doesn't count against the rate limit.
+ * <p>
+ * Entries are evicted least recently used first once their bodies add up
+ * to more than {@code maxBytes}. The file keeps that order, so recency
+ * survives a restart.
+ */
+public class ConditionalCache {
+    private static final int MAGIC = 0x67686863; // "ghhc"
+    private static final int VERSION = 1;
+
+    static final class Entry {
+        final String etag;
+        final String lastModified;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        Entry(String etag, String lastModified, Map<String, List<String>> headers, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final Path file;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+    private boolean dirty;
+    private long hits;
+    private long misses;
+    private long stores;
+    private long evictions;
+
+    private ConditionalCache(Path file, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes must be >= 1: " + maxBytes);
+        }
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    /** A cache that lives in memory only. */
+    public static ConditionalCache inMemory(long maxBytes) {
+        return new ConditionalCache(null, maxBytes);
+    }
+
+    /** Loads the cache from {@code file}, or starts an empty one if it doesn't exist yet. */
+    public static ConditionalCache open(Path file, long maxBytes) throws IOException {
+        ConditionalCache cache = new ConditionalCache(file, maxBytes);
+        if (Files.exists(file)) {
+            cache.load();
+        }
+        return cache;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /** Stores a response; bodies larger than a quarter of the cache are not kept. */
+    synchronized void put(String key, Entry entry) {
+        if (entry.body.length > maxBytes / 4) {
+            return;
+        }
+        Entry old = entries.put(key, entry);
+        if (old != null) {
+            bytes -= old.body.length;
+        }
+        bytes += entry.body.length;
+        stores++;
+        dirty = true;
+        evict();
+    }
+
+    synchronized void recordHit() {
+        hits++;
+    }
+
+    synchronized void recordMiss() {
+        misses++;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= it.next().body.length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Requests answered 304 Not Modified. */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** GET requests that had to download the full response. */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getStores() {
+        return stores;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Total size of the cached bodies. */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits=" + hits + " misses=" + misses + " entries=" + entries.size()
+                + " bytes=" + bytes + " evictions=" + evictions;
+    }
+
+    /** Writes the cache back to disk if anything changed. The file is replaced atomically. */
+    public synchronized void save() throws IOException {
+        if (!dirty || file == null) return;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            // least recently used first, the order they are read back in
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeUTF(entry.etag == null ? "" : entry.etag);
+                out.writeUTF(entry.lastModified == null ? "" : entry.lastModified);
+                out.writeInt(entry.headers.size());
+                for (Map.Entry<String, List<String>> h : entry.headers.entrySet()) {
+                    out.writeUTF(h.getKey());
+                    out.writeInt(h.getValue().size());
+                    for (String value : h.getValue()) {
+                        out.writeUTF(value);
+                    }
+                }
+                out.writeInt(entry.body.length);
+                out.write(entry.body);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a response cache: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported response cache version " + version + ": " + file);
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String key = in.readUTF();
+                String etag = in.readUTF();
+                String lastModified = in.readUTF();
+                Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                int headerCount = in.readInt();
+                for (int h = 0; h < headerCount; h++) {
+                    String name = in.readUTF();
+                    int values = in.readInt();
+                    List<String> list = new ArrayList<>(values);
+                    for (int v = 0; v < values; v++) {
+                        list.add(in.readUTF());
+                    }
+                    headers.put(name, list);
+                }
+                byte[] body = new byte[in.readInt()];
+                in.readFully(body);
+                Entry entry = new Entry(etag.isEmpty() ? null : etag, lastModified.isEmpty() ? null : lastModified,
+                        headers, body);
+                entries.put(key, entry);
+                bytes += body.length;
+            }
+            evict();
+            // a smaller limit than last time dropped entries
+            dirty = evictions > 0;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Append-only record of a crawl in progress, so that a run which dies
+ * half-way (rate limit, network, out of memory) is picked up where it
+ * stopped instead of starting over.
+ * <p>
+ * For the commit listing it keeps each repository's commits a page at a
+ * time and marks the repository once its listing is complete. A restarted
+ * run serves complete repositories from the journal and lists the others
+ * only {@code until} the oldest commit journaled for them: the listing is
+ * newest first, so that is where it stopped. For repository scans it keeps
+ * each repository's {@link RepoPartial}, reused as it is.
+ * <p>
+ * Finished repositories are flushed to disk at once, pages at most every
+ * {@link #CHECKPOINT_MILLIS}. A record torn by a crash is dropped on the
+ * next open. Call {@link #finish()} once the whole run has succeeded; a
+ * journal older than {@code maxAge} is discarded rather than resumed.
+ */
+public class CrawlJournal implements Closeable {
+    private static final int MAGIC = 0x6768636a; // "ghcj"
+    private static final int VERSION = 1;
+    static final long CHECKPOINT_MILLIS = 5_000;
+
+    private static final byte COMMIT_PAGE = 1;
+    private static final byte COMMITS_DONE = 2;
+    private static final byte PARTIAL = 3;
+
+    private final Path file;
+    private final Clock clock;
+    private final Map<String, CommitStore> commits = new TreeMap<>();
+    private final Set<String> commitsDone = new HashSet<>();
+    private final Map<String, RepoPartial> partials = new TreeMap<>();
+    private long startedAt;
+    private DataOutputStream out;
+    private long lastFlush;
+    private long resumed;
+    private boolean finished;
+
+    private CrawlJournal(Path file, Clock clock) {
+        this.file = file;
+        this.clock = clock;
+    }
+
+    /** Resumes the journal in {@code file}, or starts a new one if there is none or it is too old. */
+    public static CrawlJournal open(Path file, Duration maxAge) throws IOException {
+        return open(file, maxAge, Clock.systemUTC());
+    }
+
+    static CrawlJournal open(Path file, Duration maxAge, Clock clock) throws IOException {
+        CrawlJournal journal = new CrawlJournal(file, clock);
+        journal.startedAt = clock.millis();
+        if (Files.exists(file)) {
+            journal.load(maxAge);
+        }
+        journal.rewrite();
+        return journal;
+    }
+
+    long now() {
+        return clock.millis();
+    }
+
+    /** True if a run before this one found anything to resume from. */
+    public synchronized boolean isResumed() {
+        return !commits.isEmpty() || !partials.isEmpty();
+    }
+
+    /** Repositories served from the journal instead of being fetched again. */
+    public synchronized long getResumed() {
+        return resumed;
+    }
+
+    /** True if {@code repo}'s commit listing was completed. */
+    synchronized boolean isCommitsDone(String repo) {
+        return commitsDone.contains(repo);
+    }
+
+    /** The commits journaled for {@code repo} so far, under repo index 0; empty if none. */
+    synchronized CommitStore getCommits(String repo) {
+        CommitStore copy = new CommitStore(16);
+        copy.repoIndex(repo);
+        CommitStore rows = commits.get(repo);
+        if (rows != null) {
+            for (int i = 0; i < rows.size(); i++) {
+                copy.add(0, rows.sha(i), rows.time(i));
+            }
+        }
+        if (commitsDone.contains(repo)) {
+            resumed++;
+        }
+        return copy;
+    }
+
+    /**
+     * Where {@code repo}'s listing is to continue: the oldest commit date
+     * journaled for it, or null to start at the newest commit.
+     */
+    synchronized Date getCommitCursor(String repo) {
+        CommitStore rows = commits.get(repo);
+        if (rows == null || rows.isEmpty()) return null;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < rows.size(); i++) {
+            oldest = Math.min(oldest, rows.time(i));
+        }
+        return new Date(oldest);
+    }
+
+    /** Journals one page of {@code repo}'s commits (every row, whatever repo index). */
+    synchronized void addCommitPage(String repo, CommitStore page) throws IOException {
+        if (page.isEmpty()) return;
+        append(repo, commits.computeIfAbsent(repo, CrawlJournal::rows), page);
+        if (now() - lastFlush >= CHECKPOINT_MILLIS) {
+            checkpoint();
+        }
+    }
+
+    synchronized void markCommitsDone(String repo) throws IOException {
+        if (!commitsDone.add(repo)) return;
+        out.writeByte(COMMITS_DONE);
+        out.writeUTF(repo);
+        checkpoint();
+    }
+
+    /** A copy of the partial journaled for {@code repo}, or null if there is none. */
+    synchronized RepoPartial getPartial(String repo) {
+        RepoPartial partial = partials.get(repo);
+        if (partial == null) return null;
+        resumed++;
+        return partial.copy();
+    }
+
+    synchronized void putPartial(String repo, RepoPartial partial) throws IOException {
+        partials.put(repo, partial.copy());
+        out.writeByte(PARTIAL);
+        out.writeUTF(repo);
+        partial.writeTo(out);
+        checkpoint();
+    }
+
+    /** Flushes what was journaled so far to disk. */
+    public synchronized void checkpoint() throws IOException {
+        if (out == null) return;
+        out.flush();
+        lastFlush = now();
+    }
+
+    /** Closes the journal and keeps the file for the next run to resume from. */
+    @Override
+    public synchronized void close() throws IOException {
+        if (out == null) return;
+        out.close();
+        out = null;
+    }
+
+    /** The crawl completed: closes the journal and deletes the file. */
+    public synchronized void finish() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+        finished = true;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "repos with commits=" + commits.size() + " complete=" + commitsDone.size()
+                + " partials=" + partials.size() + " resumed=" + resumed;
+    }
+
+    /** An empty store with {@code repo} at index 0, e.g. a page to fill for {@link #addCommitPage}. */
+    static CommitStore rows(String repo) {
+        CommitStore rows = new CommitStore(Paging.PAGE_SIZE);
+        rows.repoIndex(repo);
+        return rows;
+    }
+
+    private void append(String repo, CommitStore rows, CommitStore page) throws IOException {
+        out.writeByte(COMMIT_PAGE);
+        out.writeUTF(repo);
+        out.writeInt(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            out.writeLong(page.sha(i));
+            out.writeLong(page.time(i));
+            rows.add(0, page.sha(i), page.time(i));
+        }
+    }
+
+    /**
+     * Writes what was loaded back as a fresh journal, one record per
+     * repository, and leaves it open for appending. Drops torn records and
+     * pages superseded since.
+     */
+    private void rewrite() throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        Map<String, CommitStore> loaded = new TreeMap<>(commits);
+        commits.clear();
+        try (DataOutputStream tmpOut = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out = tmpOut;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(startedAt);
+            for (Map.Entry<String, CommitStore> e : loaded.entrySet()) {
+                append(e.getKey(), commits.computeIfAbsent(e.getKey(), CrawlJournal::rows), e.getValue());
+            }
+            for (String repo : commitsDone) {
+                out.writeByte(COMMITS_DONE);
+                out.writeUTF(repo);
+            }
+            for (Map.Entry<String, RepoPartial> e : partials.entrySet()) {
+                out.writeByte(PARTIAL);
+                out.writeUTF(e.getKey());
+                e.getValue().writeTo(out);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.APPEND)));
+        lastFlush = now();
+    }
+
+    private void load(Duration maxAge) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            long started;
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("Not a crawl journal: " + file);
+                }
+                int version = in.readInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported crawl journal version " + version + ": " + file);
+                }
+                started = in.readLong();
+            } catch (EOFException e) {
+                return; // torn before the first record: nothing to resume
+            }
+            if (now() - started > maxAge.toMillis()) {
+                System.out.println("Crawl journal: " + file + " is too old to resume, starting over");
+                return;
+            }
+            startedAt = started;
+            try {
+                while (true) {
+                    int type = in.read();
+                    if (type < 0) break;
+                    String repo = in.readUTF();
+                    switch (type) {
+                        case COMMIT_PAGE -> {
+                            int n = in.readInt();
+                            CommitStore page = rows(repo);
+                            for (int i = 0; i < n; i++) {
+                                page.add(0, in.readLong(), in.readLong());
+                            }
+                            CommitStore rows = commits.computeIfAbsent(repo, CrawlJournal::rows);
+                            rows.addAll(page);
+                        }
+                        case COMMITS_DONE -> commitsDone.add(repo);
+                        case PARTIAL -> partials.put(repo, RepoPartial.readFrom(in));
+                        default -> throw new IOException("Corrupt crawl journal record " + type + ": " + file);
+                    }
+                }
+            } catch (EOFException e) {
+                // the last record was torn by a crash; everything before it stands
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+/**
+ * Set of 64-bit SHA fingerprints ({@link CommitStore#fingerprint}), kept in
+ * one open-addressing {@code long[]}: 8 to 16 bytes a commit, against about
+ * 60 for a {@code HashSet<Long>}, and no boxing on lookup. Not thread-safe.
+ */
+final class FingerprintSet {
+    private static final long EMPTY = 0L; // 0 itself is tracked on the side
+
+    private long[] table;
+    private int size;
+    private boolean hasEmpty;
+
+    FingerprintSet() {
+        this(16);
+    }
+
+    FingerprintSet(int expected) {
+        int cap = 16;
+        while (cap < expected * 2L && cap < (1 << 30)) {
+            cap <<= 1;
+        }
+        table = new long[cap];
+    }
+
+    /** Adds {@code fp}, returning false if it was already there. */
+    boolean add(long fp) {
+        if (fp == EMPTY) {
+            if (hasEmpty) return false;
+            hasEmpty = true;
+            size++;
+            return true;
+        }
+        int mask = table.length - 1;
+        for (int i = slot(fp, mask); ; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == fp) return false;
+            if (v == EMPTY) {
+                table[i] = fp;
+                if (++size * 2 > table.length) {
+                    grow();
+                }
+                return true;
+            }
+        }
+    }
+
+    boolean contains(long fp) {
+        if (fp == EMPTY) return hasEmpty;
+        int mask = table.length - 1;
+        for (int i = slot(fp, mask); ; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == fp) return true;
+            if (v == EMPTY) return false;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int slot(long fp, int mask) {
+        // fingerprints are SHA prefixes, but the fallback string hash isn't as well spread
+        long h = fp * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private void grow() {
+        long[] old = table;
+        table = new long[old.length * 2];
+        int mask = table.length - 1;
+        for (long v : old) {
+            if (v == EMPTY) continue;
+            int i = slot(v, mask);
+            while (table[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            table[i] = v;
+        }
+    }
+}
@@ -20,4 +20,7 @@ public class GHIssueWrapper {
         return ghIssue.getClosedAt();
     }
 
+    public Date getUpdatedAt() throws IOException {
+        return ghIssue.getUpdatedAt();
+    }
 }
@@ -19,4 +19,8 @@ public class GHPullRequestWrapper {
     public Date getClosedAt() throws IOException {
         return pr.getClosedAt(); // null if still open
     }
+
+    public Date getUpdatedAt() throws IOException {
+        return pr.getUpdatedAt();
+    }
 }
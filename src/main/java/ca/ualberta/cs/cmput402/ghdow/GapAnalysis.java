@@ -0,0 +1,124 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.OptionalDouble;
+
+/**
+ * The gaps between consecutive commits, beyond their mean: median, longest
+ * idle streak and distribution. Commit times are put in order with a
+ * {@link RadixSort} over the primitive column, and the gaps are sorted
+ * the same way for an exact median, so the whole analysis is linear in
+ * the number of commits. The mean alone is cheaper still; see
+ * {@link GapStats}.
+ * <p>
+ * Gaps are kept in millis and reported in seconds without rounding, the
+ * same as {@link GapStats}, so the mean, median and percentiles of one
+ * series agree with each other to the millisecond. Only the
+ * {@link #getDistribution() distribution} is bucketed, in whole seconds.
+ */
+public final class GapAnalysis {
+    private final int commits;
+    private final long firstMillis;
+    private final long lastMillis;
+    private final long[] gapMillis; // sorted
+    private final long longestStartMillis;
+    private final long longestEndMillis;
+    private final LogHistogram distribution = new LogHistogram();
+
+    private GapAnalysis(long[] times) {
+        RadixSort.sort(times);
+        commits = times.length;
+        firstMillis = commits == 0 ? Long.MAX_VALUE : times[0];
+        lastMillis = commits == 0 ? Long.MIN_VALUE : times[commits - 1];
+
+        gapMillis = new long[Math.max(commits - 1, 0)];
+        long longest = -1;
+        long start = 0;
+        long end = 0;
+        for (int i = 1; i < commits; i++) {
+            long gap = times[i] - times[i - 1];
+            if (gap > longest) {
+                longest = gap;
+                start = times[i - 1];
+                end = times[i];
+            }
+            gapMillis[i - 1] = gap;
+            distribution.add(gap / 1000L);
+        }
+        longestStartMillis = start;
+        longestEndMillis = end;
+        RadixSort.sort(gapMillis);
+    }
+
+    /** Analyses every commit time of {@code store}; the store itself is left as it is. */
+    public static GapAnalysis of(CommitStore store) {
+        return new GapAnalysis(store.timesCopy());
+    }
+
+    /** Analyses {@code epochMillis}, which is sorted in place. */
+    static GapAnalysis ofTimes(long[] epochMillis) {
+        return new GapAnalysis(epochMillis);
+    }
+
+    public int getCommitCount() {
+        return commits;
+    }
+
+    public int getGapCount() {
+        return gapMillis.length;
+    }
+
+    /** Same as {@link GapStats#getAverageGapSeconds()}. */
+    public OptionalDouble getAverageGapSeconds() {
+        if (commits < 2) return OptionalDouble.empty();
+        return OptionalDouble.of(seconds(lastMillis - firstMillis) / (commits - 1));
+    }
+
+    private static double seconds(long millis) {
+        return millis / 1000.0;
+    }
+
+    /** Exact median gap in seconds; the mean of the middle two for an even count. */
+    public OptionalDouble getMedianGapSeconds() {
+        int n = gapMillis.length;
+        if (n == 0) return OptionalDouble.empty();
+        if (n % 2 == 1) return OptionalDouble.of(seconds(gapMillis[n / 2]));
+        return OptionalDouble.of(seconds(gapMillis[n / 2 - 1] + gapMillis[n / 2]) / 2);
+    }
+
+    /** Exact gap at {@code percentile} (0-100), nearest rank, in seconds. */
+    public OptionalDouble getPercentileGapSeconds(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Not a percentile: " + percentile);
+        }
+        int n = gapMillis.length;
+        if (n == 0) return OptionalDouble.empty();
+        int rank = (int) Math.max(1, Math.ceil(percentile / 100.0 * n));
+        return OptionalDouble.of(seconds(gapMillis[rank - 1]));
+    }
+
+    /** Longest time without a commit, in seconds; 0 with fewer than two commits. */
+    public double getLongestGapSeconds() {
+        return seconds(longestEndMillis - longestStartMillis);
+    }
+
+    /** Commit that started the longest idle streak, in epoch millis. */
+    public long getLongestGapStartMillis() {
+        return longestStartMillis;
+    }
+
+    /** Commit that ended the longest idle streak, in epoch millis. */
+    public long getLongestGapEndMillis() {
+        return longestEndMillis;
+    }
+
+    /** The gaps in seconds as a mergeable histogram, e.g. for {@link LogHistogram#countsBetween}. */
+    public LogHistogram getDistribution() {
+        return new LogHistogram().merge(distribution);
+    }
+
+    @Override
+    public String toString() {
+        return "GapAnalysis{commits=" + commits + ", median=" + getMedianGapSeconds()
+                + ", longest=" + getLongestGapSeconds() + "}";
+    }
+}
@@ -0,0 +1,80 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.OptionalDouble;
+
+/**
+ * Average time between consecutive commits. The gaps of a sorted series
+ * add up to its last time minus its first, so the mean only needs the
+ * earliest and latest time and the count; no sort is needed, and shards
+ * merge by taking the min, the max and the sum.
+ */
+public class GapStats implements Aggregate<GapStats> {
+    private long count;
+    private long first = Long.MAX_VALUE;
+    private long last = Long.MIN_VALUE;
+
+    public static GapStats of(CommitStore store) {
+        GapStats stats = new GapStats();
+        for (int i = 0; i < store.size(); i++) {
+            stats.add(store.time(i));
+        }
+        return stats;
+    }
+
+    public void add(long epochMillis) {
+        count++;
+        if (epochMillis < first) first = epochMillis;
+        if (epochMillis > last) last = epochMillis;
+    }
+
+    @Override
+    public GapStats merge(GapStats other) {
+        count += other.count;
+        first = Math.min(first, other.first);
+        last = Math.max(last, other.last);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /** Earliest time seen, in epoch millis; {@code Long.MAX_VALUE} while empty. */
+    public long getFirstMillis() {
+        return first;
+    }
+
+    /** Latest time seen, in epoch millis; {@code Long.MIN_VALUE} while empty. */
+    public long getLastMillis() {
+        return last;
+    }
+
+    /** Mean gap in seconds; empty with fewer than two times. */
+    public OptionalDouble getAverageGapSeconds() {
+        if (count < 2) return OptionalDouble.empty();
+        return OptionalDouble.of((last - first) / 1000.0 / (count - 1));
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(count);
+        out.writeLong(first);
+        out.writeLong(last);
+    }
+
+    public static GapStats readFrom(DataInput in) throws IOException {
+        GapStats stats = new GapStats();
+        stats.count = in.readLong();
+        stats.first = in.readLong();
+        stats.last = in.readLong();
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "GapStats{count=" + count + ", first=" + first + ", last=" + last + "}";
+    }
+}
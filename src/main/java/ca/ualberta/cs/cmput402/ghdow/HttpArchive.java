@@ -0,0 +1,175 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GitHub API responses captured by a {@link RecordingConnector} and served
+ * back by a {@link ReplayConnector}.
+ * <p>
+ * Responses are keyed by method and URL. A URL answered several times
+ * (e.g. a retried request) keeps every answer, replayed in the order they
+ * were recorded; the last one repeats once they run out. Only the headers
+ * the client reads are kept ({@code Link}, rate limits, validators, ...);
+ * bodies are stored decoded and the whole file is gzipped.
+ */
+class HttpArchive {
+    private static final int MAGIC = 0x67686861; // "ghha"
+    private static final int VERSION = 1;
+
+    /** Headers worth keeping; everything else is dropped when recording. */
+    static final Set<String> KEPT_HEADERS = caseInsensitive(
+            "Link", "Content-Type", "ETag", "Last-Modified", "Cache-Control", "Retry-After", "Location",
+            "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset", "X-RateLimit-Used",
+            "X-RateLimit-Resource", "X-GitHub-Media-Type", "X-OAuth-Scopes");
+
+    static final class Entry {
+        final int status;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        Entry(int status, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    private final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+    private final Map<String, Deque<Entry>> replay = new HashMap<>();
+
+    /** Reads an archive written by {@link #save}. */
+    static HttpArchive load(Path file) throws IOException {
+        HttpArchive archive = new HttpArchive();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an HTTP archive: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported HTTP archive version " + version + ": " + file);
+            }
+            int keys = in.readInt();
+            for (int k = 0; k < keys; k++) {
+                String key = in.readUTF();
+                int n = in.readInt();
+                for (int i = 0; i < n; i++) {
+                    int status = in.readInt();
+                    Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                    int headerCount = in.readInt();
+                    for (int h = 0; h < headerCount; h++) {
+                        String name = in.readUTF();
+                        int values = in.readInt();
+                        List<String> list = new ArrayList<>(values);
+                        for (int v = 0; v < values; v++) {
+                            list.add(in.readUTF());
+                        }
+                        headers.put(name, list);
+                    }
+                    byte[] body = new byte[in.readInt()];
+                    in.readFully(body);
+                    archive.add(key, new Entry(status, headers, body));
+                }
+            }
+        }
+        return archive;
+    }
+
+    static String key(String method, String url) {
+        return method + " " + url;
+    }
+
+    synchronized void record(String method, String url, int status, Map<String, List<String>> headers,
+                             byte[] body) {
+        Map<String, List<String>> kept = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+                if (e.getKey() != null && KEPT_HEADERS.contains(e.getKey()) && e.getValue() != null) {
+                    kept.put(e.getKey(), List.copyOf(e.getValue()));
+                }
+            }
+        }
+        add(key(method, url), new Entry(status, kept, body));
+    }
+
+    /** The next recorded answer to {@code method url}, or null if it was never recorded. */
+    synchronized Entry next(String method, String url) {
+        Deque<Entry> queue = replay.get(key(method, url));
+        if (queue == null) {
+            return null;
+        }
+        return queue.size() > 1 ? queue.poll() : queue.peek();
+    }
+
+    /** Number of recorded responses. */
+    synchronized int size() {
+        int n = 0;
+        for (List<Entry> list : entries.values()) {
+            n += list.size();
+        }
+        return n;
+    }
+
+    /** Writes the archive to {@code file}, replacing it atomically. */
+    synchronized void save(Path file) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, List<Entry>> e : entries.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (Entry entry : e.getValue()) {
+                    out.writeInt(entry.status);
+                    out.writeInt(entry.headers.size());
+                    for (Map.Entry<String, List<String>> h : entry.headers.entrySet()) {
+                        out.writeUTF(h.getKey());
+                        out.writeInt(h.getValue().size());
+                        for (String value : h.getValue()) {
+                            out.writeUTF(value);
+                        }
+                    }
+                    out.writeInt(entry.body.length);
+                    out.write(entry.body);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void add(String key, Entry entry) {
+        entries.computeIfAbsent(key, k -> new ArrayList<>()).add(entry);
+        replay.computeIfAbsent(key, k -> new ArrayDeque<>()).add(entry);
+    }
+
+    private static Set<String> caseInsensitive(String... names) {
+        Set<String> set = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        set.addAll(List.of(names));
+        return set;
+    }
+}
@@ -0,0 +1,169 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link GitHubConnector} on the JDK's {@link HttpClient}.
+ * <p>
+ * The client speaks HTTP/2 where the server does (api.github.com does), so
+ * concurrent requests are multiplexed over one connection per host instead
+ * of each opening its own; over HTTP/1.1 connections are kept alive and
+ * pooled. Responses are requested gzipped; the body is unzipped by
+ * {@link GitHubConnectorResponse#bodyStream()} as it is read.
+ */
+public class HttpClientConnector implements GitHubConnector {
+    // set by HttpClient itself; it refuses requests that carry them
+    private static final Set<String> RESTRICTED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        RESTRICTED_HEADERS.addAll(List.of("Connection", "Content-Length", "Expect", "Host", "Upgrade"));
+    }
+
+    private static final long DRAIN_LIMIT = 64 * 1024;
+
+    private final HttpClient client;
+    private final Duration requestTimeout;
+
+    /** 10 s to connect, 60 s for a response, the client's default executor. */
+    public HttpClientConnector() {
+        this(Duration.ofSeconds(10), Duration.ofSeconds(60), null);
+    }
+
+    /**
+     * @param executor runs the client's internal tasks; null for the
+     *                 client's default
+     */
+    public HttpClientConnector(Duration connectTimeout, Duration requestTimeout, Executor executor) {
+        this(newClient(connectTimeout, executor), requestTimeout);
+    }
+
+    public HttpClientConnector(HttpClient client, Duration requestTimeout) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+    }
+
+    static HttpClient newClient(Duration connectTimeout, Executor executor) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(connectTimeout);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
+    }
+
+    HttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Bad URL: " + request.url(), e);
+        }
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        for (Map.Entry<String, List<String>> e : request.allHeaders().entrySet()) {
+            if (e.getKey() == null || RESTRICTED_HEADERS.contains(e.getKey()) || e.getValue() == null) {
+                continue;
+            }
+            for (String value : e.getValue()) {
+                if (value != null) {
+                    builder.header(e.getKey(), value);
+                }
+            }
+        }
+        builder.setHeader("Accept-Encoding", "gzip");
+
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (request.hasBody()) {
+            if (request.contentType() != null) {
+                builder.setHeader("Content-Type", request.contentType());
+            }
+            body = HttpRequest.BodyPublishers.ofInputStream(request::body);
+        }
+        builder.method(request.method(), body);
+
+        try {
+            HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+            return new Response(request, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("Interrupted: " + request.url()).initCause(e);
+        }
+    }
+
+    private static final class Response extends GitHubConnectorResponse {
+        private final DrainingStream body;
+        private InputStream decoded;
+
+        Response(GitHubConnectorRequest request, HttpResponse<InputStream> response) {
+            super(request, response.statusCode(), response.headers().map());
+            this.body = new DrainingStream(response.body());
+        }
+
+        /** The body, gunzipped as it is read if it came gzipped; the same stream on every call. */
+        @Override
+        public InputStream bodyStream() throws IOException {
+            if (decoded == null) {
+                decoded = wrapStream(body);
+            }
+            return decoded;
+        }
+
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    /**
+     * The gzip reader stops after its trailer without seeing EOF, and a body
+     * closed before EOF takes its connection down with it. Closing drains
+     * what is left (normally nothing) so the connection goes back to the
+     * pool; a body abandoned far from its end is just closed.
+     */
+    private static final class DrainingStream extends FilterInputStream {
+        private boolean closed;
+
+        DrainingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try (InputStream body = in) {
+                byte[] scrap = new byte[8192];
+                long left = DRAIN_LIMIT;
+                int n;
+                while (left > 0 && (n = body.read(scrap, 0, (int) Math.min(scrap.length, left))) >= 0) {
+                    left -= n;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHMyself;
+import org.kohsuke.github.GitHub;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * The authenticated user, fetched from {@code /user} at most once per
+ * session.
+ * <p>
+ * Concurrent callers share a single in-flight request instead of each
+ * issuing their own. A failed lookup is not cached, so the next call
+ * (e.g. a retry) asks GitHub again.
+ */
+class IdentityCache {
+    private final GitHub gitHub;
+    private volatile GHMyself myself;
+    private volatile String login;
+    private CompletableFuture<GHMyself> inFlight;
+
+    IdentityCache(GitHub gitHub) {
+        this.gitHub = gitHub;
+    }
+
+    GHMyself getMyself() throws IOException {
+        GHMyself me = myself;
+        if (me != null) {
+            return me;
+        }
+
+        CompletableFuture<GHMyself> pending;
+        boolean leader = false;
+        synchronized (this) {
+            if (myself != null) {
+                return myself;
+            }
+            if (inFlight == null) {
+                inFlight = new CompletableFuture<>();
+                leader = true;
+            }
+            pending = inFlight;
+        }
+
+        if (leader) {
+            try {
+                me = gitHub.getMyself();
+                synchronized (this) {
+                    myself = me;
+                    inFlight = null;
+                }
+                pending.complete(me);
+                return me;
+            } catch (IOException | RuntimeException | Error e) {
+                synchronized (this) {
+                    inFlight = null;
+                }
+                pending.completeExceptionally(e);
+                throw e;
+            }
+        }
+        return await(pending);
+    }
+
+    String getLogin() throws IOException {
+        String l = login;
+        if (l == null) {
+            l = getMyself().getLogin();
+            login = l;
+        }
+        return l;
+    }
+
+    boolean isResolved() {
+        return myself != null;
+    }
+
+    private static GHMyself await(CompletableFuture<GHMyself> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("Interrupted waiting for /user").initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Times every request passed on to another connector and counts it in an
+ * {@link ApiMetrics}. Body bytes are counted as the caller reads them, so
+ * the body is still streamed.
+ */
+class InstrumentedConnector implements GitHubConnector {
+    private final GitHubConnector delegate;
+    private final ApiMetrics metrics;
+
+    InstrumentedConnector(GitHubConnector delegate, ApiMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    ApiMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        String url = request.url().toString();
+        String endpoint = ApiMetrics.endpointOf(request.url().getPath());
+        long start = System.nanoTime();
+        GitHubConnectorResponse response;
+        try {
+            response = delegate.send(request);
+        } catch (IOException | RuntimeException e) {
+            metrics.recordFailure(url, endpoint, System.nanoTime() - start);
+            throw e;
+        }
+        int status = response.statusCode();
+        boolean list = !endpoint.equals("user") && !endpoint.equals("other")
+                && !request.url().getPath().matches(".*/repos/[^/]+/[^/]+/?");
+        boolean rateLimited = status == 429
+                || status == 403 && ("0".equals(response.header("X-RateLimit-Remaining"))
+                || response.header("Retry-After") != null);
+        metrics.recordResponse(url, endpoint, status, System.nanoTime() - start, list, rateLimited);
+        if (response instanceof BufferedResponse buffered && buffered.isFromCache()) {
+            metrics.recordCacheHit(endpoint);
+        }
+        return new Counted(request, response, endpoint);
+    }
+
+    private final class Counted extends GitHubConnectorResponse {
+        private final GitHubConnectorResponse response;
+        private final String endpoint;
+
+        Counted(GitHubConnectorRequest request, GitHubConnectorResponse response, String endpoint) {
+            super(request, response.statusCode(), decodedHeaders(response));
+            this.response = response;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public InputStream bodyStream() throws IOException {
+            InputStream in = response.bodyStream();
+            return in == null ? null : new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) metrics.recordBytes(endpoint, 1);
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buf, int off, int len) throws IOException {
+                    int n = super.read(buf, off, len);
+                    if (n > 0) metrics.recordBytes(endpoint, n);
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            response.close();
+        }
+    }
+
+    // the delegate decodes the body, so it mustn't be decoded a second time
+    private static Map<String, List<String>> decodedHeaders(GitHubConnectorResponse response) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, List<String>> e : response.allHeaders().entrySet()) {
+            if (e.getKey() != null && !e.getKey().equalsIgnoreCase("Content-Encoding")) {
+                headers.put(e.getKey(), e.getValue());
+            }
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,28 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.Set;
+
+/** Creation dates of closed issues, in the order the scan visits them. */
+class IssueCreateDatesAggregator implements RepoAggregator {
+    private final ArrayList<Date> dates = new ArrayList<>();
+
+    @Override
+    public Set<Resource> resources() {
+        return EnumSet.of(Resource.CLOSED_ISSUES);
+    }
+
+    @Override
+    public void onIssue(GHRepository repo, IssueRow issue) throws IOException {
+        dates.add(issue.createdAt);
+    }
+
+    ArrayList<Date> getDates() {
+        return dates;
+    }
+}
@@ -0,0 +1,157 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.kohsuke.github.GHDirection;
+import org.kohsuke.github.GHIssueQueryBuilder;
+import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHPullRequestQueryBuilder;
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One repository's issues (pull requests left out) or pull requests, with
+ * the filters sent to the API instead of applied to the full list, read as
+ * {@link IssueRow}s a page at a time.
+ * <p>
+ * With a {@link RestClient} the state, sort, direction and, for issues,
+ * {@code since} go into the request, and every page is parsed straight
+ * into rows without building a {@code GHIssue}. The pages are fetched by
+ * number through {@link Paging}, so they are read ahead like any other
+ * list. The issues endpoint has no way to leave pull requests out, so they
+ * are dropped while the page is parsed. Without one, the query goes through github-api's query builders,
+ * which send the same filters.
+ * <p>
+ * Whatever {@code since} the API can't take is applied to the rows. When
+ * sorted by most recently updated first, the listing stops at the first
+ * row updated before {@code since}.
+ */
+final class IssueQuery {
+    enum Sort { CREATED, UPDATED }
+
+    private final boolean pullRequests;
+    private final GHIssueState state;
+    private Date since;
+    private Sort sort = Sort.CREATED;
+    private boolean ascending;
+
+    private IssueQuery(boolean pullRequests, GHIssueState state) {
+        this.pullRequests = pullRequests;
+        this.state = state;
+    }
+
+    static IssueQuery issues(GHIssueState state) {
+        return new IssueQuery(false, state);
+    }
+
+    static IssueQuery pullRequests(GHIssueState state) {
+        return new IssueQuery(true, state);
+    }
+
+    /** Only items updated at or after {@code since}; null for all. */
+    IssueQuery since(Date since) {
+        this.since = since;
+        return this;
+    }
+
+    /** Newest first unless {@code ascending}; by creation date unless sorted otherwise. */
+    IssueQuery sort(Sort sort, boolean ascending) {
+        this.sort = sort;
+        this.ascending = ascending;
+        return this;
+    }
+
+    /** Runs {@code action} on every row in order until it returns false; {@code rest} may be null. */
+    void forEachWhile(GHRepository repo, RestClient rest, Paging paging, Paging.ItemCondition<IssueRow> action)
+            throws IOException {
+        if (rest != null) {
+            forEachWhile(repo.getFullName(), rest, paging, action);
+        } else if (pullRequests) {
+            GHPullRequestQueryBuilder query = repo.queryPullRequests()
+                    .state(state)
+                    .sort(sort == Sort.UPDATED ? GHPullRequestQueryBuilder.Sort.UPDATED
+                            : GHPullRequestQueryBuilder.Sort.CREATED)
+                    .direction(ascending ? GHDirection.ASC : GHDirection.DESC);
+            Paging.ItemCondition<IssueRow> bounded = bounded(action);
+            paging.forEachWhile(query.list(), pr -> bounded.test(IssueRow.of(pr)));
+        } else {
+            GHIssueQueryBuilder query = repo.queryIssues()
+                    .state(state)
+                    .sort(sort == Sort.UPDATED ? GHIssueQueryBuilder.Sort.UPDATED : GHIssueQueryBuilder.Sort.CREATED)
+                    .direction(ascending ? GHDirection.ASC : GHDirection.DESC);
+            if (since != null) {
+                query = query.since(since);
+            }
+            Paging.ItemCondition<IssueRow> bounded = bounded(action);
+            paging.forEachWhile(query.list(),
+                    issue -> issue.isPullRequest() || bounded.test(IssueRow.of(issue)));
+        }
+    }
+
+    /**
+     * The same through the REST API, for the repository named {@code fullName};
+     * pages are fetched by number and read ahead by {@code paging}.
+     */
+    void forEachWhile(String fullName, RestClient rest, Paging paging, Paging.ItemCondition<IssueRow> action)
+            throws IOException {
+        String path = RestClient.repoPath(fullName) + (pullRequests ? "/pulls" : "/issues");
+        Paging.ItemCondition<IssueRow> bounded = bounded(action);
+        paging.forEachWhile(page -> {
+            JsonNode items = rest.get(path, params(page)).json();
+            if (!items.isArray()) {
+                throw new IOException("Unexpected response listing " + path);
+            }
+            // the whole page, pull requests too, so its length still tells whether it is the last
+            List<JsonNode> list = new ArrayList<>(items.size());
+            items.forEach(list::add);
+            return list;
+        }, item -> {
+            if (!item.isObject() || (!pullRequests && item.hasNonNull("pull_request"))) return true;
+            return bounded.test(new IssueRow(date(item, "created_at"), date(item, "closed_at"),
+                    date(item, "updated_at")));
+        });
+    }
+
+    /** {@code action} on the rows at or after {@code since}, stopping at the first older one if sorted that way. */
+    private Paging.ItemCondition<IssueRow> bounded(Paging.ItemCondition<IssueRow> action) {
+        return row -> {
+            if (since == null || row.updatedAt == null || !row.updatedAt.before(since)) {
+                return action.test(row);
+            }
+            return sort != Sort.UPDATED || ascending; // the rest is older still
+        };
+    }
+
+    /** Query parameters of page {@code page} (1-based). */
+    Map<String, String> params(int page) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("state", state.name().toLowerCase(Locale.ROOT));
+        params.put("sort", sort.name().toLowerCase(Locale.ROOT));
+        params.put("direction", ascending ? "asc" : "desc");
+        if (since != null && !pullRequests) {
+            params.put("since", Instant.ofEpochMilli(since.getTime()).toString());
+        }
+        params.put("per_page", String.valueOf(Paging.PAGE_SIZE));
+        params.put("page", String.valueOf(page));
+        return params;
+    }
+
+    private static Date date(JsonNode item, String field) throws IOException {
+        String value = item.path(field).textValue();
+        if (value == null) return null;
+        try {
+            return Date.from(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            throw new IOException("Bad " + field + " '" + value + "'", e);
+        }
+    }
+}
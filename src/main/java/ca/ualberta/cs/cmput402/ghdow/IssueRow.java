@@ -0,0 +1,34 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHIssue;
+import org.kohsuke.github.GHPullRequest;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * The dates of one issue or pull request, which is all the metrics read:
+ * a few dozen bytes instead of a whole {@code GHIssue} with its body,
+ * labels and user. Any date may be null.
+ */
+final class IssueRow {
+    final Date createdAt;
+    final Date closedAt;
+    final Date updatedAt;
+
+    IssueRow(Date createdAt, Date closedAt, Date updatedAt) {
+        this.createdAt = createdAt;
+        this.closedAt = closedAt;
+        this.updatedAt = updatedAt;
+    }
+
+    static IssueRow of(GHIssue issue) throws IOException {
+        GHIssueWrapper w = new GHIssueWrapper(issue);
+        return new IssueRow(w.getCreatedAt(), w.getClosedAt(), w.getUpdatedAt());
+    }
+
+    static IssueRow of(GHPullRequest pr) throws IOException {
+        GHPullRequestWrapper w = new GHPullRequestWrapper(pr);
+        return new IssueRow(w.getCreatedAt(), w.getClosedAt(), w.getUpdatedAt());
+    }
+}
@@ -0,0 +1,64 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers "how many" questions about GitHub list endpoints without paging
+ * through them.
+ * <p>
+ * It asks for one item per page ({@code per_page=1}); the {@code Link}
+ * header's {@code rel="last"} page number is then the item count. When there
+ * is no {@code Link} header the list fits on that one page, so the count is
+ * the number of elements in the body (0 or 1).
+ */
+class ListCounter {
+    private static final Pattern LAST_PAGE = Pattern.compile("<([^>]*)>\\s*;\\s*rel=\"last\"");
+    private static final Pattern PAGE_PARAM = Pattern.compile("[?&]page=(\\d+)");
+
+    private final RestClient rest;
+
+    ListCounter(RestClient rest) {
+        this.rest = rest;
+    }
+
+    int countBranches(String repoFullName) throws IOException {
+        return count(RestClient.repoPath(repoFullName) + "/branches", Map.of());
+    }
+
+    /** Pull requests in {@code state} ("open", "closed" or "all"). */
+    int countPullRequests(String repoFullName, String state) throws IOException {
+        return count(RestClient.repoPath(repoFullName) + "/pulls", Map.of("state", state));
+    }
+
+    /**
+     * Issues in {@code state}. Like the endpoint itself, this counts pull
+     * requests as issues.
+     */
+    int countIssuesAndPullRequests(String repoFullName, String state) throws IOException {
+        return count(RestClient.repoPath(repoFullName) + "/issues", Map.of("state", state));
+    }
+
+    int count(String path, Map<String, String> query) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>(query);
+        params.put("per_page", "1");
+        RestClient.Response response = rest.get(path, params);
+        int last = lastPage(response.header("Link"));
+        if (last >= 0) {
+            return last;
+        }
+        return response.json().size();
+    }
+
+    /** Page number of the {@code rel="last"} link, or -1 if there isn't one. */
+    static int lastPage(String link) {
+        if (link == null) return -1;
+        Matcher m = LAST_PAGE.matcher(link);
+        if (!m.find()) return -1;
+        Matcher page = PAGE_PARAM.matcher(m.group(1));
+        return page.find() ? Integer.parseInt(page.group(1)) : -1;
+    }
+}
@@ -0,0 +1,190 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.OptionalDouble;
+
+/**
+ * Bounded-memory distribution of non-negative values (e.g. seconds), in
+ * the style of an HDR histogram: values below 64 get their own bucket,
+ * and every power of two above that is split into 32 buckets. Any
+ * quantile is therefore within about 1.6% of the true value. Min, max,
+ * count and sum are exact.
+ * <p>
+ * The bucket array only grows as far as the largest value seen; a century
+ * in seconds fits in under 1,000 buckets. Histograms merge by adding their
+ * buckets, so per-repo and per-thread shards combine exactly.
+ */
+public class LogHistogram implements Aggregate<LogHistogram> {
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;   // buckets per power of two
+    private static final int LINEAR = 2 * SUB;      // values below this are exact
+
+    private long[] counts = new long[0];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS; // >= 1
+        int top = (int) (value >>> shift);                           // in [SUB, 2 * SUB)
+        return LINEAR + (shift - 1) * SUB + (top - SUB);
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB + 1;
+        long top = SUB + (index - LINEAR) % SUB;
+        return top << shift;
+    }
+
+    static long upperBound(int index) {
+        return index + 1 < LINEAR ? index : lowerBound(index + 1) - 1;
+    }
+
+    /** Counts {@code value}; negative values are rejected. */
+    public void add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int i = indexOf(value);
+        if (i >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(i + 1, counts.length + (counts.length >> 1)));
+        }
+        counts[i]++;
+        count++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    @Override
+    public LogHistogram merge(LogHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    /** Smallest value seen; {@code Long.MAX_VALUE} while empty. */
+    public long getMin() {
+        return min;
+    }
+
+    /** Largest value seen; {@code Long.MIN_VALUE} while empty. */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * The value at quantile {@code q} (0.5 for the median), i.e. the
+     * {@code ceil(q * count)}-th smallest value to within a bucket; empty
+     * if nothing was counted.
+     */
+    public OptionalDouble getQuantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("Not a quantile: " + q);
+        }
+        if (count == 0) return OptionalDouble.empty();
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        if (rank == 1) return OptionalDouble.of(min);
+        if (rank == count) return OptionalDouble.of(max);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // middle of the bucket, but never outside what was actually seen
+                double mid = (lowerBound(i) + upperBound(i)) / 2.0;
+                return OptionalDouble.of(Math.min(Math.max(mid, min), max));
+            }
+        }
+        return OptionalDouble.of(max);
+    }
+
+    /**
+     * Counts per range: {@code result[0]} is values below {@code bounds[0]},
+     * {@code result[i]} values in {@code [bounds[i-1], bounds[i])} and the
+     * last one values at or above the last bound. {@code bounds} must be
+     * ascending. A bucket that straddles a bound is counted where its
+     * middle falls.
+     */
+    public long[] countsBetween(long... bounds) {
+        long[] result = new long[bounds.length + 1];
+        int range = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            double mid = (lowerBound(i) + upperBound(i)) / 2.0;
+            while (range < bounds.length && mid >= bounds[range]) {
+                range++;
+            }
+            result[range] += counts[i];
+        }
+        return result;
+    }
+
+    /** Non-empty buckets only, as (index, count) pairs. */
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        int used = 0;
+        for (long c : counts) {
+            if (c != 0) used++;
+        }
+        out.writeLong(count);
+        out.writeLong(sum);
+        out.writeLong(min);
+        out.writeLong(max);
+        out.writeInt(used);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(counts[i]);
+            }
+        }
+    }
+
+    public static LogHistogram readFrom(DataInput in) throws IOException {
+        LogHistogram h = new LogHistogram();
+        h.count = in.readLong();
+        h.sum = in.readLong();
+        h.min = in.readLong();
+        h.max = in.readLong();
+        int used = in.readInt();
+        for (int n = 0; n < used; n++) {
+            int i = in.readUnsignedShort();
+            if (i >= h.counts.length) {
+                h.counts = Arrays.copyOf(h.counts, i + 1);
+            }
+            h.counts[i] = in.readLong();
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "LogHistogram{count=" + count + ", min=" + (count == 0 ? "-" : min)
+                + ", max=" + (count == 0 ? "-" : max) + "}";
+    }
+}
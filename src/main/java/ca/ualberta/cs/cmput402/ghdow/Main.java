@@ -1,11 +1,18 @@
 package ca.ualberta.cs.cmput402.ghdow;
 
+import org.kohsuke.github.connector.GitHubConnector;
+
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import org.kohsuke.github.GitHub;
-import org.kohsuke.github.GitHubBuilder;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     static String getOAuthToken() throws IOException {
@@ -17,15 +24,206 @@ public class Main {
         return token.strip();
     }
 
+    static Path getCommitCacheFile() {
+        String override = System.getProperty("ghdow.cache");
+        if (override != null) {
+            return Paths.get(override);
+        }
+        return Paths.get(System.getProperty("user.home"), ".ghdow", "commits.bin");
+    }
+
+    /**
+     * Per-repo pushed_at / updated_at and partial numbers: -Dghdow.repoState
+     * (default ~/.ghdow/repos.bin); partials are refetched after
+     * -Dghdow.repoStateMaxAgeHours (24) even if the repo looks unchanged.
+     */
+    static RepoStateCache openRepoState() throws IOException {
+        String override = System.getProperty("ghdow.repoState");
+        Path file = override != null ? Paths.get(override)
+                : Paths.get(System.getProperty("user.home"), ".ghdow", "repos.bin");
+        return RepoStateCache.open(file, Duration.ofHours(Long.getLong("ghdow.repoStateMaxAgeHours", 24)));
+    }
+
+    /**
+     * Progress of the crawl, so an interrupted run resumes: -Dghdow.journal
+     * (default ~/.ghdow/crawl.journal), deleted once a run completes and
+     * ignored when older than -Dghdow.journalMaxAgeHours (24).
+     */
+    static CrawlJournal openJournal() throws IOException {
+        String override = System.getProperty("ghdow.journal");
+        Path file = override != null ? Paths.get(override)
+                : Paths.get(System.getProperty("user.home"), ".ghdow", "crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file,
+                Duration.ofHours(Long.getLong("ghdow.journalMaxAgeHours", 24)));
+        if (journal.isResumed()) {
+            System.out.println("Resuming the interrupted crawl from " + file);
+        }
+        return journal;
+    }
+
+    /**
+     * ETag cache of API responses: -Dghdow.httpCache (default
+     * ~/.ghdow/responses.bin), at most -Dghdow.httpCacheMB megabytes (64).
+     */
+    static ConditionalCache openResponseCache() throws IOException {
+        String override = System.getProperty("ghdow.httpCache");
+        Path file = override != null ? Paths.get(override)
+                : Paths.get(System.getProperty("user.home"), ".ghdow", "responses.bin");
+        return ConditionalCache.open(file, Long.getLong("ghdow.httpCacheMB", 64) * 1024 * 1024);
+    }
 
+    /**
+     * The HTTP/2 connector, with -Dghdow.connectTimeout / -Dghdow.requestTimeout
+     * in seconds; -Dghdow.http=urlconnection switches back to the library's
+     * HttpURLConnection connector.
+     */
+    static GitHubConnector newConnector() {
+        if ("urlconnection".equals(System.getProperty("ghdow.http"))) {
+            return GitHubConnector.DEFAULT;
+        }
+        return new HttpClientConnector(
+                Duration.ofSeconds(Long.getLong("ghdow.connectTimeout", 10)),
+                Duration.ofSeconds(Long.getLong("ghdow.requestTimeout", 60)),
+                null);
+    }
+
+    /**
+     * Writes the API metrics to {@code file}: JSON if its name ends in
+     * {@code .json}, Prometheus text otherwise.
+     */
+    static void writeMetrics(MyGithub my, Path file) throws IOException {
+        String text = file.toString().endsWith(".json")
+                ? my.getApiMetrics().toJson(my.getRetryStats())
+                : my.getApiMetrics().toPrometheus(my.getRetryStats());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, text);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * -Dghdow.approximate=true estimates the commit activity from repository
+     * statistics instead of listing commits (polling -Dghdow.statsRounds
+     * times, 6 by default, while GitHub computes them); =compare also lists
+     * the commits and prints how the two differ.
+     */
+    static void printApproximate(MyGithub my, boolean compare) throws IOException {
+        ApproximateActivity approx = my.getApproximateActivity(Integer.getInteger("ghdow.statsRounds", 6), 1000);
+        System.out.println(approx);
+        if (compare) {
+            System.out.println(approx.compareWith(my.getCommitActivity(my.getZone())));
+        }
+    }
+
+    /**
+     * -Dghdow.metrics=FILE keeps FILE updated with the API metrics (every
+     * -Dghdow.metricsInterval seconds, 30 by default, and at the end);
+     * -Dghdow.record=FILE saves every API response of this run to FILE;
+     * -Dghdow.replay=FILE answers from FILE instead of GitHub, offline.
+     * Both skip the commit cache and repository state so the archive
+     * covers full histories. -Dghdow.days=N limits every metric to the last
+     * N days.
+     */
     public static void main(String[] args) throws IOException {
-        String token = getOAuthToken();
+        String record = System.getProperty("ghdow.record");
+        String replay = System.getProperty("ghdow.replay");
+        String endpoint = System.getProperty("ghdow.endpoint", MyGithub.GITHUB_API);
+
+        HttpArchive archive = null;
+        ReplayConnector replayer = null;
+        ConditionalCache responses = null;
+        RepoStateCache repoState = null;
+        CrawlJournal journal = null;
+        MyGithub my;
+        if (replay != null) {
+            replayer = new ReplayConnector(HttpArchive.load(Paths.get(replay)));
+            my = new MyGithub("replay", endpoint, replayer);
+        } else if (record != null) {
+            archive = new HttpArchive();
+            responses = openResponseCache();
+            // record what the client sees, i.e. full bodies rather than 304s
+            my = new MyGithub(getOAuthToken(), endpoint,
+                    new RecordingConnector(new CachingConnector(newConnector(), responses), archive));
+        } else {
+            responses = openResponseCache();
+            my = new MyGithub(getOAuthToken(), endpoint, new CachingConnector(newConnector(), responses));
+            my.setCommitCache(CommitCache.open(getCommitCacheFile()));
+            repoState = openRepoState();
+            my.setRepoStateCache(repoState);
+            journal = openJournal();
+            my.setCrawlJournal(journal);
+        }
+        my.setCrawlParallelism(Integer.getInteger("ghdow.parallelism", 8));
+        my.setPrefetchPages(Integer.getInteger("ghdow.prefetch", 2));
+        // -Dghdow.commitSource=search|both finds commits with the commit search API
+        String source = System.getProperty("ghdow.commitSource");
+        if (source != null) {
+            my.setCommitSource(MyGithub.CommitSource.valueOf(source.toUpperCase(Locale.ROOT)));
+        }
+        String zone = System.getProperty("ghdow.zone");
+        if (zone != null) {
+            my.setZone(ZoneId.of(zone));
+        }
 
-        GitHub gh = new GitHubBuilder().withOAuthToken(token).build();
-        MyGithub my = new MyGithub(gh);
+        String metrics = System.getProperty("ghdow.metrics");
+        ScheduledExecutorService metricsWriter = null;
+        if (metrics != null) {
+            MyGithub target = my;
+            metricsWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ghdow-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            long interval = Long.getLong("ghdow.metricsInterval", 30);
+            metricsWriter.scheduleAtFixedRate(() -> {
+                try {
+                    writeMetrics(target, Paths.get(metrics));
+                } catch (IOException e) {
+                    System.err.println("WARNING: could not write metrics: " + e.getMessage());
+                }
+            }, interval, interval, TimeUnit.SECONDS);
+        }
 
-        System.out.println("Logged in as " + my.getGithubName());
-        System.out.println("Most often commits on: " + my.getMostPopularDay());
+        try {
+            System.out.println("Logged in as " + my.getGithubName());
+            String approximate = System.getProperty("ghdow.approximate");
+            if (approximate == null) {
+                Long days = Long.getLong("ghdow.days");
+                TimeWindow window = days == null ? TimeWindow.ALL : TimeWindow.last(Duration.ofDays(days));
+                if (!window.isAll()) {
+                    System.out.println("Metrics for " + window);
+                }
+                System.out.println(my.getReport(window));
+            } else {
+                printApproximate(my, "compare".equals(approximate));
+            }
+            if (journal != null) {
+                journal.finish();
+            }
+        } finally {
+            if (metricsWriter != null) {
+                metricsWriter.shutdownNow();
+                writeMetrics(my, Paths.get(metrics));
+            }
+            if (repoState != null) {
+                repoState.save();
+                System.out.println("Repository state: " + repoState);
+            }
+            if (journal != null && !journal.isFinished()) {
+                journal.close();
+                System.out.println("Crawl journal kept for the next run: " + journal);
+            }
+            if (responses != null) {
+                responses.save();
+                System.out.println("Response cache: " + responses);
+            }
+            if (archive != null) {
+                archive.save(Paths.get(record));
+                System.out.println("Recorded " + archive.size() + " responses to " + record);
+            }
+            if (replayer != null && replayer.getMisses() > 0) {
+                System.err.println("WARNING: " + replayer.getMisses() + " requests were not in " + replay);
+            }
+        }
     }
 
-}
\ No newline at end of file
+}
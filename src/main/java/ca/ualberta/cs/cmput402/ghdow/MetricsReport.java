@@ -0,0 +1,93 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.OptionalDouble;
+
+/** All of {@link MyGithub}'s metrics, computed together by {@link MyGithub#getReport()}. */
+public class MetricsReport {
+    private static final long HOUR = 3600;
+    private static final long DAY = 24 * HOUR;
+    /** Ranges of the open-time histogram line: 1 hour, 1 day, 1 week, 30 days, 1 year. */
+    static final long[] OPEN_TIME_BOUNDS = {HOUR, DAY, 7 * DAY, 30 * DAY, 365 * DAY};
+    private static final String[] OPEN_TIME_LABELS = {"<1h", "<1d", "<1w", "<30d", "<1y", ">=1y"};
+
+    private final String mostPopularDay;
+    private final OptionalDouble averageTimeBetweenCommitsSeconds;
+    private final OpenTimeStats closedIssueOpenTimes;
+    private final OpenTimeStats closedPullRequestOpenTimes;
+    private final OptionalDouble averageBranchesPerRepo;
+
+    MetricsReport(String mostPopularDay,
+                  OptionalDouble averageTimeBetweenCommitsSeconds,
+                  OpenTimeStats closedIssueOpenTimes,
+                  OpenTimeStats closedPullRequestOpenTimes,
+                  OptionalDouble averageBranchesPerRepo) {
+        this.mostPopularDay = mostPopularDay;
+        this.averageTimeBetweenCommitsSeconds = averageTimeBetweenCommitsSeconds;
+        this.closedIssueOpenTimes = closedIssueOpenTimes;
+        this.closedPullRequestOpenTimes = closedPullRequestOpenTimes;
+        this.averageBranchesPerRepo = averageBranchesPerRepo;
+    }
+
+    /** Null if there are no commits. */
+    public String getMostPopularDay() {
+        return mostPopularDay;
+    }
+
+    public OptionalDouble getAverageTimeBetweenCommitsSeconds() {
+        return averageTimeBetweenCommitsSeconds;
+    }
+
+    public OptionalDouble getAverageClosedIssueOpenTimeSeconds() {
+        return closedIssueOpenTimes.getAverageSeconds();
+    }
+
+    public OptionalDouble getAverageClosedPullRequestOpenTimeSeconds() {
+        return closedPullRequestOpenTimes.getAverageSeconds();
+    }
+
+    /** Distribution of closed issue open times, for percentiles. */
+    public OpenTimeStats getClosedIssueOpenTimes() {
+        return closedIssueOpenTimes;
+    }
+
+    /** Distribution of closed PR open times, for percentiles. */
+    public OpenTimeStats getClosedPullRequestOpenTimes() {
+        return closedPullRequestOpenTimes;
+    }
+
+    public OptionalDouble getAverageBranchesPerRepo() {
+        return averageBranchesPerRepo;
+    }
+
+    private static String format(OptionalDouble value) {
+        return value.isPresent() ? String.format("%.1f", value.getAsDouble()) : "n/a";
+    }
+
+    private static String percentiles(OpenTimeStats stats) {
+        return format(stats.getPercentileSeconds(50)) + " / " + format(stats.getPercentileSeconds(90))
+                + " / " + format(stats.getPercentileSeconds(99));
+    }
+
+    private static String histogram(OpenTimeStats stats) {
+        long[] counts = stats.getDistribution().countsBetween(OPEN_TIME_BOUNDS);
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            if (i > 0) out.append(' ');
+            out.append(OPEN_TIME_LABELS[i]).append('=').append(counts[i]);
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "Most often commits on: " + (mostPopularDay == null ? "n/a" : mostPopularDay) + "\n"
+                + "Average time between commits (s): " + format(averageTimeBetweenCommitsSeconds) + "\n"
+                + "Average closed issue open time (s): " + format(getAverageClosedIssueOpenTimeSeconds()) + "\n"
+                + "  p50 / p90 / p99 (s): " + percentiles(closedIssueOpenTimes) + "\n"
+                + "  " + histogram(closedIssueOpenTimes) + "\n"
+                + "Average closed PR open time (s): " + format(getAverageClosedPullRequestOpenTimeSeconds()) + "\n"
+                + "  p50 / p90 / p99 (s): " + percentiles(closedPullRequestOpenTimes) + "\n"
+                + "  " + histogram(closedPullRequestOpenTimes) + "\n"
+                + "Average branches per repo: " + format(averageBranchesPerRepo);
+    }
+}
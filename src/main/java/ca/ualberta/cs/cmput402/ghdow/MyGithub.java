@@ -3,56 +3,126 @@ package ca.ualberta.cs.cmput402.ghdow;
 import java.io.IOException;
 
 import org.kohsuke.github.*;
+import org.kohsuke.github.connector.GitHubConnector;
 
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MyGithub {
     protected GitHub gitHub;
     protected GHPerson myself;
     protected Map<String, GHRepository> myRepos;
     private List<GHCommit> myCommits;
+    private RepoCrawler crawler = new RepoCrawler(1);
+    private Paging paging = new Paging(2);
+    private CommitCache commitCache;
+    private CommitStore commitStore;
+    private RepoStateCache repoState;
+    private CrawlJournal journal;
+    private CommitSource commitSource = CommitSource.REPOSITORIES;
+    private ZoneId zone = ZoneId.systemDefault();
+    private Retrier retrier = new Retrier();
+    private final IdentityCache identity;
+    private final ListCounter counter;
+    private final RestClient rest;
+    private final ApiMetrics apiMetrics;
+    static final String GITHUB_API = "https://api.github.com";
+
     public MyGithub(String token) throws IOException {
-        gitHub = new GitHubBuilder().withOAuthToken(token).build();
+        this(token, GITHUB_API);
+    }
+
+    /** Talks to the API at {@code apiUrl} instead of api.github.com, e.g. an Enterprise server. */
+    public MyGithub(String token, String apiUrl) throws IOException {
+        this(token, apiUrl, new HttpClientConnector());
+    }
+
+    /**
+     * Revalidates GET requests against {@code cache} instead of downloading
+     * unchanged responses again; the cache is shared by every call path.
+     */
+    public MyGithub(String token, String apiUrl, ConditionalCache cache) throws IOException {
+        this(token, apiUrl, new CachingConnector(new HttpClientConnector(), cache));
+    }
+
+    /**
+     * Sends every request through {@code connector}, e.g. one that records
+     * or replays responses.
+     */
+    MyGithub(String token, String apiUrl, GitHubConnector connector) throws IOException {
+        this(token, apiUrl, new InstrumentedConnector(connector, new ApiMetrics()));
+    }
+
+    private MyGithub(String token, String apiUrl, InstrumentedConnector connector) throws IOException {
+        this(new GitHubBuilder().withEndpoint(apiUrl).withOAuthToken(token).withConnector(connector).build(),
+                new RestClient(apiUrl, token, connector), connector.getMetrics());
     }
 
     private GHPerson getMyself() throws IOException {
         if (myself == null) {
-            myself = gitHub.getMyself();
+            myself = identity.getMyself();
         }
         return myself;
     }
 
     public MyGithub(GitHub gitHub) {
+        this(gitHub, null, new ApiMetrics());
+    }
+
+    /**
+     * {@code rest} enables the cheap counting paths (e.g. branch counts from
+     * a single {@code per_page=1} request); without it they fall back to
+     * listing.
+     */
+    MyGithub(GitHub gitHub, RestClient rest) {
+        this(gitHub, rest, new ApiMetrics());
+    }
+
+    private MyGithub(GitHub gitHub, RestClient rest, ApiMetrics apiMetrics) {
         this.gitHub = gitHub;
+        this.identity = new IdentityCache(gitHub);
+        this.counter = rest == null ? null : new ListCounter(rest);
+        this.rest = rest;
+        this.apiMetrics = apiMetrics;
     }
 
 
     private <T> Optional<T> withRetries(IOSupplier<T> op, int maxAttempts) {
-        IOException last = null;
+        return retrier.tryCall(op, maxAttempts);
+    }
 
-        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
-            try {
-                return Optional.ofNullable(op.get());
-            } catch (IOException e) {
-                last = e;
-            }
-        }
+    /**
+     * Replaces the retry policy used for every GitHub call. Several
+     * instances can share one {@code budget} so they back off together.
+     */
+    public void setRetryPolicy(RetryPolicy policy, RetryBudget budget) {
+        this.retrier = new Retrier(policy, budget);
+    }
 
-        // “gracefully reporting an error message”
-        System.err.println("ERROR: GitHub API operation failed after " + maxAttempts + " attempts."
-                + (last != null ? " Cause: " + last.getMessage() : ""));
-        return Optional.empty();
+    public RetryStats getRetryStats() {
+        return retrier.getStats();
+    }
+
+    /**
+     * Live per-endpoint request counters. Only requests this instance sends
+     * itself are counted, so it stays empty when built from a {@code GitHub}.
+     */
+    public ApiMetrics getApiMetrics() {
+        return apiMetrics;
     }
 
     public String getGithubName() {
-        return withRetries(() -> gitHub.getMyself().getLogin(), 3)
+        return withRetries(identity::getLogin, 3)
                 .orElse("ERROR");
     }
 
 
     private List<GHRepository> getRepos() throws IOException {
         if (myRepos == null) {
-            myRepos = getMyself().getRepositories();
+            myRepos = retrier.call(() -> getMyself().getRepositories());
         }
         return new ArrayList<>(myRepos.values());
     }
@@ -82,41 +152,596 @@ public class MyGithub {
         };
     }
 
+    /** Most popular commit day in the zone set with {@link #setZone} (JVM default unless set). */
     public String getMostPopularDay() throws IOException {
+        return getMostPopularDay(zone);
+    }
+
+    public String getMostPopularDay(ZoneId zone) throws IOException {
+        return mostPopularDay(getCommitActivity(zone));
+    }
+
+    /** Most popular day among my commits within {@code window}. */
+    public String getMostPopularDay(TimeWindow window) throws IOException {
+        return mostPopularDay(getCommitActivity(zone, window));
+    }
+
+    /** The day {@link #getMostPopularDay()} reports for {@code activity}, e.g. several merged shards. */
+    public static String mostPopularDay(ActivityHistogram activity) {
         final int SIZE = 8;
         int[] days = new int[SIZE];
-        Calendar cal = Calendar.getInstance();
-        for (GHCommit commit: getCommits()) {
-            Date date = commit.getCommitDate();
-            cal.setTime(date);
-            int day = cal.get(Calendar.DAY_OF_WEEK);
-            days[day] += 1;
-        }
+        // histogram is Sunday-first from 0; shift onto Calendar.DAY_OF_WEEK
+        System.arraycopy(activity.getDayCounts(), 0, days, Calendar.SUNDAY, 7);
         return intToDay(argMax(days));
     }
 
+    /** Day-of-week and hour-of-week histograms of my commits in {@code zone}. */
+    public ActivityHistogram getCommitActivity(ZoneId zone) throws IOException {
+        return ActivityHistogram.of(getCommitStore(), zone);
+    }
+
+    public ActivityHistogram getCommitActivity(ZoneId zone, TimeWindow window) throws IOException {
+        return ActivityHistogram.of(getCommitStore(window), zone);
+    }
+
+    /**
+     * Day-of-week and weekly activity estimated from each repository's
+     * {@code /stats/punch_card} and {@code /stats/contributors} instead of
+     * listing commits; see {@link ApproximateActivity} for how it differs.
+     * Repositories GitHub is still computing are polled up to
+     * {@code maxRounds} times, starting {@code firstDelayMillis} apart.
+     */
+    public ApproximateActivity getApproximateActivity(int maxRounds, long firstDelayMillis) throws IOException {
+        if (rest == null) {
+            throw new IllegalStateException("Repository statistics need a MyGithub built from a token");
+        }
+        List<String> names = new ArrayList<>();
+        for (GHRepository repo : getRepos()) {
+            names.add(repo.getFullName());
+        }
+        RepoStatsClient stats = new RepoStatsClient(rest, retrier, maxRounds, firstDelayMillis);
+        List<RepoStatsClient.Stats> perRepo = stats.fetch(names, identity.getLogin());
+        return ApproximateActivity.of(perRepo, zone, Instant.now(), stats.getRequests());
+    }
+
+    /** Time zone used by {@link #getMostPopularDay()}. */
+    public void setZone(ZoneId zone) {
+        this.zone = Objects.requireNonNull(zone);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Sets how many repositories {@link #getCommits()} crawls at once.
+     * 1 (the default) keeps the original one-repo-at-a-time loop.
+     */
+    public void setCrawlParallelism(int parallelism) {
+        this.crawler = new RepoCrawler(parallelism);
+    }
+
+    /**
+     * Sets how many pages of a list may be read ahead in the background
+     * while the current one is processed (default 2). 0 reads each page
+     * only when it is needed.
+     */
+    public void setPrefetchPages(int pages) {
+        this.paging = new Paging(pages);
+    }
+
+    /**
+     * Keeps commits in {@code cache} between runs. With a cache set, the
+     * commit metrics only fetch commits newer than each repo's watermark and
+     * compute from the cached dates.
+     */
+    public void setCommitCache(CommitCache cache) {
+        this.commitCache = cache;
+        this.commitStore = null;
+    }
+
+    /** Where the commit metrics get my commits from. */
+    public enum CommitSource {
+        /** Lists the commits of each of my repositories (the default). */
+        REPOSITORIES,
+        /**
+         * One commit search across all of GitHub: no request for repositories
+         * I never committed to, and commits to other people's repositories
+         * are counted too.
+         */
+        SEARCH,
+        /** Both, with the commits the listing already found dropped from the search results. */
+        BOTH
+    }
+
+    public void setCommitSource(CommitSource source) {
+        this.commitSource = Objects.requireNonNull(source);
+        this.commitStore = null;
+    }
+
+    /**
+     * Remembers each repo's {@code pushed_at} / {@code updated_at} in
+     * {@code state} so that repos unchanged since the last run are skipped:
+     * the commit sync (with a commit cache set) doesn't ask for their
+     * commits, and the issue, pull request and branch averages reuse their
+     * stored numbers.
+     */
+    public void setRepoStateCache(RepoStateCache state) {
+        this.repoState = state;
+    }
+
+    /**
+     * Journals the commit crawl and the repository scans in {@code journal}
+     * as they go, and resumes from whatever an earlier, interrupted run left
+     * in it. Only {@link #getCommitStore()} resumes the commit crawl;
+     * {@link #getCommits()} always lists every repository.
+     */
+    public void setCrawlJournal(CrawlJournal journal) {
+        this.journal = journal;
+    }
+
     protected Iterable<? extends GHCommit> getCommits() throws IOException {
         if (myCommits == null) {
-            myCommits = new ArrayList<>();
-            int count = 0;
-            for (GHRepository repo: getRepos()) {
-                System.out.println("Loading commits: repo " + repo.getName());
-                try {
-                    for (GHCommit commit : repo.queryCommits().author(getGithubName()).list()) {
-                        myCommits.add(commit);
-                        count++;
-                        if (count % 100 == 0) {
-                            System.out.println("Loading commits: " + count);
+            String login = getGithubName();
+            AtomicInteger count = new AtomicInteger();
+            List<List<GHCommit>> perRepo = crawlForksLast(getRepos(),
+                    (repo, upstream) -> fetchCommits(repo, login, null, null, count, upstream),
+                    (commits, seen) -> {
+                        for (GHCommit c : commits) {
+                            if (c.getSHA1() != null) seen.add(CommitStore.fingerprint(c.getSHA1()));
+                        }
+                    });
+
+            // merge in repo order so the parallel crawl matches the serial one
+            List<GHCommit> all = new ArrayList<>(count.get());
+            for (List<GHCommit> commits : perRepo) {
+                all.addAll(commits);
+            }
+            myCommits = all;
+        }
+        return myCommits;
+    }
+
+    @FunctionalInterface
+    private interface CommitTask<R> {
+        R apply(GHRepository repo, FingerprintSet upstream) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Fingerprints<R> {
+        void addTo(R result, FingerprintSet seen);
+    }
+
+    /**
+     * Runs {@code task} on every repo, with forks after everything else.
+     * Forks are grouped by the repository at the root of their fork tree,
+     * and each group is crawled one fork after another, with the
+     * fingerprints {@code shas} collected from the root (if it is mine) and
+     * the forks before it. Groups and non-forks still run in parallel.
+     * Results come back in repo order. Costs one extra request per fork to
+     * find its source; those run in parallel too, before any listing.
+     */
+    private <R> List<R> crawlForksLast(List<GHRepository> repos, CommitTask<R> task, Fingerprints<R> shas)
+            throws IOException {
+        List<GHRepository> forks = new ArrayList<>();
+        for (GHRepository repo : repos) {
+            if (repo.isFork()) forks.add(repo);
+        }
+        List<String> forkSources = crawler.map(forks, this::sourceName);
+
+        List<GHRepository> plain = new ArrayList<>();
+        Map<String, List<Integer>> families = new LinkedHashMap<>();
+        for (int i = 0, f = 0; i < repos.size(); i++) {
+            GHRepository repo = repos.get(i);
+            String source = f < forks.size() && forks.get(f) == repo ? forkSources.get(f++) : null;
+            if (source == null) {
+                plain.add(repo);
+            } else {
+                families.computeIfAbsent(source, k -> new ArrayList<>()).add(i);
+            }
+        }
+        if (families.isEmpty()) {
+            return crawler.map(repos, repo -> task.apply(repo, null));
+        }
+
+        List<R> results = new ArrayList<>(Collections.nCopies(repos.size(), null));
+        Map<String, FingerprintSet> upstream = new HashMap<>();
+        List<R> plainResults = crawler.map(plain, repo -> task.apply(repo, null));
+        for (int i = 0, p = 0; i < repos.size() && p < plain.size(); i++) {
+            if (repos.get(i) != plain.get(p)) continue;
+            R result = plainResults.get(p++);
+            results.set(i, result);
+            String name = repos.get(i).getFullName();
+            if (families.containsKey(name)) {
+                FingerprintSet seen = new FingerprintSet();
+                shas.addTo(result, seen);
+                upstream.put(name, seen);
+            }
+        }
+
+        List<String> sources = new ArrayList<>(families.keySet());
+        List<GHRepository> heads = new ArrayList<>();
+        Map<GHRepository, String> sourceOf = new IdentityHashMap<>();
+        for (String source : sources) {
+            GHRepository head = repos.get(families.get(source).get(0));
+            heads.add(head);
+            sourceOf.put(head, source);
+        }
+        List<List<R>> familyResults = crawler.map(heads, head -> {
+            String source = sourceOf.get(head);
+            FingerprintSet seen = upstream.getOrDefault(source, new FingerprintSet());
+            List<R> family = new ArrayList<>();
+            for (int i : families.get(source)) {
+                R result = task.apply(repos.get(i), seen);
+                shas.addTo(result, seen);
+                family.add(result);
+            }
+            return family;
+        });
+        for (int f = 0; f < sources.size(); f++) {
+            List<Integer> members = families.get(sources.get(f));
+            for (int m = 0; m < members.size(); m++) {
+                results.set(members.get(m), familyResults.get(f).get(m));
+            }
+        }
+        return results;
+    }
+
+    /** Full name of the repository at the root of {@code fork}'s fork tree, or null if unknown. */
+    private String sourceName(GHRepository fork) throws IOException {
+        GHRepository source = retrier.call(() -> {
+            GHRepository root = fork.getSource();
+            return root != null ? root : fork.getParent();
+        });
+        return source == null ? null : source.getFullName();
+    }
+
+    /**
+     * My commits in {@code repo}, between {@code since} and {@code until}
+     * where they are set. With {@code upstream} set, commits already in it
+     * are skipped. The listing is still read to the end: it is filtered by
+     * author, so it carries no parent links that would show where the
+     * fork's history joins its source, and own commits can sit below any
+     * run of shared ones.
+     */
+    private List<GHCommit> fetchCommits(GHRepository repo, String login, Date since, Date until,
+                                        AtomicInteger count, FingerprintSet upstream) throws IOException {
+        System.out.println("Loading commits: repo " + repo.getName());
+        return retrier.call(() -> {
+            List<GHCommit> commits = new ArrayList<>();
+            listCommits(repo, login, since, until, count, upstream, commits::add);
+            return commits;
+        });
+    }
+
+    /** Runs {@code action} on my commits in {@code repo}, newest first; see {@link #fetchCommits}. */
+    private void listCommits(GHRepository repo, String login, Date since, Date until, AtomicInteger count,
+                             FingerprintSet upstream, Paging.ItemAction<GHCommit> action) throws IOException {
+        try {
+            GHCommitQueryBuilder query = repo.queryCommits().author(login);
+            if (since != null) {
+                query = query.since(since);
+            }
+            if (until != null) {
+                query = query.until(until);
+            }
+            paging.forEach(query.list(), commit -> {
+                String sha = upstream == null ? null : commit.getSHA1();
+                if (sha != null && upstream.contains(CommitStore.fingerprint(sha))) {
+                    return;
+                }
+                action.accept(commit);
+                if (count.incrementAndGet() % 100 == 0) {
+                    System.out.println("Loading commits: " + count.get());
+                }
+            });
+        } catch (GHException e) {
+            if (!isEmptyRepository(e)) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * {@link #fetchCommits} as rows under repo index 0, without the ones
+     * lacking a date. With a journal set, every page is journaled and a
+     * listing that was cut short, in this run or an earlier one, continues
+     * from where it stopped. Listings limited to a window aren't journaled;
+     * the journal holds whole histories.
+     */
+    private CommitStore fetchCommitRows(GHRepository repo, String login, Date since, TimeWindow window,
+                                        AtomicInteger count, FingerprintSet upstream) throws IOException {
+        String name = repo.getFullName();
+        if (journal == null || !window.isAll()) {
+            CommitStore rows = new CommitStore();
+            rows.repoIndex(name);
+            for (GHCommit commit : fetchCommits(repo, login, since, window.toDate(), count, upstream)) {
+                Date d = commit.getCommitDate();
+                if (d != null) {
+                    rows.add(0, CommitStore.fingerprint(commit.getSHA1()), d.getTime());
+                }
+            }
+            return rows;
+        }
+        if (journal.isCommitsDone(name)) {
+            return journal.getCommits(name);
+        }
+        System.out.println("Loading commits: repo " + repo.getName());
+        return retrier.call(() -> {
+            CommitStore rows = journal.getCommits(name);
+            FingerprintSet have = new FingerprintSet(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                have.add(rows.sha(i));
+            }
+            // `until` is inclusive: commits at the cursor itself come again
+            CommitStore[] page = {CrawlJournal.rows(name)};
+            listCommits(repo, login, since, journal.getCommitCursor(name), count, upstream, commit -> {
+                Date d = commit.getCommitDate();
+                String sha = commit.getSHA1();
+                long fp = CommitStore.fingerprint(sha);
+                if (d == null || (sha != null && !have.add(fp))) return;
+                rows.add(0, fp, d.getTime());
+                page[0].add(0, fp, d.getTime());
+                if (page[0].size() == Paging.PAGE_SIZE) {
+                    journal.addCommitPage(name, page[0]);
+                    page[0] = CrawlJournal.rows(name);
+                }
+            });
+            journal.addCommitPage(name, page[0]);
+            journal.markCommitsDone(name);
+            return rows;
+        });
+    }
+
+    /**
+     * All my commits as a compact {@link CommitStore}. Comes from the commit
+     * cache when one is set (syncing it first), otherwise it is built from
+     * {@link #getCommits()}, after which the {@code GHCommit} objects are
+     * let go. Commits without a date are left out.
+     */
+    protected CommitStore getCommitStore() throws IOException {
+        if (commitStore == null) {
+            if (commitCache != null) {
+                commitStore = syncCommitCache();
+            } else {
+                CommitStore store = new CommitStore();
+                if (commitSource != CommitSource.SEARCH && journal != null) {
+                    store = distinct(concat(crawlCommitRows(null, TimeWindow.ALL)));
+                } else if (commitSource != CommitSource.SEARCH) {
+                    // the same commit in several forks counts once
+                    FingerprintSet seen = new FingerprintSet();
+                    for (GHCommit commit : getCommits()) {
+                        Date d = commit.getCommitDate();
+                        String sha = commit.getSHA1();
+                        if (d != null && (sha == null || seen.add(CommitStore.fingerprint(sha)))) {
+                            GHRepository owner = commit.getOwner();
+                            String repo = owner == null ? "" : owner.getFullName();
+                            store.add(repo == null ? "" : repo, sha, d.getTime());
                         }
                     }
-                } catch (GHException e) {
-                    if (!e.getCause().getMessage().contains("Repository is empty")) {
-                        throw e;
-                    }
                 }
+                if (commitSource != CommitSource.REPOSITORIES) {
+                    store = CommitSearch.union(store, searchCommits(null, null).search);
+                }
+                store.trimToSize();
+                commitStore = store;
+                myCommits = null;
             }
         }
-        return myCommits;
+        return commitStore;
+    }
+
+    /**
+     * My commits within {@code window}. Taken from the full store when it is
+     * loaded already or comes from the commit cache; otherwise the window is
+     * sent along with every listing and search, so only the commits in it
+     * are fetched, and the repositories not pushed to since it started are
+     * skipped. Not kept: the next call fetches again.
+     */
+    protected CommitStore getCommitStore(TimeWindow window) throws IOException {
+        if (window.isAll()) {
+            return getCommitStore();
+        }
+        if (commitStore != null || commitCache != null) {
+            return within(getCommitStore(), window);
+        }
+        CommitStore store = new CommitStore();
+        if (commitSource != CommitSource.SEARCH) {
+            Date from = window.fromDate();
+            store = distinct(concat(crawlCommitRows(repo -> {
+                Date pushedAt = repo.getPushedAt();
+                return from != null && pushedAt != null && pushedAt.before(from) ? SKIP : from;
+            }, window)));
+        }
+        if (commitSource != CommitSource.REPOSITORIES) {
+            store = CommitSearch.union(store, searchCommits(window.fromDate(), window.toDate()).search);
+        }
+        // the listings' until is inclusive
+        return within(store, window);
+    }
+
+    /** The rows of {@code store} within {@code window}. */
+    static CommitStore within(CommitStore store, TimeWindow window) {
+        CommitStore result = new CommitStore(16);
+        for (int r = 0; r < store.repoCount(); r++) {
+            result.repoIndex(store.repoName(r));
+        }
+        for (int i = 0; i < store.size(); i++) {
+            if (window.contains(store.time(i))) {
+                result.add(store.repo(i), store.sha(i), store.time(i));
+            }
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    private CommitStore syncCommitCache() throws IOException {
+        List<String> names = new ArrayList<>();
+        if (commitSource != CommitSource.SEARCH) {
+            names.addAll(syncRepoCommits());
+        }
+        if (commitSource != CommitSource.REPOSITORIES) {
+            String login = getGithubName();
+            Searched found = searchCommits(commitCache.getSearchWatermark(login), null);
+            CommitStore[] perRepo = byRepo(found.search);
+            int added = 0;
+            for (int r = 0; r < perRepo.length; r++) {
+                added += commitCache.merge(found.search.repoName(r), perRepo[r]);
+            }
+            System.out.println("Commit cache: " + added + " new commits from search");
+            if (found.newest != null) {
+                commitCache.setSearchWatermark(login, found.newest);
+            }
+            commitCache.save();
+            // repositories found by earlier searches too, after my own
+            Set<String> seen = new HashSet<>(names);
+            for (String repo : commitCache.repoNames()) {
+                if (seen.add(repo)) {
+                    names.add(repo);
+                }
+            }
+        }
+        return distinct(commitCache.snapshot(names));
+    }
+
+    /**
+     * {@code store} with each SHA fingerprint kept only the first time it
+     * appears, e.g. once per fork tree. Rows without a SHA (fingerprint 0)
+     * can't be matched, so all of them are kept.
+     */
+    static CommitStore distinct(CommitStore store) {
+        FingerprintSet seen = new FingerprintSet(store.size());
+        CommitStore result = new CommitStore(store.size());
+        for (int r = 0; r < store.repoCount(); r++) {
+            result.repoIndex(store.repoName(r));
+        }
+        for (int i = 0; i < store.size(); i++) {
+            long sha = store.sha(i);
+            if (sha == 0L || seen.add(sha)) {
+                result.add(store.repo(i), sha, store.time(i));
+            }
+        }
+        result.trimToSize();
+        return result;
+    }
+
+    /** Brings the cache up to date repo by repo; returns my repositories' names. */
+    private List<String> syncRepoCommits() throws IOException {
+        List<GHRepository> repos = getRepos();
+        List<String> names = new ArrayList<>(repos.size());
+        List<Date> pushed = new ArrayList<>(repos.size());
+        for (GHRepository repo : repos) {
+            names.add(repo.getFullName());
+            pushed.add(repo.getPushedAt());
+        }
+
+        List<CommitStore> perRepo = crawlCommitRows(repo -> {
+            if (repoState != null && commitCache.contains(repo.getFullName())
+                    && repoState.commitsUnchanged(repo.getFullName(), repo.getPushedAt())) {
+                return SKIP; // nothing pushed since the last sync
+            }
+            return commitCache.getWatermark(repo.getFullName());
+        }, TimeWindow.ALL);
+
+        int added = 0;
+        for (int i = 0; i < repos.size(); i++) {
+            commitCache.touch(names.get(i));
+            added += commitCache.merge(names.get(i), perRepo.get(i));
+        }
+        System.out.println("Commit cache: " + added + " new commits");
+        commitCache.save();
+        if (repoState != null) {
+            // only once the commits are safely saved
+            for (int i = 0; i < repos.size(); i++) {
+                repoState.markCommitsSynced(names.get(i), pushed.get(i));
+            }
+        }
+        return names;
+    }
+
+    /** When to list a repo's commits from; returns {@link #SKIP} to not list them at all. */
+    @FunctionalInterface
+    private interface SinceFn {
+        Date since(GHRepository repo) throws IOException;
+    }
+
+    private static final Date SKIP = new Date(Long.MIN_VALUE);
+
+    /**
+     * Every repo's commits as rows, in repo order, listed from
+     * {@code since} (all of them if it is null) up to the end of
+     * {@code window}. Each repo's {@code GHCommit}s are converted as soon as
+     * its listing finishes, so those of one repo at most are alive at a
+     * time per thread.
+     */
+    private List<CommitStore> crawlCommitRows(SinceFn since, TimeWindow window) throws IOException {
+        String login = getGithubName();
+        AtomicInteger count = new AtomicInteger();
+        return crawlForksLast(getRepos(), (repo, upstream) -> {
+            Date from = since == null ? null : since.since(repo);
+            if (from == SKIP) {
+                CommitStore none = new CommitStore();
+                none.repoIndex(repo.getFullName());
+                return none;
+            }
+            return fetchCommitRows(repo, login, from, window, count, upstream);
+        }, (rows, seen) -> {
+            for (int i = 0; i < rows.size(); i++) {
+                seen.add(rows.sha(i));
+            }
+        });
+    }
+
+    /** Per-repo rows (repo index 0 each) as one store, in order. */
+    private static CommitStore concat(List<CommitStore> perRepo) {
+        CommitStore store = new CommitStore();
+        for (CommitStore rows : perRepo) {
+            store.addAll(rows);
+        }
+        return store;
+    }
+
+    private static final class Searched {
+        final CommitStore search;
+        final Date newest;
+
+        Searched(CommitStore search, Date newest) {
+            this.search = search;
+            this.newest = newest;
+        }
+    }
+
+    private Searched searchCommits(Date since, Date until) throws IOException {
+        if (rest == null) {
+            throw new IllegalStateException("Commit search needs a MyGithub built from a token");
+        }
+        CommitSearch search = new CommitSearch(rest, retrier, Clock.systemUTC());
+        CommitStore found = search.search(getGithubName(), since, until);
+        System.out.println("Commit search: " + found.size() + " commits in " + found.repoCount() + " repos, "
+                + search.getWindows() + " date windows, " + search.getRequests() + " requests");
+        if (search.isIncomplete()) {
+            System.err.println("WARNING: GitHub returned incomplete commit search results");
+        }
+        return new Searched(found, search.getNewest());
+    }
+
+    /** The rows of {@code store} split into one store per repository, by repo index. */
+    private static CommitStore[] byRepo(CommitStore store) {
+        CommitStore[] perRepo = new CommitStore[store.repoCount()];
+        for (int r = 0; r < perRepo.length; r++) {
+            perRepo[r] = new CommitStore(16);
+            perRepo[r].repoIndex(store.repoName(r));
+        }
+        for (int i = 0; i < store.size(); i++) {
+            perRepo[store.repo(i)].add(0, store.sha(i), store.time(i));
+        }
+        return perRepo;
+    }
+
+    static boolean isEmptyRepository(GHException e) {
+        Throwable cause = e.getCause();
+        return cause != null && cause.getMessage() != null
+                && cause.getMessage().contains("Repository is empty");
     }
 
 
@@ -124,57 +749,51 @@ public class MyGithub {
     // Step 1 (2): Average time between commits
     // -----------------------------
     public OptionalDouble getAverageTimeBetweenCommitsSeconds() throws IOException {
-        // Collect commit times
-        ArrayList<Date> commitDates = new ArrayList<>();
-        for (GHCommit commit : getCommits()) {
-            Date d = commit.getCommitDate();
-            if (d != null) commitDates.add(d);
-        }
+        return getCommitGapStats().getAverageGapSeconds();
+    }
 
-        if (commitDates.size() < 2) return OptionalDouble.empty();
+    public OptionalDouble getAverageTimeBetweenCommitsSeconds(TimeWindow window) throws IOException {
+        return getCommitGapStats(window).getAverageGapSeconds();
+    }
 
-        // Sort ascending
-        commitDates.sort(Comparator.naturalOrder());
+    /** Earliest and latest commit time and the commit count; mergeable with other shards. */
+    public GapStats getCommitGapStats() throws IOException {
+        return GapStats.of(getCommitStore());
+    }
 
-        long totalSeconds = 0L;
-        int gaps = 0;
+    public GapStats getCommitGapStats(TimeWindow window) throws IOException {
+        return GapStats.of(getCommitStore(window));
+    }
 
-        for (int i = 1; i < commitDates.size(); i++) {
-            long prev = commitDates.get(i - 1).getTime();
-            long curr = commitDates.get(i).getTime();
-            long deltaSeconds = (curr - prev) / 1000L;
-            totalSeconds += deltaSeconds;
-            gaps++;
-        }
+    /** Median, longest and distribution of the gaps; sorts the commit times, so costlier than the mean. */
+    public GapAnalysis getCommitGapAnalysis() throws IOException {
+        return GapAnalysis.of(getCommitStore());
+    }
 
-        return OptionalDouble.of((double) totalSeconds / (double) gaps);
+    public GapAnalysis getCommitGapAnalysis(TimeWindow window) throws IOException {
+        return GapAnalysis.of(getCommitStore(window));
     }
 
     // -----------------------------
     // Step 1 (3): Avg time issues stay open (closed issues only)
     // -----------------------------
     public OptionalDouble getAverageClosedIssueOpenTimeSeconds() throws IOException {
-        long totalSeconds = 0L;
-        int count = 0;
+        return getClosedIssueOpenTimeStats().getAverageSeconds();
+    }
 
-        for (GHRepository repo : getRepos()) {
-            List<GHIssue> issues = repo.getIssues(GHIssueState.CLOSED);
-            for (GHIssue issue : issues) {
-                GHIssueWrapper w = new GHIssueWrapper(issue);
-                Date created = w.getCreatedAt();
-                Date closed = w.getClosedAt(); // should be non-null for closed issues, but be safe
-                if (created != null && closed != null) {
-                    long deltaSeconds = (closed.getTime() - created.getTime()) / 1000L;
-                    if (deltaSeconds >= 0) { // ignore weird data
-                        totalSeconds += deltaSeconds;
-                        count++;
-                    }
-                }
-            }
-        }
+    public OpenTimeStats getClosedIssueOpenTimeStats() throws IOException {
+        return getClosedIssueOpenTimeStats(TimeWindow.ALL);
+    }
+
+    /** Issues closed within {@code window}. */
+    public OptionalDouble getAverageClosedIssueOpenTimeSeconds(TimeWindow window) throws IOException {
+        return getClosedIssueOpenTimeStats(window).getAverageSeconds();
+    }
 
-        if (count == 0) return OptionalDouble.empty();
-        return OptionalDouble.of((double) totalSeconds / (double) count);
+    public OpenTimeStats getClosedIssueOpenTimeStats(TimeWindow window) throws IOException {
+        OpenTimeAggregator issues = OpenTimeAggregator.closedIssues();
+        newScan(window).add(issues).run(getRepos());
+        return issues.getStats();
     }
 
     // -----------------------------
@@ -182,61 +801,124 @@ public class MyGithub {
     // (we count only PRs that are closed; open PRs are ignored)
     // -----------------------------
     public OptionalDouble getAverageClosedPullRequestOpenTimeSeconds() throws IOException {
-        long totalSeconds = 0L;
-        int count = 0;
+        return getClosedPullRequestOpenTimeStats().getAverageSeconds();
+    }
 
-        for (GHRepository repo : getRepos()) {
-            // github-api provides listPullRequests for PRs
-            // We include all states and then filter for closed using closedAt != null.
-            PagedIterable<GHPullRequest> prs = repo.listPullRequests(GHIssueState.ALL);
-            for (GHPullRequest pr : prs) {
-                GHPullRequestWrapper w = new GHPullRequestWrapper(pr);
-                Date created = w.getCreatedAt();
-                Date closed = w.getClosedAt();
-                if (created != null && closed != null) {
-                    long deltaSeconds = (closed.getTime() - created.getTime()) / 1000L;
-                    if (deltaSeconds >= 0) {
-                        totalSeconds += deltaSeconds;
-                        count++;
-                    }
-                }
-            }
-        }
+    public OpenTimeStats getClosedPullRequestOpenTimeStats() throws IOException {
+        return getClosedPullRequestOpenTimeStats(TimeWindow.ALL);
+    }
+
+    /** Pull requests closed within {@code window}. */
+    public OptionalDouble getAverageClosedPullRequestOpenTimeSeconds(TimeWindow window) throws IOException {
+        return getClosedPullRequestOpenTimeStats(window).getAverageSeconds();
+    }
 
-        if (count == 0) return OptionalDouble.empty();
-        return OptionalDouble.of((double) totalSeconds / (double) count);
+    public OpenTimeStats getClosedPullRequestOpenTimeStats(TimeWindow window) throws IOException {
+        OpenTimeAggregator prs = OpenTimeAggregator.closedPullRequests();
+        newScan(window).add(prs).run(getRepos());
+        return prs.getStats();
     }
 
     // -----------------------------
     // Step 1 (5): Avg number of branches per repo
     // -----------------------------
     public OptionalDouble getAverageBranchesPerRepo() throws IOException {
-        List<GHRepository> repos = getRepos();
-        if (repos.isEmpty()) return OptionalDouble.empty();
+        return getBranchStats().getAveragePerRepo();
+    }
 
-        long totalBranches = 0L;
-        int repoCount = 0;
+    public BranchStats getBranchStats() throws IOException {
+        return getBranchStats(TimeWindow.ALL);
+    }
 
-        for (GHRepository repo : repos) {
-            // getBranches returns Map<String, GHBranch>
-            Map<String, GHBranch> branches = repo.getBranches();
-            totalBranches += (branches == null ? 0 : branches.size());
-            repoCount++;
-        }
+    /**
+     * Branches of the repositories active within {@code window}: created
+     * before it ends and pushed to since it started. Branch counts are only
+     * known as of now, so the window picks repositories, not branches.
+     */
+    public OptionalDouble getAverageBranchesPerRepo(TimeWindow window) throws IOException {
+        return getBranchStats(window).getAveragePerRepo();
+    }
 
-        if (repoCount == 0) return OptionalDouble.empty();
-        return OptionalDouble.of((double) totalBranches / (double) repoCount);
+    public BranchStats getBranchStats(TimeWindow window) throws IOException {
+        BranchCountAggregator branches = new BranchCountAggregator();
+        newScan(window).add(branches).run(getRepos());
+        return branches.getStats();
     }
 
 
     public ArrayList<Date> getIssueCreateDates() throws IOException {
-        ArrayList<Date> result = new ArrayList<>();
-        for (GHRepository repo: getRepos()) {
-            List<GHIssue> issues = repo.getIssues(GHIssueState.CLOSED);
-            for (GHIssue issue: issues)
-                result.add((new GHIssueWrapper(issue)).getCreatedAt());
+        IssueCreateDatesAggregator dates = new IssueCreateDatesAggregator();
+        newScan().add(dates).run(getRepos());
+        return dates.getDates();
+    }
+
+    /**
+     * Every metric at once. Issues, pull requests and branches are fetched
+     * in a single pass over the repositories instead of once per metric.
+     */
+    public MetricsReport getReport() throws IOException {
+        return getReport(TimeWindow.ALL);
+    }
+
+    /** Every metric limited to {@code window}; the commits are fetched once for both commit metrics. */
+    public MetricsReport getReport(TimeWindow window) throws IOException {
+        OpenTimeAggregator issues = OpenTimeAggregator.closedIssues();
+        OpenTimeAggregator prs = OpenTimeAggregator.closedPullRequests();
+        BranchCountAggregator branches = new BranchCountAggregator();
+        newScan(window).add(issues).add(prs).add(branches).run(getRepos());
+
+        CommitStore commits = getCommitStore(window);
+        ActivityHistogram activity = ActivityHistogram.of(commits, zone);
+        String day = activity.getTotal() == 0 ? null : mostPopularDay(activity);
+        return new MetricsReport(day,
+                GapStats.of(commits).getAverageGapSeconds(),
+                issues.getStats(),
+                prs.getStats(),
+                branches.getAveragePerRepo());
+    }
+
+    /** Closed pull requests across all my repos, counted without listing them where possible. */
+    public long getClosedPullRequestCount() throws IOException {
+        long total = 0;
+        for (long n : crawler.map(getRepos(), repo -> retrier.call(() -> {
+            if (counter != null) {
+                return (long) counter.countPullRequests(repo.getFullName(), "closed");
             }
-        return result;
+            long[] count = {0};
+            paging.forEach(repo.queryPullRequests().state(GHIssueState.CLOSED).list(), pr -> count[0]++);
+            return count[0];
+        }))) {
+            total += n;
+        }
+        return total;
     }
-}
 
+    /** Closed issues (pull requests excluded) across all my repos. */
+    public long getClosedIssueCount() throws IOException {
+        long total = 0;
+        for (long n : crawler.map(getRepos(), repo -> retrier.call(() -> {
+            if (counter != null) {
+                // the issues endpoint counts PRs too
+                String name = repo.getFullName();
+                return (long) counter.countIssuesAndPullRequests(name, "closed")
+                        - counter.countPullRequests(name, "closed");
+            }
+            long[] count = {0};
+            paging.forEach(repo.queryIssues().state(GHIssueState.CLOSED).list(), issue -> {
+                if (!issue.isPullRequest()) count[0]++;
+            });
+            return count[0];
+        }))) {
+            total += n;
+        }
+        return total;
+    }
+
+    private RepoScan newScan() {
+        return newScan(TimeWindow.ALL);
+    }
+
+    private RepoScan newScan(TimeWindow window) {
+        return new RepoScan(retrier, crawler, rest, paging, repoState, journal).within(window);
+    }
+}
@@ -0,0 +1,66 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.OptionalDouble;
+import java.util.Set;
+
+/**
+ * Average time closed issues (or closed pull requests) stayed open, in
+ * seconds, collected into an {@link OpenTimeStats}.
+ */
+class OpenTimeAggregator implements RepoAggregator {
+    private final Resource resource;
+    private final OpenTimeStats stats = new OpenTimeStats();
+
+    private OpenTimeAggregator(Resource resource) {
+        this.resource = resource;
+    }
+
+    static OpenTimeAggregator closedIssues() {
+        return new OpenTimeAggregator(Resource.CLOSED_ISSUES);
+    }
+
+    static OpenTimeAggregator closedPullRequests() {
+        return new OpenTimeAggregator(Resource.PULL_REQUESTS);
+    }
+
+    @Override
+    public Set<Resource> resources() {
+        return EnumSet.of(resource);
+    }
+
+    @Override
+    public void onIssue(GHRepository repo, IssueRow issue) throws IOException {
+        stats.add(issue.createdAt, issue.closedAt);
+    }
+
+    @Override
+    public void onPullRequest(GHRepository repo, IssueRow pr) throws IOException {
+        stats.add(pr.createdAt, pr.closedAt); // closedAt is null while still open
+    }
+
+    @Override
+    public boolean acceptsPartials() {
+        return true;
+    }
+
+    @Override
+    public void onPartial(GHRepository repo, RepoPartial partial) {
+        stats.merge(resource == Resource.CLOSED_ISSUES ? partial.issues : partial.pulls);
+    }
+
+    OpenTimeStats getStats() {
+        return stats;
+    }
+
+    long getCount() {
+        return stats.getCount();
+    }
+
+    OptionalDouble getAverageSeconds() {
+        return stats.getAverageSeconds();
+    }
+}
@@ -0,0 +1,71 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.OptionalDouble;
+
+/**
+ * Times closed issues or pull requests stayed open, in seconds: exact total
+ * and count for the mean, plus a {@link LogHistogram} for percentiles, in
+ * constant memory however many items are counted. Items without both
+ * dates, or closed before they were created, are ignored.
+ */
+public class OpenTimeStats implements Aggregate<OpenTimeStats> {
+    private LogHistogram seconds = new LogHistogram();
+
+    /** Counts one item; returns false if it was ignored. */
+    public boolean add(Date created, Date closed) {
+        if (created == null || closed == null) return false;
+        long deltaSeconds = (closed.getTime() - created.getTime()) / 1000L;
+        if (deltaSeconds < 0) return false; // ignore weird data
+        seconds.add(deltaSeconds);
+        return true;
+    }
+
+    @Override
+    public OpenTimeStats merge(OpenTimeStats other) {
+        seconds.merge(other.seconds);
+        return this;
+    }
+
+    public long getTotalSeconds() {
+        return seconds.getSum();
+    }
+
+    public long getCount() {
+        return seconds.getCount();
+    }
+
+    public OptionalDouble getAverageSeconds() {
+        if (getCount() == 0) return OptionalDouble.empty();
+        return OptionalDouble.of((double) getTotalSeconds() / (double) getCount());
+    }
+
+    /** Open time at {@code percentile} (0-100), to within about 1.6%. */
+    public OptionalDouble getPercentileSeconds(double percentile) {
+        return seconds.getQuantile(percentile / 100.0);
+    }
+
+    /** The distribution itself, e.g. for {@link LogHistogram#countsBetween}. */
+    public LogHistogram getDistribution() {
+        return new LogHistogram().merge(seconds);
+    }
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        seconds.writeTo(out);
+    }
+
+    public static OpenTimeStats readFrom(DataInput in) throws IOException {
+        OpenTimeStats stats = new OpenTimeStats();
+        stats.seconds = LogHistogram.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "OpenTimeStats{totalSeconds=" + getTotalSeconds() + ", count=" + getCount() + "}";
+    }
+}
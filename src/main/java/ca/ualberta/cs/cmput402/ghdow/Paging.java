@@ -0,0 +1,239 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.PagedIterable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Page size and read-ahead for GitHub list calls.
+ * <p>
+ * Every list is requested {@value #PAGE_SIZE} items per page, the API's
+ * maximum. The first page is read on the calling thread; if it is full, a
+ * background thread keeps reading the following pages while the caller
+ * works through the current one, at most {@code lookahead} pages ahead.
+ * Items reach the caller in list order and a failed page fetch is rethrown
+ * on the calling thread, so retries work the same as without read-ahead.
+ * <p>
+ * Lists read straight from the REST API are paged by number through a
+ * {@link PageSource} and read ahead the same way.
+ */
+class Paging {
+    static final int PAGE_SIZE = 100;
+
+    @FunctionalInterface
+    interface ItemAction<T> {
+        void accept(T item) throws IOException;
+    }
+
+    /** Like {@link ItemAction}, returning false to stop reading the list. */
+    @FunctionalInterface
+    interface ItemCondition<T> {
+        boolean test(T item) throws IOException;
+    }
+
+    /** Fetches page {@code number} (from 1) of a list; a page shorter than {@value #PAGE_SIZE} is the last. */
+    @FunctionalInterface
+    interface PageSource<T> {
+        List<T> fetch(int number) throws IOException;
+    }
+
+    private static final Object END = new Object();
+
+    private static final AtomicInteger READER_COUNT = new AtomicInteger();
+    private static final ExecutorService READERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "ghdow-page-" + READER_COUNT.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int lookahead;
+
+    /** {@code lookahead} 0 reads every page on the calling thread. */
+    Paging(int lookahead) {
+        if (lookahead < 0) {
+            throw new IllegalArgumentException("lookahead must be >= 0: " + lookahead);
+        }
+        this.lookahead = lookahead;
+    }
+
+    int getLookahead() {
+        return lookahead;
+    }
+
+    /** {@code list} asking for {@value #PAGE_SIZE} items per page. */
+    static <T> PagedIterable<T> sized(PagedIterable<T> list) {
+        PagedIterable<T> sized = list.withPageSize(PAGE_SIZE);
+        return sized == null ? list : sized;
+    }
+
+    /** Runs {@code action} on every item of {@code list}, in order. */
+    <T> void forEach(PagedIterable<T> list, ItemAction<T> action) throws IOException {
+        forEachWhile(list, always(action));
+    }
+
+    /**
+     * Runs {@code action} on the items of {@code list} in order until it
+     * returns false; pages after that one are not requested (beyond what
+     * was already read ahead).
+     */
+    <T> void forEachWhile(PagedIterable<T> list, ItemCondition<T> action) throws IOException {
+        forEachWhile(sized(list).iterator(), action);
+    }
+
+    /** The same for the pages of {@code source}; a failed fetch is rethrown as it was thrown. */
+    <T> void forEach(PageSource<T> source, ItemAction<T> action) throws IOException {
+        forEachWhile(source, always(action));
+    }
+
+    /** {@link #forEachWhile(PagedIterable, ItemCondition)} for the pages of {@code source}. */
+    <T> void forEachWhile(PageSource<T> source, ItemCondition<T> action) throws IOException {
+        try {
+            forEachWhile(new SourceIterator<>(source), action);
+        } catch (PageFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> ItemCondition<T> always(ItemAction<T> action) {
+        return item -> {
+            action.accept(item);
+            return true;
+        };
+    }
+
+    private <T> void forEachWhile(Iterator<T> items, ItemCondition<T> action) throws IOException {
+        List<T> first = new ArrayList<>(PAGE_SIZE);
+        readPage(items, first);
+        for (T item : first) {
+            if (!action.test(item)) return;
+        }
+        if (first.size() < PAGE_SIZE) {
+            // a short page is the last one; don't ask for another
+            return;
+        }
+        if (lookahead == 0) {
+            while (items.hasNext()) {
+                if (!action.test(items.next())) return;
+            }
+            return;
+        }
+
+        BlockingQueue<Object> pages = new ArrayBlockingQueue<>(lookahead);
+        Future<?> reader = READERS.submit(() -> {
+            List<T> page = new ArrayList<>(PAGE_SIZE);
+            try {
+                while (items.hasNext()) {
+                    readPage(items, page);
+                    pages.put(page);
+                    page = new ArrayList<>(PAGE_SIZE);
+                }
+                pages.put(END);
+            } catch (InterruptedException e) {
+                // consumer went away
+            } catch (RuntimeException | Error e) {
+                try {
+                    // the items read before the failure still go first, as without read-ahead
+                    if (!page.isEmpty()) {
+                        pages.put(page);
+                    }
+                    pages.put(e);
+                } catch (InterruptedException ignored) {
+                    // consumer went away
+                }
+            }
+            return null;
+        });
+        try {
+            while (true) {
+                Object next = take(pages);
+                if (next == END) {
+                    return;
+                }
+                if (next instanceof RuntimeException re) throw re;
+                if (next instanceof Error err) throw err;
+                @SuppressWarnings("unchecked")
+                List<T> page = (List<T>) next;
+                for (T item : page) {
+                    if (!action.test(item)) return;
+                }
+            }
+        } finally {
+            // no-op once the reader is done; stops it if the caller bailed out
+            reader.cancel(true);
+        }
+    }
+
+    /** Reads up to a page of {@code items} into {@code page}, which keeps what was read if a fetch fails. */
+    private static <T> void readPage(Iterator<T> items, List<T> page) {
+        while (page.size() < PAGE_SIZE && items.hasNext()) {
+            page.add(items.next());
+        }
+    }
+
+    /** The items of a {@link PageSource}, fetching a page once the previous full one is used up. */
+    private static final class SourceIterator<T> implements Iterator<T> {
+        private final PageSource<T> source;
+        private List<T> page = List.of();
+        private int index;
+        private int fetched;
+        private boolean last;
+
+        SourceIterator(PageSource<T> source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == page.size() && !last) {
+                try {
+                    page = source.fetch(++fetched);
+                } catch (IOException e) {
+                    throw new PageFailure(e);
+                }
+                index = 0;
+                last = page.size() < PAGE_SIZE;
+            }
+            return index < page.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++);
+        }
+    }
+
+    /** Carries a {@link PageSource} failure through the iterator, and the reader thread. */
+    private static final class PageFailure extends RuntimeException {
+        PageFailure(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static Object take(BlockingQueue<Object> pages) throws InterruptedIOException {
+        try {
+            return pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("Interrupted while paging").initCause(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Passes requests on to another connector and copies every response into
+ * an {@link HttpArchive}. Bodies are read in full before being handed
+ * back, already decoded, so the caller sees exactly what gets recorded.
+ */
+class RecordingConnector implements GitHubConnector {
+    private final GitHubConnector delegate;
+    private final HttpArchive archive;
+
+    RecordingConnector(GitHubConnector delegate, HttpArchive archive) {
+        this.delegate = delegate;
+        this.archive = archive;
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) throws IOException {
+        try (GitHubConnectorResponse response = delegate.send(request)) {
+            byte[] body;
+            try (InputStream in = response.bodyStream()) {
+                body = in == null ? new byte[0] : in.readAllBytes();
+            }
+            Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> e : response.allHeaders().entrySet()) {
+                // the body is decoded now, and the status line has a null name
+                if (e.getKey() != null && !e.getKey().equalsIgnoreCase("Content-Encoding")) {
+                    headers.put(e.getKey(), e.getValue());
+                }
+            }
+            archive.record(request.method(), request.url().toString(), response.statusCode(), headers, body);
+            return new BufferedResponse(request, response.statusCode(), headers, body);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers requests from an {@link HttpArchive} without touching the
+ * network. A request that was never recorded gets a 404, so a replay that
+ * strays from the recorded run fails instead of silently going online.
+ */
+class ReplayConnector implements GitHubConnector {
+    private final HttpArchive archive;
+    private final AtomicLong misses = new AtomicLong();
+
+    ReplayConnector(HttpArchive archive) {
+        this.archive = archive;
+    }
+
+    /** Requests that were not in the archive. */
+    long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public GitHubConnectorResponse send(GitHubConnectorRequest request) {
+        String url = request.url().toString();
+        HttpArchive.Entry entry = archive.next(request.method(), url);
+        if (entry == null) {
+            misses.incrementAndGet();
+            byte[] body = ("{\"message\":\"Not in archive: " + request.method() + " " + url + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            return new BufferedResponse(request, 404,
+                    Map.of("Content-Type", List.of("application/json; charset=utf-8")), body);
+        }
+        return new BufferedResponse(request, entry.status, entry.headers, entry.body);
+    }
+}
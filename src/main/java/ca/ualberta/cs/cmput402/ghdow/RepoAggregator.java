@@ -0,0 +1,50 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * One metric fed by a {@link RepoScan}. It declares which resources it needs
+ * and receives them repo by repo; the scan fetches each resource once no
+ * matter how many aggregators ask for it.
+ * <p>
+ * Callbacks all run on the scanning thread, in repository order.
+ */
+interface RepoAggregator {
+    enum Resource {
+        CLOSED_ISSUES,
+        PULL_REQUESTS,
+        BRANCH_COUNT
+    }
+
+    Set<Resource> resources();
+
+    /** Called once per repository, before any of its resources. */
+    default void onRepository(GHRepository repo) throws IOException {
+    }
+
+    /** A closed issue; pull requests are never passed here. */
+    default void onIssue(GHRepository repo, IssueRow issue) throws IOException {
+    }
+
+    /** A closed pull request. */
+    default void onPullRequest(GHRepository repo, IssueRow pr) throws IOException {
+    }
+
+    default void onBranchCount(GHRepository repo, int branches) throws IOException {
+    }
+
+    /**
+     * True if this aggregator can be fed a repository's {@link RepoPartial}
+     * instead of its items, which lets the scan skip unchanged repos.
+     */
+    default boolean acceptsPartials() {
+        return false;
+    }
+
+    /** Called instead of the item callbacks when every aggregator accepts partials. */
+    default void onPartial(GHRepository repo, RepoPartial partial) throws IOException {
+    }
+}
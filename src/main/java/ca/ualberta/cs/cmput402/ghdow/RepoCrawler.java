@@ -0,0 +1,140 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a per-repository task over a list of repositories, either serially or
+ * concurrently with at most {@code parallelism} tasks in flight.
+ * <p>
+ * Results always come back in the order of the input list, so callers that
+ * concatenate them get the same answer as the serial loop. On a JVM that has
+ * virtual threads (21+) each task gets its own virtual thread and a semaphore
+ * enforces the cap; on 17 a fixed pool of daemon threads is used instead.
+ */
+class RepoCrawler {
+    @FunctionalInterface
+    interface RepoTask<R> {
+        R apply(GHRepository repo) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface ResultSink<R> {
+        void accept(GHRepository repo, R result) throws IOException;
+    }
+
+    private final int parallelism;
+
+    RepoCrawler(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be >= 1: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    <R> List<R> map(List<GHRepository> repos, RepoTask<R> task) throws IOException {
+        List<R> results = new ArrayList<>(repos.size());
+        forEach(repos, task, (repo, result) -> results.add(result));
+        return results;
+    }
+
+    /**
+     * Runs {@code task} on every repo and hands each result to {@code sink}
+     * on the calling thread, in repo order. At most {@code 2 * parallelism}
+     * results are held at once, so a slow repo at the head of the list
+     * doesn't let the others pile up in memory.
+     */
+    <R> void forEach(List<GHRepository> repos, RepoTask<R> task, ResultSink<R> sink) throws IOException {
+        if (parallelism == 1 || repos.size() <= 1) {
+            for (GHRepository repo : repos) {
+                sink.accept(repo, task.apply(repo));
+            }
+            return;
+        }
+
+        int threads = Math.min(parallelism, repos.size());
+        int window = 2 * threads;
+        Semaphore permits = new Semaphore(threads);
+        ExecutorService executor = newExecutor(threads);
+        ArrayDeque<Future<R>> pending = new ArrayDeque<>();
+        try {
+            int next = 0;
+            for (int done = 0; done < repos.size(); done++) {
+                while (next < repos.size() && pending.size() < window) {
+                    GHRepository repo = repos.get(next++);
+                    pending.add(executor.submit(() -> {
+                        permits.acquire();
+                        try {
+                            return task.apply(repo);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                sink.accept(repos.get(done), await(pending.poll()));
+            }
+        } finally {
+            // a failed repo aborts the crawl, so don't leave the rest running
+            for (Future<R> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private static <R> R await(Future<R> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw (InterruptedIOException) new InterruptedIOException("Crawl interrupted").initCause(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new IOException(cause);
+        }
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        if (virtual != null) {
+            return virtual;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "ghdow-crawl-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    // We build against 17, so look the 21 factory up reflectively.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * What a {@link RepoScan} learned about one repository, summed up: enough to
+ * rebuild the repo-level metrics without fetching its issues, pull requests
+ * or branches again. {@code known} says which resources are filled in.
+ */
+final class RepoPartial {
+    final Set<RepoAggregator.Resource> known = EnumSet.noneOf(RepoAggregator.Resource.class);
+    OpenTimeStats issues = new OpenTimeStats();
+    OpenTimeStats pulls = new OpenTimeStats();
+    int branches;
+    /** When the oldest of these numbers was fetched, in epoch millis. */
+    long checkedAt;
+
+    RepoPartial(long checkedAt) {
+        this.checkedAt = checkedAt;
+    }
+
+    RepoPartial copy() {
+        RepoPartial p = new RepoPartial(checkedAt);
+        p.mergeFrom(this);
+        return p;
+    }
+
+    /** Takes over every resource {@code other} knows; this one's are replaced. */
+    void mergeFrom(RepoPartial other) {
+        if (other.known.contains(RepoAggregator.Resource.CLOSED_ISSUES)) {
+            issues = new OpenTimeStats().merge(other.issues);
+        }
+        if (other.known.contains(RepoAggregator.Resource.PULL_REQUESTS)) {
+            pulls = new OpenTimeStats().merge(other.pulls);
+        }
+        if (other.known.contains(RepoAggregator.Resource.BRANCH_COUNT)) {
+            branches = other.branches;
+        }
+        known.addAll(other.known);
+        checkedAt = Math.min(checkedAt, other.checkedAt);
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+        int mask = 0;
+        for (RepoAggregator.Resource r : known) {
+            mask |= 1 << r.ordinal();
+        }
+        out.writeInt(mask);
+        out.writeLong(checkedAt);
+        issues.writeTo(out);
+        pulls.writeTo(out);
+        out.writeInt(branches);
+    }
+
+    static RepoPartial readFrom(DataInput in) throws IOException {
+        int mask = in.readInt();
+        RepoPartial p = new RepoPartial(in.readLong());
+        for (RepoAggregator.Resource r : RepoAggregator.Resource.values()) {
+            if ((mask & (1 << r.ordinal())) != 0) {
+                p.known.add(r);
+            }
+        }
+        p.issues = OpenTimeStats.readFrom(in);
+        p.pulls = OpenTimeStats.readFrom(in);
+        p.branches = in.readInt();
+        return p;
+    }
+}
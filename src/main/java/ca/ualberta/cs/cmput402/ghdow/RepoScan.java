@@ -0,0 +1,257 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHException;
+import org.kohsuke.github.GHIssueState;
+import org.kohsuke.github.GHRepository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Visits every repository once and feeds the registered
+ * {@link RepoAggregator}s, fetching each resource type at most once per
+ * repository.
+ * <p>
+ * Repositories are fetched through the {@link RepoCrawler} (so possibly
+ * concurrently) and each fetch is retried as a whole by the
+ * {@link Retrier}; the aggregators themselves only ever see complete
+ * repositories, one at a time, in order.
+ * <p>
+ * Closed issues and pull requests are listed through {@link IssueQuery},
+ * so only closed ones are transferred and only their dates are kept until
+ * the repository is dispatched. Branch counts come from a
+ * {@link ListCounter} when there is a {@link RestClient}, and otherwise from
+ * counting the {@code heads} refs a page at a time; github-api only lists
+ * branches whole, into a map.
+ * <p>
+ * With a {@link RepoStateCache} every fetched repo's numbers are stored as a
+ * {@link RepoPartial}. If all aggregators accept partials, repositories
+ * whose {@code pushed_at} and {@code updated_at} haven't moved are served
+ * from the stored partial and only changed ones are fetched.
+ * <p>
+ * With a {@link CrawlJournal} every fetched repo's partial is journaled
+ * too, and repositories an interrupted run already finished are served
+ * from the journal, timestamps or not. Like the state cache, this only
+ * applies when all aggregators accept partials.
+ * <p>
+ * Limited to a {@link TimeWindow}, the scan only passes on issues and pull
+ * requests closed within it. They are listed most recently updated first
+ * from the window's start (an item closed in the window was updated since
+ * it started), so the listing stops at the first older one. Branches are
+ * counted for the repositories active in the window: created before it
+ * ends and pushed to since it started. Partials cover all of history, so a
+ * windowed scan neither reuses nor stores them.
+ */
+class RepoScan {
+    private final Retrier retrier;
+    private final RepoCrawler crawler;
+    private final RestClient rest;
+    private final ListCounter counter;
+    private final Paging paging;
+    private final RepoStateCache state;
+    private final CrawlJournal journal;
+    private final List<RepoAggregator> aggregators = new ArrayList<>();
+    private TimeWindow window = TimeWindow.ALL;
+
+    /** {@code rest} may be null to list through github-api only. */
+    RepoScan(Retrier retrier, RepoCrawler crawler, RestClient rest, Paging paging) {
+        this(retrier, crawler, rest, paging, null, null);
+    }
+
+    /** {@code state} and {@code journal} may be null to always fetch everything. */
+    RepoScan(Retrier retrier, RepoCrawler crawler, RestClient rest, Paging paging, RepoStateCache state,
+             CrawlJournal journal) {
+        this.retrier = retrier;
+        this.crawler = crawler;
+        this.rest = rest;
+        this.counter = rest == null ? null : new ListCounter(rest);
+        this.paging = paging;
+        this.state = state;
+        this.journal = journal;
+    }
+
+    RepoScan add(RepoAggregator aggregator) {
+        aggregators.add(aggregator);
+        return this;
+    }
+
+    RepoScan within(TimeWindow window) {
+        this.window = window;
+        return this;
+    }
+
+    void run(List<GHRepository> repos) throws IOException {
+        Set<RepoAggregator.Resource> needed = EnumSet.noneOf(RepoAggregator.Resource.class);
+        for (RepoAggregator aggregator : aggregators) {
+            needed.addAll(aggregator.resources());
+        }
+        boolean partials = state != null || journal != null;
+        for (RepoAggregator aggregator : aggregators) {
+            partials &= aggregator.acceptsPartials();
+        }
+        boolean usePartials = partials && window.isAll();
+        crawler.forEach(repos, repo -> fetch(repo, needed, usePartials),
+                (repo, data) -> dispatch(repo, data, usePartials));
+    }
+
+    private static final class RepoData {
+        List<IssueRow> issues = List.of();
+        List<IssueRow> pulls = List.of();
+        int branchCount;
+        Set<RepoAggregator.Resource> fetched = EnumSet.noneOf(RepoAggregator.Resource.class);
+        RepoPartial stored; // reused from the state cache or the journal, if any
+        Date pushedAt;
+        Date updatedAt;
+    }
+
+    private RepoData fetch(GHRepository repo, Set<RepoAggregator.Resource> needed, boolean usePartials)
+            throws IOException {
+        RepoData data = new RepoData();
+        Set<RepoAggregator.Resource> missing = EnumSet.noneOf(RepoAggregator.Resource.class);
+        missing.addAll(needed);
+        if (state != null) {
+            data.pushedAt = repo.getPushedAt();
+            data.updatedAt = repo.getUpdatedAt();
+            if (usePartials) {
+                data.stored = state.getPartial(repo.getFullName(), data.pushedAt, data.updatedAt);
+            }
+        }
+        if (usePartials && journal != null) {
+            RepoPartial resumed = journal.getPartial(repo.getFullName());
+            if (resumed != null && data.stored != null) {
+                data.stored.mergeFrom(resumed);
+            } else if (resumed != null) {
+                data.stored = resumed;
+            }
+        }
+        if (data.stored != null) {
+            missing.removeAll(data.stored.known);
+        }
+        if (!window.isAll() && !activeInWindow(repo)) {
+            missing.remove(RepoAggregator.Resource.BRANCH_COUNT);
+        }
+        data.fetched = missing;
+        fetchResources(repo, missing, data);
+        return data;
+    }
+
+    private void fetchResources(GHRepository repo, Set<RepoAggregator.Resource> needed, RepoData data)
+            throws IOException {
+        if (needed.contains(RepoAggregator.Resource.CLOSED_ISSUES)) {
+            data.issues = list(repo, windowed(IssueQuery.issues(GHIssueState.CLOSED)));
+        }
+        if (needed.contains(RepoAggregator.Resource.PULL_REQUESTS)) {
+            data.pulls = list(repo, windowed(IssueQuery.pullRequests(GHIssueState.CLOSED)));
+        }
+        if (needed.contains(RepoAggregator.Resource.BRANCH_COUNT)) {
+            data.branchCount = retrier.call(() -> countBranches(repo));
+        }
+    }
+
+    private IssueQuery windowed(IssueQuery query) {
+        return window.isAll() ? query : query.since(window.fromDate()).sort(IssueQuery.Sort.UPDATED, false);
+    }
+
+    /** The rows {@code query} lists that were closed within the window. */
+    private List<IssueRow> list(GHRepository repo, IssueQuery query) throws IOException {
+        return retrier.call(() -> {
+            List<IssueRow> rows = new ArrayList<>();
+            query.forEachWhile(repo, rest, paging, row -> {
+                if (window.contains(row.closedAt)) {
+                    rows.add(row);
+                }
+                return true;
+            });
+            return rows;
+        });
+    }
+
+    private boolean activeInWindow(GHRepository repo) throws IOException {
+        Date pushedAt = repo.getPushedAt();
+        Date createdAt = repo.getCreatedAt();
+        return (window.getFrom() == null || pushedAt != null && !pushedAt.before(window.fromDate()))
+                && (window.getTo() == null || createdAt == null || createdAt.before(window.toDate()));
+    }
+
+    private int countBranches(GHRepository repo) throws IOException {
+        if (counter != null) {
+            return counter.countBranches(repo.getFullName());
+        }
+        int[] count = {0};
+        try {
+            paging.forEach(repo.listRefs("heads"), ref -> count[0]++);
+        } catch (GHException e) {
+            if (!MyGithub.isEmptyRepository(e)) {
+                throw e;
+            }
+        }
+        return count[0];
+    }
+
+    /** Sums up what was fetched for {@code repo}, the way the aggregators would. */
+    private RepoPartial summarize(GHRepository repo, RepoData data) throws IOException {
+        RepoPartial partial = new RepoPartial(state != null ? state.now() : journal.now());
+        partial.known.addAll(data.fetched);
+        if (data.fetched.contains(RepoAggregator.Resource.CLOSED_ISSUES)) {
+            OpenTimeAggregator issues = OpenTimeAggregator.closedIssues();
+            for (IssueRow issue : data.issues) {
+                issues.onIssue(repo, issue);
+            }
+            partial.issues = issues.getStats();
+        }
+        if (data.fetched.contains(RepoAggregator.Resource.PULL_REQUESTS)) {
+            OpenTimeAggregator pulls = OpenTimeAggregator.closedPullRequests();
+            for (IssueRow pr : data.pulls) {
+                pulls.onPullRequest(repo, pr);
+            }
+            partial.pulls = pulls.getStats();
+        }
+        if (data.fetched.contains(RepoAggregator.Resource.BRANCH_COUNT)) {
+            partial.branches = data.branchCount;
+        }
+        return partial;
+    }
+
+    private void dispatch(GHRepository repo, RepoData data, boolean usePartials) throws IOException {
+        RepoPartial partial = null;
+        if ((state != null || journal != null) && window.isAll()) {
+            partial = summarize(repo, data);
+            if (data.stored != null) {
+                data.stored.mergeFrom(partial);
+                partial = data.stored;
+            }
+            if (state != null && !data.fetched.isEmpty()) {
+                state.putPartial(repo.getFullName(), data.pushedAt, data.updatedAt, partial);
+            }
+            if (journal != null && !data.fetched.isEmpty()) {
+                journal.putPartial(repo.getFullName(), partial);
+            }
+        }
+        for (RepoAggregator aggregator : aggregators) {
+            Set<RepoAggregator.Resource> wants = aggregator.resources();
+            aggregator.onRepository(repo);
+            if (usePartials) {
+                aggregator.onPartial(repo, partial);
+                continue;
+            }
+            if (wants.contains(RepoAggregator.Resource.CLOSED_ISSUES)) {
+                for (IssueRow issue : data.issues) {
+                    aggregator.onIssue(repo, issue);
+                }
+            }
+            if (wants.contains(RepoAggregator.Resource.PULL_REQUESTS)) {
+                for (IssueRow pr : data.pulls) {
+                    aggregator.onPullRequest(repo, pr);
+                }
+            }
+            if (wants.contains(RepoAggregator.Resource.BRANCH_COUNT)
+                    && data.fetched.contains(RepoAggregator.Resource.BRANCH_COUNT)) {
+                aggregator.onBranchCount(repo, data.branchCount);
+            }
+        }
+    }
+}
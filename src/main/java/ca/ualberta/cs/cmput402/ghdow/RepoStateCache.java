@@ -0,0 +1,201 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * On-disk record of each repository's {@code pushed_at} / {@code updated_at}
+ * as of the last crawl, with what was learned from it then.
+ * <p>
+ * A repository whose {@code pushed_at} hasn't moved has no new commits, so
+ * the commit sync skips it. Its issue, pull request and branch numbers are
+ * kept as a {@link RepoPartial} and reused while both timestamps are
+ * unchanged. Closing an issue doesn't always bump {@code updated_at}, so
+ * partials older than {@code maxAge} are fetched again regardless.
+ */
+public class RepoStateCache {
+    private static final int MAGIC = 0x67687273; // "ghrs"
+    private static final int VERSION = 2;
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final class Entry {
+        long commitsPushedAt = UNKNOWN; // pushed_at when the commits were last synced
+        long pushedAt = UNKNOWN;        // pushed_at / updated_at the partial was fetched at
+        long updatedAt = UNKNOWN;
+        RepoPartial partial;
+    }
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final Map<String, Entry> repos = new TreeMap<>();
+    private boolean dirty;
+    private long reused;
+    private long refreshed;
+    private long commitSkips;
+
+    private RepoStateCache(Path file, Duration maxAge, Clock clock) {
+        this.file = file;
+        this.maxAge = maxAge;
+        this.clock = clock;
+    }
+
+    /** Loads the state from {@code file}, or starts empty if it doesn't exist yet. */
+    public static RepoStateCache open(Path file, Duration maxAge) throws IOException {
+        return open(file, maxAge, Clock.systemUTC());
+    }
+
+    static RepoStateCache open(Path file, Duration maxAge, Clock clock) throws IOException {
+        RepoStateCache cache = new RepoStateCache(file, maxAge, clock);
+        if (Files.exists(file)) {
+            cache.load();
+        }
+        return cache;
+    }
+
+    long now() {
+        return clock.millis();
+    }
+
+    /**
+     * A copy of the partial stored for {@code repo}, or null if there is
+     * none, either timestamp moved since, or it is older than the max age.
+     */
+    synchronized RepoPartial getPartial(String repo, Date pushedAt, Date updatedAt) {
+        Entry entry = repos.get(repo);
+        if (entry == null || entry.partial == null || pushedAt == null || updatedAt == null
+                || entry.pushedAt != pushedAt.getTime() || entry.updatedAt != updatedAt.getTime()
+                || now() - entry.partial.checkedAt > maxAge.toMillis()) {
+            return null;
+        }
+        reused++;
+        return entry.partial.copy();
+    }
+
+    /** Stores what a scan learned about {@code repo}; nothing is kept without both timestamps. */
+    synchronized void putPartial(String repo, Date pushedAt, Date updatedAt, RepoPartial partial) {
+        if (pushedAt == null || updatedAt == null) return;
+        Entry entry = repos.computeIfAbsent(repo, r -> new Entry());
+        entry.pushedAt = pushedAt.getTime();
+        entry.updatedAt = updatedAt.getTime();
+        entry.partial = partial.copy();
+        refreshed++;
+        dirty = true;
+    }
+
+    /** True if {@code repo}'s commits were synced and nothing was pushed since. */
+    synchronized boolean commitsUnchanged(String repo, Date pushedAt) {
+        Entry entry = repos.get(repo);
+        boolean unchanged = entry != null && pushedAt != null && entry.commitsPushedAt == pushedAt.getTime();
+        if (unchanged) {
+            commitSkips++;
+        }
+        return unchanged;
+    }
+
+    synchronized void markCommitsSynced(String repo, Date pushedAt) {
+        if (pushedAt == null) return;
+        Entry entry = repos.computeIfAbsent(repo, r -> new Entry());
+        if (entry.commitsPushedAt != pushedAt.getTime()) {
+            entry.commitsPushedAt = pushedAt.getTime();
+            dirty = true;
+        }
+    }
+
+    public synchronized int size() {
+        return repos.size();
+    }
+
+    /** Partials served without fetching. */
+    public synchronized long getReused() {
+        return reused;
+    }
+
+    /** Partials stored after a fetch. */
+    public synchronized long getRefreshed() {
+        return refreshed;
+    }
+
+    /** Repositories whose commit sync was skipped. */
+    public synchronized long getCommitSkips() {
+        return commitSkips;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "repos=" + repos.size() + " reused=" + reused + " refreshed=" + refreshed
+                + " commitSkips=" + commitSkips;
+    }
+
+    /** Writes the state back to disk if anything changed. The file is replaced atomically. */
+    public synchronized void save() throws IOException {
+        if (!dirty) return;
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(repos.size());
+            for (Map.Entry<String, Entry> e : repos.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry.commitsPushedAt);
+                out.writeLong(entry.pushedAt);
+                out.writeLong(entry.updatedAt);
+                RepoPartial p = entry.partial;
+                out.writeBoolean(p != null);
+                if (p != null) {
+                    p.writeTo(out);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a repository state file: " + file);
+            }
+            int version = in.readInt();
+            if (version != 1 && version != VERSION) {
+                throw new IOException("Unsupported repository state version " + version + ": " + file);
+            }
+            int n = in.readInt();
+            for (int i = 0; i < n; i++) {
+                String name = in.readUTF();
+                Entry entry = new Entry();
+                entry.commitsPushedAt = in.readLong();
+                entry.pushedAt = in.readLong();
+                entry.updatedAt = in.readLong();
+                boolean hasPartial = in.readBoolean();
+                if (hasPartial && version == 1) {
+                    // open-time sums without distributions; dropped, so refetched on the next scan
+                    in.readFully(new byte[4 + 8 + 4 * 8 + 4]);
+                } else if (hasPartial) {
+                    entry.partial = RepoPartial.readFrom(in);
+                }
+                repos.put(name, entry);
+            }
+            // rewrite older files in the current format on the next save
+            dirty = version != VERSION;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads GitHub's precomputed repository statistics: {@code /stats/punch_card}
+ * (commits per UTC hour of week) and {@code /stats/contributors} (commits
+ * per author per week). Both cover the default branch only.
+ * <p>
+ * GitHub computes them on first request and answers 202 Accepted until
+ * they are ready. Every repository is asked once up front so they are all
+ * computed in parallel on GitHub's side, then only the ones still pending
+ * are asked again, in rounds with a doubling delay.
+ */
+class RepoStatsClient {
+    static final int ACCEPTED = 202;
+    static final int NO_CONTENT = 204;
+    private static final long MAX_DELAY_MILLIS = 30_000;
+
+    /** What the two endpoints said about one repository. */
+    static final class Stats {
+        final String repo;
+        /** Commits per hour of week in UTC, Sunday first; null if GitHub never finished. */
+        int[] punchCard;
+        /** Week start (epoch seconds, a Sunday in UTC) to my commits that week. */
+        final Map<Long, Integer> myWeeks = new LinkedHashMap<>();
+        int myCommits;
+        /** False if GitHub never finished computing the contributor stats. */
+        boolean contributorsKnown;
+
+        Stats(String repo) {
+            this.repo = repo;
+        }
+
+        boolean complete() {
+            return punchCard != null && contributorsKnown;
+        }
+    }
+
+    private final RestClient rest;
+    private final Retrier retrier;
+    private final int maxRounds;
+    private final long firstDelayMillis;
+    private Retrier.Sleeper sleeper = Thread::sleep;
+    private long requests;
+
+    RepoStatsClient(RestClient rest, Retrier retrier, int maxRounds, long firstDelayMillis) {
+        this.rest = rest;
+        this.retrier = retrier;
+        this.maxRounds = maxRounds;
+        this.firstDelayMillis = firstDelayMillis;
+    }
+
+    void setSleeper(Retrier.Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    /** Requests sent so far, 202s included. */
+    long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Punch card and contributor stats of every repo in {@code repos}, with
+     * {@code login}'s share of the commits; in the same order as {@code repos}.
+     */
+    List<Stats> fetch(List<String> repos, String login) throws IOException {
+        List<Stats> all = new ArrayList<>(repos.size());
+        List<Stats> pendingPunch = new ArrayList<>();
+        List<Stats> pendingContributors = new ArrayList<>();
+        for (String repo : repos) {
+            Stats s = new Stats(repo);
+            all.add(s);
+            pendingPunch.add(s);
+            pendingContributors.add(s);
+        }
+        long delay = firstDelayMillis;
+        for (int round = 0; round < maxRounds; round++) {
+            if (round > 0) {
+                if (pendingPunch.isEmpty() && pendingContributors.isEmpty()) break;
+                try {
+                    sleeper.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for repository statistics");
+                }
+                delay = Math.min(delay * 2, MAX_DELAY_MILLIS);
+            }
+            List<Stats> stillPunch = new ArrayList<>();
+            for (Stats s : pendingPunch) {
+                RestClient.Response r = get(s.repo, "/stats/punch_card");
+                if (r.status == ACCEPTED) {
+                    stillPunch.add(s);
+                } else {
+                    s.punchCard = parsePunchCard(r);
+                }
+            }
+            List<Stats> stillContributors = new ArrayList<>();
+            for (Stats s : pendingContributors) {
+                RestClient.Response r = get(s.repo, "/stats/contributors");
+                if (r.status == ACCEPTED) {
+                    stillContributors.add(s);
+                } else {
+                    parseContributors(r, login, s);
+                }
+            }
+            pendingPunch = stillPunch;
+            pendingContributors = stillContributors;
+        }
+        return all;
+    }
+
+    private RestClient.Response get(String repo, String stats) throws IOException {
+        return retrier.call(() -> {
+            requests++;
+            return rest.get(RestClient.repoPath(repo) + stats, Map.of());
+        });
+    }
+
+    /** {@code [[day, hour, commits], ...]}; an empty repository answers 204. */
+    static int[] parsePunchCard(RestClient.Response r) throws IOException {
+        int[] hours = new int[ActivityHistogram.HOURS_PER_WEEK];
+        if (r.status == NO_CONTENT) return hours;
+        JsonNode rows = r.json();
+        if (!rows.isArray()) return hours;
+        for (JsonNode row : rows) {
+            if (!row.isArray() || row.size() < 3) continue;
+            int day = row.get(0).asInt(-1);
+            int hour = row.get(1).asInt(-1);
+            if (day < 0 || day >= ActivityHistogram.DAYS || hour < 0 || hour >= 24) continue;
+            hours[day * 24 + hour] += row.get(2).asInt(0);
+        }
+        return hours;
+    }
+
+    /** {@code [{"author": {"login": ...}, "total": n, "weeks": [{"w": ..., "c": ...}]}, ...]}. */
+    static void parseContributors(RestClient.Response r, String login, Stats s) throws IOException {
+        s.contributorsKnown = true;
+        if (r.status == NO_CONTENT) return;
+        JsonNode authors = r.json();
+        if (!authors.isArray()) return;
+        for (JsonNode author : authors) {
+            String who = author.path("author").path("login").textValue();
+            if (who == null || !login.equalsIgnoreCase(who)) continue;
+            s.myCommits += author.path("total").asInt(0);
+            JsonNode weeks = author.path("weeks");
+            if (!weeks.isArray()) continue;
+            for (JsonNode week : weeks) {
+                int commits = week.path("c").asInt(0);
+                if (commits > 0) {
+                    s.myWeeks.merge(week.path("w").asLong(0), commits, Integer::sum);
+                }
+            }
+        }
+    }
+}
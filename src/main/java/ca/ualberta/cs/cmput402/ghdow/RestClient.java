@@ -0,0 +1,149 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bare GET requests for the few endpoints github-api doesn't give us a
+ * cheap handle on (e.g. reading a {@code Link} header). Requests go through
+ * the same {@link GitHubConnector} as the {@code GitHub} client, so they
+ * share its connections.
+ */
+class RestClient {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final String apiUrl;
+    private final String token;
+    private final GitHubConnector connector;
+
+    RestClient(String apiUrl, String token, GitHubConnector connector) {
+        this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        this.token = token;
+        this.connector = connector;
+    }
+
+    static final class Response {
+        final int status;
+        final Map<String, List<String>> headers;
+        final byte[] body;
+
+        Response(int status, Map<String, List<String>> headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String header(String name) {
+            return BackoffRetryPolicy.header(headers, name);
+        }
+
+        /** The body parsed as JSON; a missing node if it is empty, e.g. a 202 or 204. */
+        JsonNode json() throws IOException {
+            return JSON.readTree(body);
+        }
+    }
+
+    /** A 4xx/5xx answer, with its headers so retry policies can read the rate limit. */
+    static final class StatusException extends IOException {
+        final int status;
+        final Map<String, List<String>> headers;
+
+        StatusException(int status, Map<String, List<String>> headers, String message) {
+            super("HTTP " + status + " " + message);
+            this.status = status;
+            this.headers = headers;
+        }
+    }
+
+    /** GETs {@code path} (e.g. {@code /repos/o/r/branches}) with the given query parameters. */
+    Response get(String path, Map<String, String> query) throws IOException {
+        StringBuilder url = new StringBuilder(apiUrl).append(path);
+        char sep = path.indexOf('?') < 0 ? '?' : '&';
+        for (Map.Entry<String, String> e : query.entrySet()) {
+            url.append(sep)
+                    .append(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8))
+                    .append('=')
+                    .append(URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8));
+            sep = '&';
+        }
+        Request request = new Request(new URL(url.toString()), token);
+        try (GitHubConnectorResponse response = connector.send(request)) {
+            byte[] body;
+            try (InputStream in = response.bodyStream()) {
+                body = in == null ? new byte[0] : in.readAllBytes();
+            }
+            if (response.statusCode() >= 400) {
+                throw new StatusException(response.statusCode(), response.allHeaders(),
+                        url + ": " + new String(body, StandardCharsets.UTF_8));
+            }
+            return new Response(response.statusCode(), response.allHeaders(), body);
+        }
+    }
+
+    /** Path of a repository's API resource, e.g. {@code /repos/owner/name}. */
+    static String repoPath(String fullName) {
+        return "/repos/" + fullName;
+    }
+
+    static final class Request implements GitHubConnectorRequest {
+        private final URL url;
+        private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        Request(URL url, String token) {
+            this.url = url;
+            headers.put("Accept", List.of("application/vnd.github+json"));
+            if (token != null) {
+                headers.put("Authorization", List.of("Bearer " + token));
+            }
+        }
+
+        @Override
+        public String method() {
+            return "GET";
+        }
+
+        @Override
+        public Map<String, List<String>> allHeaders() {
+            return Collections.unmodifiableMap(headers);
+        }
+
+        @Override
+        public String header(String name) {
+            List<String> values = headers.get(name);
+            return values == null || values.isEmpty() ? null : values.get(0);
+        }
+
+        @Override
+        public String contentType() {
+            return null;
+        }
+
+        @Override
+        public InputStream body() {
+            return null;
+        }
+
+        @Override
+        public URL url() {
+            return url;
+        }
+
+        @Override
+        public boolean hasBody() {
+            return false;
+        }
+    }
+}
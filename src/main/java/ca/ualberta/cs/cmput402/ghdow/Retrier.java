@@ -0,0 +1,144 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.kohsuke.github.GHException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Optional;
+
+/**
+ * Runs GitHub calls under a {@link RetryPolicy} and a shared
+ * {@link RetryBudget}, counting what happens in {@link RetryStats}.
+ * <p>
+ * Besides {@link IOException}s it also retries the unchecked
+ * {@link GHException}s that paged iterators throw when a page fetch fails,
+ * and rethrows the original exception once it gives up.
+ */
+class Retrier {
+    @FunctionalInterface
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+    private final RetryStats stats = new RetryStats();
+    private Sleeper sleeper = Thread::sleep;
+
+    Retrier() {
+        this(new BackoffRetryPolicy(), new RetryBudget());
+    }
+
+    Retrier(RetryPolicy policy, RetryBudget budget) {
+        this.policy = policy;
+        this.budget = budget;
+    }
+
+    void setSleeper(Sleeper sleeper) {
+        this.sleeper = sleeper;
+    }
+
+    RetryPolicy getPolicy() {
+        return policy;
+    }
+
+    RetryBudget getBudget() {
+        return budget;
+    }
+
+    RetryStats getStats() {
+        return stats;
+    }
+
+    <T> T call(IOSupplier<T> op) throws IOException {
+        return call(op, policy.maxAttempts());
+    }
+
+    <T> T call(IOSupplier<T> op, int maxAttempts) throws IOException {
+        try {
+            return run(op, maxAttempts);
+        } catch (GaveUp e) {
+            if (e.unchecked != null) throw e.unchecked;
+            throw e.failure;
+        }
+    }
+
+    /** Like {@link #call} but reports a final failure on stderr and returns empty. */
+    <T> Optional<T> tryCall(IOSupplier<T> op, int maxAttempts) {
+        try {
+            return Optional.ofNullable(run(op, maxAttempts));
+        } catch (GaveUp e) {
+            System.err.println("ERROR: GitHub API operation failed after " + e.attempts + " attempts."
+                    + " Cause: " + e.failure.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private <T> T run(IOSupplier<T> op, int maxAttempts) throws GaveUp {
+        stats.calls.incrementAndGet();
+        for (int attempt = 1; ; attempt++) {
+            stats.attempts.incrementAndGet();
+            IOException failure;
+            RuntimeException unchecked = null;
+            try {
+                T result = op.get();
+                stats.succeeded.incrementAndGet();
+                budget.onSuccess();
+                return result;
+            } catch (IOException e) {
+                failure = e;
+            } catch (GHException e) {
+                if (!(e.getCause() instanceof IOException io)) {
+                    throw e;
+                }
+                failure = io;
+                unchecked = e;
+            }
+
+            RetryPolicy.Failure kind = policy.classify(failure);
+            if (kind == RetryPolicy.Failure.RATE_LIMITED) stats.rateLimited.incrementAndGet();
+            if (kind == RetryPolicy.Failure.FATAL) stats.fatal.incrementAndGet();
+
+            long delay = attempt < maxAttempts ? policy.backoffMillis(attempt, failure, kind) : -1;
+            if (delay >= 0 && !budget.tryAcquire()) {
+                stats.budgetExhausted.incrementAndGet();
+                delay = -1;
+            }
+            if (delay < 0) {
+                stats.failed.incrementAndGet();
+                throw new GaveUp(attempt, failure, unchecked);
+            }
+
+            stats.retries.incrementAndGet();
+            stats.backoffMillis.addAndGet(delay);
+            sleep(delay, failure);
+        }
+    }
+
+    private void sleep(long millis, IOException failure) throws GaveUp {
+        if (millis <= 0) return;
+        try {
+            sleeper.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException io = new InterruptedIOException("Interrupted while backing off");
+            io.initCause(e);
+            io.addSuppressed(failure);
+            stats.failed.incrementAndGet();
+            throw new GaveUp(0, io, null);
+        }
+    }
+
+    private static final class GaveUp extends Exception {
+        final int attempts;
+        final IOException failure;
+        final RuntimeException unchecked;
+
+        GaveUp(int attempts, IOException failure, RuntimeException unchecked) {
+            super(null, null, false, false);
+            this.attempts = attempts;
+            this.failure = failure;
+            this.unchecked = unchecked;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket shared by every thread that retries GitHub calls.
+ * <p>
+ * Each retry spends one token; each successful call and each second of
+ * wall time puts a fraction back. When GitHub is failing for everyone the
+ * bucket drains and callers give up instead of all hammering it together.
+ */
+public class RetryBudget {
+    private final double capacity;
+    private final double refundPerSuccess;
+    private final double refillPerSecond;
+    private final LongSupplier clock;
+    private double tokens;
+    private long lastRefill;
+
+    public RetryBudget() {
+        this(50, 0.1, 1.0);
+    }
+
+    public RetryBudget(double capacity, double refundPerSuccess, double refillPerSecond) {
+        this(capacity, refundPerSuccess, refillPerSecond, System::nanoTime);
+    }
+
+    RetryBudget(double capacity, double refundPerSuccess, double refillPerSecond, LongSupplier nanoClock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1: " + capacity);
+        }
+        this.capacity = capacity;
+        this.refundPerSuccess = refundPerSuccess;
+        this.refillPerSecond = refillPerSecond;
+        this.clock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /** Takes a token for one retry; false if the budget is spent. */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        refill();
+        tokens = Math.min(capacity, tokens + refundPerSuccess);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = clock.getAsLong();
+        double seconds = (now - lastRefill) / 1e9;
+        lastRefill = now;
+        if (seconds > 0) {
+            tokens = Math.min(capacity, tokens + seconds * refillPerSecond);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.io.IOException;
+
+/**
+ * Decides whether a failed GitHub call is worth repeating, and how long to
+ * wait first. Used by {@link Retrier}; see {@link BackoffRetryPolicy} for
+ * the default.
+ */
+public interface RetryPolicy {
+    enum Failure {
+        /** Network blips and 5xx responses: retry after a backoff. */
+        TRANSIENT,
+        /** Primary or secondary rate limit: retry once the limit resets. */
+        RATE_LIMITED,
+        /** Anything retrying can't fix, e.g. 401, 404 or 422. */
+        FATAL
+    }
+
+    /** Attempts made when a caller doesn't ask for a specific number. */
+    int maxAttempts();
+
+    Failure classify(IOException failure);
+
+    /**
+     * Milliseconds to wait after attempt number {@code attempt} (1-based)
+     * failed with {@code failure}, or a negative value to give up.
+     */
+    long backoffMillis(int attempt, IOException failure, Failure kind);
+}
@@ -0,0 +1,72 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Counters kept by a {@link Retrier}. Safe to read while calls are running. */
+public class RetryStats {
+    final AtomicLong calls = new AtomicLong();
+    final AtomicLong attempts = new AtomicLong();
+    final AtomicLong retries = new AtomicLong();
+    final AtomicLong succeeded = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong rateLimited = new AtomicLong();
+    final AtomicLong fatal = new AtomicLong();
+    final AtomicLong budgetExhausted = new AtomicLong();
+    final AtomicLong backoffMillis = new AtomicLong();
+
+    /** Operations started. */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /** Individual tries, first attempts included. */
+    public long getAttempts() {
+        return attempts.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    public long getSucceeded() {
+        return succeeded.get();
+    }
+
+    /** Operations that gave up. */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /** Failures classified as rate limiting. */
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    /** Failures classified as not worth retrying. */
+    public long getFatal() {
+        return fatal.get();
+    }
+
+    /** Retries skipped because the shared budget was spent. */
+    public long getBudgetExhausted() {
+        return budgetExhausted.get();
+    }
+
+    /** Total time spent sleeping between attempts. */
+    public long getBackoffMillis() {
+        return backoffMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "calls=" + getCalls()
+                + " attempts=" + getAttempts()
+                + " retries=" + getRetries()
+                + " succeeded=" + getSucceeded()
+                + " failed=" + getFailed()
+                + " rateLimited=" + getRateLimited()
+                + " fatal=" + getFatal()
+                + " budgetExhausted=" + getBudgetExhausted()
+                + " backoffMillis=" + getBackoffMillis();
+    }
+}
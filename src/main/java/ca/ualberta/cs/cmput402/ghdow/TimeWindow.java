@@ -0,0 +1,99 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * The time range a metric is restricted to: from {@code from} inclusive to
+ * {@code to} exclusive, either end possibly open. {@link #ALL} is all of
+ * history, which is what the metrics without a window use.
+ */
+public final class TimeWindow {
+    public static final TimeWindow ALL = new TimeWindow(null, null);
+
+    private final Instant from;
+    private final Instant to;
+
+    private TimeWindow(Instant from, Instant to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public static TimeWindow between(Instant from, Instant to) {
+        Objects.requireNonNull(from);
+        Objects.requireNonNull(to);
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Empty time window: " + from + " to " + to);
+        }
+        return new TimeWindow(from, to);
+    }
+
+    public static TimeWindow since(Instant from) {
+        return new TimeWindow(Objects.requireNonNull(from), null);
+    }
+
+    public static TimeWindow until(Instant to) {
+        return new TimeWindow(null, Objects.requireNonNull(to));
+    }
+
+    /** The {@code length} up to now, e.g. the last 90 days. */
+    public static TimeWindow last(Duration length) {
+        return last(length, Clock.systemUTC());
+    }
+
+    static TimeWindow last(Duration length, Clock clock) {
+        Instant now = clock.instant();
+        return new TimeWindow(now.minus(length), null);
+    }
+
+    /** Start of the window, or null if it reaches back to the beginning. */
+    public Instant getFrom() {
+        return from;
+    }
+
+    /** End of the window (exclusive), or null if it reaches up to now. */
+    public Instant getTo() {
+        return to;
+    }
+
+    public boolean isAll() {
+        return from == null && to == null;
+    }
+
+    public boolean contains(long epochMillis) {
+        return (from == null || epochMillis >= from.toEpochMilli())
+                && (to == null || epochMillis < to.toEpochMilli());
+    }
+
+    /** False for a null date, unless the window is {@link #ALL}. */
+    public boolean contains(Date date) {
+        return date == null ? isAll() : contains(date.getTime());
+    }
+
+    Date fromDate() {
+        return from == null ? null : Date.from(from);
+    }
+
+    Date toDate() {
+        return to == null ? null : Date.from(to);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof TimeWindow w && Objects.equals(from, w.from) && Objects.equals(to, w.to);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(from, to);
+    }
+
+    @Override
+    public String toString() {
+        if (isAll()) return "all time";
+        return (from == null ? "the beginning" : from.toString()) + " to " + (to == null ? "now" : to.toString());
+    }
+}
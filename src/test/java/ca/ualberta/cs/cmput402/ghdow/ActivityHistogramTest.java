@@ -0,0 +1,69 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ActivityHistogramTest {
+
+    private static long utc(int year, int month, int day, int hour) {
+        return ZonedDateTime.of(year, month, day, hour, 0, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+
+    private static CommitStore storeOf(long... times) {
+        CommitStore store = new CommitStore();
+        int repo = store.repoIndex("me/r1");
+        for (int i = 0; i < times.length; i++) {
+            store.add(repo, i, times[i]);
+        }
+        return store;
+    }
+
+    @Test
+    void of_bucketsByDayAndHourInUtc() {
+        // 2024-01-01 was a Monday
+        ActivityHistogram h = ActivityHistogram.of(storeOf(
+                utc(2024, 1, 1, 10),
+                utc(2024, 1, 1, 10),
+                utc(2024, 1, 7, 23)), ZoneOffset.UTC);
+
+        assertEquals(3, h.getTotal());
+        assertEquals(2, h.getCount(DayOfWeek.MONDAY));
+        assertEquals(1, h.getCount(DayOfWeek.SUNDAY));
+        assertEquals(2, h.getCount(DayOfWeek.MONDAY, 10));
+        assertEquals(1, h.getHourOfWeekCounts()[23]);
+        assertEquals(2, h.getDayCounts()[1]);
+    }
+
+    @Test
+    void of_shiftsDaysIntoTheGivenZone() {
+        // Monday 20:00 UTC is already Tuesday in Tokyo and still Monday in New York
+        CommitStore store = storeOf(utc(2024, 1, 1, 20));
+
+        assertEquals(1, ActivityHistogram.of(store, ZoneId.of("Asia/Tokyo")).getCount(DayOfWeek.TUESDAY, 5));
+        assertEquals(1, ActivityHistogram.of(store, ZoneId.of("America/New_York")).getCount(DayOfWeek.MONDAY, 15));
+    }
+
+    @Test
+    void of_followsDaylightSavingTransitions() {
+        // 03:30 UTC: New York is UTC-5 in January (22:30 Sunday), UTC-4 in July (23:30 Sunday)
+        CommitStore store = storeOf(utc(2024, 1, 8, 3), utc(2024, 7, 8, 3));
+        ActivityHistogram h = ActivityHistogram.of(store, ZoneId.of("America/New_York"));
+
+        assertEquals(2, h.getCount(DayOfWeek.SUNDAY));
+        assertEquals(1, h.getCount(DayOfWeek.SUNDAY, 22));
+        assertEquals(1, h.getCount(DayOfWeek.SUNDAY, 23));
+    }
+
+    @Test
+    void of_emptyStoreHasNoCounts() {
+        ActivityHistogram h = ActivityHistogram.of(new CommitStore(), ZoneOffset.UTC);
+        assertEquals(0, h.getTotal());
+        assertArrayEquals(new int[7], h.getDayCounts());
+    }
+}
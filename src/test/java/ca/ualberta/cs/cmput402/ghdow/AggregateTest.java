@@ -0,0 +1,118 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateTest {
+
+    private static byte[] bytesOf(Aggregate<?> aggregate) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            aggregate.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream in(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    private static OpenTimeStats openTimes(long... seconds) {
+        OpenTimeStats stats = new OpenTimeStats();
+        for (long s : seconds) {
+            stats.add(new Date(0), new Date(s * 1000));
+        }
+        return stats;
+    }
+
+    private static GapStats gaps(long... times) {
+        GapStats stats = new GapStats();
+        for (long t : times) {
+            stats.add(t);
+        }
+        return stats;
+    }
+
+    @Test
+    void openTimeStats_mergeMatchesOnePass() throws IOException {
+        OpenTimeStats left = openTimes(100, 200).merge(openTimes(300)).merge(new OpenTimeStats());
+        OpenTimeStats right = openTimes(100).merge(openTimes(200).merge(openTimes(300)));
+
+        assertEquals(openTimes(100, 200, 300).getTotalSeconds(), left.getTotalSeconds());
+        assertEquals(3, right.getCount());
+        assertEquals(200.0, right.getAverageSeconds().getAsDouble(), 1e-9);
+        assertArrayEquals(bytesOf(left), bytesOf(right));
+
+        OpenTimeStats back = OpenTimeStats.readFrom(in(bytesOf(left)));
+        assertEquals(600, back.getTotalSeconds());
+        assertEquals(3, back.getCount());
+    }
+
+    @Test
+    void openTimeStats_ignoresMissingAndNegativeDurations() {
+        OpenTimeStats stats = new OpenTimeStats();
+        assertFalse(stats.add(null, new Date(1000)));
+        assertFalse(stats.add(new Date(5000), new Date(1000)));
+        assertTrue(stats.getAverageSeconds().isEmpty());
+    }
+
+    @Test
+    void gapStats_mergedShardsGiveTheSameMeanAsSortingEverything() throws IOException {
+        // gaps 600 s and 1800 s once sorted, split across shards out of order
+        GapStats merged = gaps(2_400_000).merge(gaps(0)).merge(gaps(600_000)).merge(new GapStats());
+
+        assertEquals(3, merged.getCount());
+        assertEquals(1200.0, merged.getAverageGapSeconds().getAsDouble(), 1e-9);
+        assertTrue(gaps(42).getAverageGapSeconds().isEmpty());
+
+        GapStats back = GapStats.readFrom(in(bytesOf(merged)));
+        assertEquals(0, back.getFirstMillis());
+        assertEquals(2_400_000, back.getLastMillis());
+        assertEquals(3, back.getCount());
+    }
+
+    @Test
+    void branchStats_mergeAndRoundTrip() throws IOException {
+        BranchStats a = new BranchStats();
+        a.add(2);
+        BranchStats b = new BranchStats();
+        b.add(4);
+        b.add(0);
+
+        BranchStats merged = new BranchStats().merge(a).merge(b);
+        assertEquals(2.0, merged.getAveragePerRepo().getAsDouble(), 1e-9);
+        assertTrue(new BranchStats().getAveragePerRepo().isEmpty());
+
+        BranchStats back = BranchStats.readFrom(in(bytesOf(merged)));
+        assertEquals(6, back.getTotalBranches());
+        assertEquals(3, back.getRepoCount());
+    }
+
+    @Test
+    void activityHistogram_mergeAndRoundTrip() throws IOException {
+        CommitStore mondays = new CommitStore();
+        mondays.add("me/a", "aaaa", 1_704_103_200_000L); // Mon 2024-01-01 10:00 UTC
+        CommitStore sundays = new CommitStore();
+        sundays.add("me/b", "bbbb", 1_704_668_400_000L); // Sun 2024-01-07 23:00 UTC
+        sundays.add("me/b", "cccc", 1_704_668_400_000L);
+
+        ActivityHistogram merged = ActivityHistogram.of(mondays, ZoneOffset.UTC)
+                .merge(ActivityHistogram.of(sundays, ZoneOffset.UTC));
+        assertEquals(3, merged.getTotal());
+        assertEquals("Sunday", MyGithub.mostPopularDay(merged));
+
+        ActivityHistogram back = ActivityHistogram.readFrom(in(bytesOf(merged)));
+        assertArrayEquals(merged.getDayCounts(), back.getDayCounts());
+        assertArrayEquals(merged.getHourOfWeekCounts(), back.getHourOfWeekCounts());
+        assertEquals(3, back.getTotal());
+    }
+}
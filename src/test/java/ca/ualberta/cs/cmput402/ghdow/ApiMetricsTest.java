@@ -0,0 +1,105 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ApiMetricsTest {
+
+    private static RestClient.Request get(String url) throws IOException {
+        return new RestClient.Request(new URL(url), null);
+    }
+
+    private static void drain(GitHubConnectorResponse response) throws IOException {
+        try (response; InputStream in = response.bodyStream()) {
+            in.readAllBytes();
+        }
+    }
+
+    @Test
+    void endpointOf_groupsPathsByResource() {
+        assertEquals("user", ApiMetrics.endpointOf("/user"));
+        assertEquals("repos", ApiMetrics.endpointOf("/user/repos?per_page=100&page=3"));
+        assertEquals("repos", ApiMetrics.endpointOf("/users/octo/repos"));
+        assertEquals("repos", ApiMetrics.endpointOf("/repos/octo/hello"));
+        assertEquals("commits", ApiMetrics.endpointOf("/repos/octo/hello/commits"));
+        assertEquals("issues", ApiMetrics.endpointOf("/api/v3/repos/octo/hello/issues"));
+        assertEquals("pulls", ApiMetrics.endpointOf("/repos/octo/hello/pulls"));
+        assertEquals("branches", ApiMetrics.endpointOf("/repos/octo/hello/branches"));
+        assertEquals("stats", ApiMetrics.endpointOf("/repos/octo/hello/stats/punch_card"));
+        assertEquals("search", ApiMetrics.endpointOf("/search/commits"));
+        assertEquals("other", ApiMetrics.endpointOf("/rate_limit"));
+    }
+
+    @Test
+    void instrumentedConnector_countsRequestsBytesPagesAndRetries() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        GitHubConnector github = request -> {
+            String url = request.url().toString();
+            if (url.contains("page=2") && calls.incrementAndGet() == 1) {
+                return new BufferedResponse(request, 403,
+                        Map.of("X-RateLimit-Remaining", List.of("0")), "{}".getBytes());
+            }
+            if (url.contains("/branches")) {
+                throw new SocketTimeoutException("slow");
+            }
+            return new BufferedResponse(request, 200, Map.of(), "[1,2,3]".getBytes());
+        };
+        ApiMetrics metrics = new ApiMetrics();
+        InstrumentedConnector connector = new InstrumentedConnector(github, metrics);
+
+        drain(connector.send(get("https://api.github.com/user")));
+        drain(connector.send(get("https://api.github.com/repos/o/r/commits?page=1")));
+        drain(connector.send(get("https://api.github.com/repos/o/r/commits?page=2")));
+        drain(connector.send(get("https://api.github.com/repos/o/r/commits?page=2")));
+        assertThrows(SocketTimeoutException.class,
+                () -> connector.send(get("https://api.github.com/repos/o/r/branches")));
+
+        ApiMetrics.Endpoint commits = metrics.get("commits");
+        assertEquals(3, commits.getRequests());
+        assertEquals(2, commits.getPages());
+        assertEquals(1, commits.getErrors());
+        assertEquals(1, commits.getRateLimited());
+        assertEquals(1, commits.getRetries());
+        assertEquals(2 * 7 + 2, commits.getBytes());
+
+        ApiMetrics.Endpoint user = metrics.get("user");
+        assertEquals(1, user.getRequests());
+        assertEquals(0, user.getPages());
+        assertEquals(1, metrics.get("branches").getErrors());
+    }
+
+    @Test
+    void exports_containEveryEndpointAndHistogram() throws IOException {
+        ApiMetrics metrics = new ApiMetrics();
+        metrics.recordResponse("u1", "commits", 200, 3_000_000, true, false);
+        metrics.recordResponse("u2", "commits", 200, 700_000_000, true, false);
+        metrics.recordResponse("u3", "issues", 304, 1_000_000, true, false);
+        RetryStats retries = new RetryStats();
+
+        String prom = metrics.toPrometheus(retries);
+        assertTrue(prom.contains("ghdow_api_requests_total{endpoint=\"commits\"} 2\n"));
+        assertTrue(prom.contains("ghdow_api_cache_hits_total{endpoint=\"issues\"} 1\n"));
+        assertTrue(prom.contains("ghdow_api_latency_seconds_bucket{endpoint=\"commits\",le=\"0.005000\"} 1\n"));
+        assertTrue(prom.contains("ghdow_api_latency_seconds_bucket{endpoint=\"commits\",le=\"1.000000\"} 2\n"));
+        assertTrue(prom.contains("ghdow_api_latency_seconds_bucket{endpoint=\"commits\",le=\"+Inf\"} 2\n"));
+        assertTrue(prom.contains("ghdow_api_latency_seconds_count{endpoint=\"commits\"} 2\n"));
+        assertTrue(prom.contains("ghdow_retry_calls_total 0\n"));
+
+        String json = metrics.toJson(retries);
+        assertTrue(json.startsWith("{\"endpoints\":{\"commits\":{\"requests\":2,"));
+        assertTrue(json.contains("\"issues\":{\"requests\":1,"));
+        assertTrue(json.contains("\"retry\":{\"calls\":0,"));
+        assertTrue(json.endsWith("}}"));
+    }
+}
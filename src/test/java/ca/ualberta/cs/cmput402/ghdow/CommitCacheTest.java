@@ -0,0 +1,90 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitCacheTest {
+
+    @TempDir
+    Path tmp;
+
+    private static CommitStore commit(String repo, String sha, long time) {
+        CommitStore store = new CommitStore();
+        store.add(repo, sha, time);
+        return store;
+    }
+
+    @Test
+    void merge_deduplicatesBySha_andTracksNewestDateAsWatermark() throws IOException {
+        CommitCache cache = CommitCache.open(tmp.resolve("commits.bin"));
+
+        assertNull(cache.getWatermark("me/r1"));
+        CommitStore fetched = new CommitStore();
+        fetched.add("me/r1", "aaa", 2_000L);
+        fetched.add("me/r1", "bbb", 1_000L);
+        assertEquals(2, cache.merge("me/r1", fetched));
+        assertEquals(0, cache.merge("me/r1", commit("me/r1", "aaa", 2_000L)));
+
+        assertEquals(2, cache.size("me/r1"));
+        assertEquals(new Date(2_000L), cache.getWatermark("me/r1"));
+    }
+
+    @Test
+    void save_thenOpen_roundTripsCommitsAndWatermarks() throws IOException {
+        Path file = tmp.resolve("nested").resolve("commits.bin");
+        CommitCache cache = CommitCache.open(file);
+        cache.merge("me/r1", commit("me/r1", "aaa", 1_000L));
+        cache.merge("me/r2", commit("me/r2", "bbb", 5_000L));
+        cache.touch("me/empty");
+        cache.save();
+
+        CommitCache reopened = CommitCache.open(file);
+        assertEquals(new Date(1_000L), reopened.getWatermark("me/r1"));
+        assertEquals(new Date(5_000L), reopened.getWatermark("me/r2"));
+        assertNull(reopened.getWatermark("me/empty"));
+        assertEquals(0, reopened.merge("me/r2", commit("me/r2", "bbb", 5_000L)));
+
+        CommitStore store = reopened.snapshot(List.of("me/r2", "me/r1", "me/unknown"));
+        assertEquals(2, store.size());
+        assertEquals(5_000L, store.time(0));
+        assertEquals("me/r2", store.repoName(store.repo(0)));
+        assertEquals(1_000L, store.time(1));
+        assertEquals("me/r1", store.repoName(store.repo(1)));
+    }
+
+    @Test
+    void merge_skipsCommitsAlreadyCached() throws IOException {
+        CommitCache cache = CommitCache.open(tmp.resolve("commits.bin"));
+        cache.merge("me/r1", commit("me/r1", "aaaaaaaaaaaaaaaa1", 1_000L));
+
+        CommitStore fetched = new CommitStore();
+        fetched.add("me/r1", "aaaaaaaaaaaaaaaa1", 1_000L);
+        fetched.add("me/r1", "bbbbbbbbbbbbbbbb2", 3_000L);
+
+        assertEquals(1, cache.merge("me/r1", fetched));
+        assertEquals(2, cache.size("me/r1"));
+        assertEquals(new Date(3_000L), cache.getWatermark("me/r1"));
+    }
+
+    @Test
+    void searchWatermark_isKeptApartFromRepos_andSurvivesSave() throws IOException {
+        Path file = tmp.resolve("commits.bin");
+        CommitCache cache = CommitCache.open(file);
+        cache.merge("other/lib", commit("other/lib", "ccc", 2_000L));
+        cache.setSearchWatermark("me", new Date(2_000L));
+        cache.setSearchWatermark("me", new Date(1_000L)); // never moves back
+        cache.save();
+
+        CommitCache reopened = CommitCache.open(file);
+        assertEquals(new Date(2_000L), reopened.getSearchWatermark("me"));
+        assertNull(reopened.getSearchWatermark("someone"));
+        assertEquals(List.of("other/lib"), reopened.repoNames());
+    }
+}
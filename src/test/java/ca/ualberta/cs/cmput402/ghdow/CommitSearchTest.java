@@ -0,0 +1,189 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitSearchTest {
+
+    /** Answers every search with {@code answer(query params)}. */
+    private static final class FakeRest extends RestClient {
+        final List<Map<String, String>> queries = new ArrayList<>();
+        final Function<Map<String, String>, String> answer;
+
+        FakeRest(Function<Map<String, String>, String> answer) {
+            super("https://api.github.com", null, null);
+            this.answer = answer;
+        }
+
+        @Override
+        Response get(String path, Map<String, String> query) {
+            assertEquals("/search/commits", path);
+            queries.add(query);
+            return new Response(200, Map.of(), answer.apply(query).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String item(String repo, String sha, String date) {
+        return "{\"sha\":\"" + sha + "\",\"commit\":{\"committer\":{\"date\":\"" + date + "\"}},"
+                + "\"repository\":{\"full_name\":\"" + repo + "\"}}";
+    }
+
+    private static String page(int total, String... items) {
+        return "{\"total_count\":" + total + ",\"incomplete_results\":false,\"items\":["
+                + String.join(",", items) + "]}";
+    }
+
+    private static final Clock NOW = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void search_underTheCap_readsOneUnfilteredQuery() throws IOException {
+        FakeRest rest = new FakeRest(q -> page(2,
+                item("me/app", "aaaaaaaaaaaaaaaa01", "2024-01-01T10:00:00Z"),
+                item("them/lib", "bbbbbbbbbbbbbbbb02", "2024-01-02T10:00:00.000-07:00")));
+        CommitSearch search = new CommitSearch(rest, new Retrier(), NOW);
+
+        CommitStore store = search.search("me", null);
+
+        assertEquals(2, store.size());
+        assertEquals("them/lib", store.repoName(store.repo(1)));
+        assertEquals(Instant.parse("2024-01-02T17:00:00Z").toEpochMilli(), store.time(1));
+        assertEquals(1, search.getRequests());
+        assertEquals(1, search.getWindows());
+        assertEquals("author:me", rest.queries.get(0).get("q"));
+        assertEquals("committer-date", rest.queries.get(0).get("sort"));
+        assertEquals(new Date(store.time(1)), search.getNewest());
+        assertFalse(search.isIncomplete());
+    }
+
+    /** Answers like GitHub would for {@code commits} (epoch seconds, ascending), capped at 1000 results. */
+    private static String answer(long[] commits, Map<String, String> q) {
+        String query = q.get("q");
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        int at = query.indexOf("committer-date:");
+        if (at >= 0) {
+            String[] range = query.substring(at + "committer-date:".length()).split("\\.\\.");
+            from = Instant.parse(range[0]).getEpochSecond();
+            to = Instant.parse(range[1]).getEpochSecond();
+        }
+        List<Long> matching = new ArrayList<>();
+        for (long t : commits) {
+            if (t >= from && t <= to) matching.add(t);
+        }
+        int first = (Integer.parseInt(q.get("page")) - 1) * 100;
+        List<String> items = new ArrayList<>();
+        for (int i = first; i < Math.min(first + 100, Math.min(matching.size(), CommitSearch.RESULT_CAP)); i++) {
+            long t = matching.get(i);
+            items.add(item("me/app", String.format("%016x", t), Instant.ofEpochSecond(t).toString()));
+        }
+        return page(matching.size(), items.toArray(new String[0]));
+    }
+
+    @Test
+    void search_overTheCap_splitsIntoDateWindows() throws IOException {
+        // 1500 commits within a day in 2015, then 300 in 2023
+        long[] commits = new long[1800];
+        for (int i = 0; i < 1500; i++) {
+            commits[i] = Instant.parse("2015-01-01T00:00:00Z").getEpochSecond() + i * 50L;
+        }
+        for (int i = 0; i < 300; i++) {
+            commits[1500 + i] = Instant.parse("2023-01-01T00:00:00Z").getEpochSecond() + i * 3600L;
+        }
+        FakeRest rest = new FakeRest(q -> answer(commits, q));
+        CommitSearch search = new CommitSearch(rest, new Retrier(), NOW);
+
+        CommitStore store = search.search("me", null);
+
+        assertEquals(1800, store.size());
+        long[] shas = store.shasCopy();
+        assertEquals(1800, Arrays.stream(shas).distinct().count());
+        assertTrue(search.getWindows() >= 3, "windows: " + search.getWindows());
+        assertFalse(search.isIncomplete());
+        assertEquals(new Date(commits[1799] * 1000), search.getNewest());
+    }
+
+    @Test
+    void search_since_usesOneWindowFromTheWatermark() throws IOException {
+        FakeRest rest = new FakeRest(q -> page(0));
+        CommitSearch search = new CommitSearch(rest, new Retrier(), NOW);
+
+        CommitStore store = search.search("me", Date.from(Instant.parse("2024-05-01T12:00:00.500Z")));
+
+        assertTrue(store.isEmpty());
+        assertNull(search.getNewest());
+        assertEquals("author:me committer-date:2024-05-01T12:00:00Z..2024-06-01T23:59:59Z",
+                rest.queries.get(0).get("q"));
+    }
+
+    @Test
+    void search_window_skipsTheUnfilteredQueryAndEndsBeforeUntil() throws IOException {
+        FakeRest rest = new FakeRest(q -> page(0));
+        CommitSearch search = new CommitSearch(rest, new Retrier(), NOW);
+
+        search.search("me", null, Date.from(Instant.parse("2024-03-01T00:00:00Z")));
+
+        assertEquals(1, search.getRequests());
+        assertEquals("author:me committer-date:1970-01-01T00:00:00Z..2024-02-29T23:59:59Z",
+                rest.queries.get(0).get("q"));
+    }
+
+    @Test
+    void search_pagesUntilTheLastShortPage() throws IOException {
+        FakeRest rest = new FakeRest(q -> {
+            int p = Integer.parseInt(q.get("page"));
+            List<String> items = new ArrayList<>();
+            int n = p < 3 ? 100 : 20;
+            for (int i = 0; i < n; i++) {
+                items.add(item("me/app", String.format("%016x", p * 1000 + i), "2024-01-01T00:00:00Z"));
+            }
+            return page(220, items.toArray(new String[0]));
+        });
+        CommitSearch search = new CommitSearch(rest, new Retrier(), NOW);
+
+        assertEquals(220, search.search("me", null).size());
+        assertEquals(3, search.getRequests());
+    }
+
+    @Test
+    void union_dropsCommitsTheListingAlreadyFound() {
+        CommitStore listed = new CommitStore();
+        listed.add("me/app", "aaaaaaaaaaaaaaaa01", 1_000L);
+        listed.add("me/app", "cccccccccccccccc03", 3_000L);
+        CommitStore searched = new CommitStore();
+        searched.add("them/fork", "aaaaaaaaaaaaaaaa01", 1_000L); // same SHA in a fork: dropped too
+        searched.add("me/app", "aaaaaaaaaaaaaaaa01", 1_000L);
+        searched.add("them/lib", "bbbbbbbbbbbbbbbb02", 2_000L);
+
+        CommitStore all = CommitSearch.union(listed, searched);
+
+        assertEquals(3, all.size());
+        assertEquals("them/lib", all.repoName(all.repo(2)));
+        assertEquals(2_000L, all.time(2));
+    }
+
+    @Test
+    void union_keepsRowsWithoutASha() {
+        CommitStore listed = new CommitStore();
+        listed.add("me/app", null, 1_000L);
+        CommitStore searched = new CommitStore();
+        searched.add("them/lib", null, 2_000L);
+
+        CommitStore all = CommitSearch.union(listed, searched);
+
+        assertEquals(2, all.size());
+        assertEquals("them/lib", all.repoName(all.repo(1)));
+    }
+}
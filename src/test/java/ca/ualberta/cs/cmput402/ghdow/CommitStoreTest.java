@@ -0,0 +1,52 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitStoreTest {
+
+    @Test
+    void fingerprint_usesLeadingHexDigitsOfSha() {
+        assertEquals(0x0123456789abcdefL,
+                CommitStore.fingerprint("0123456789abcdef0123456789abcdef01234567"));
+        assertEquals(CommitStore.fingerprint("not-a-sha"), CommitStore.fingerprint("not-a-sha"));
+        assertNotEquals(CommitStore.fingerprint("not-a-sha"), CommitStore.fingerprint("not-a-shb"));
+    }
+
+    @Test
+    void add_growsPastInitialCapacity() {
+        CommitStore store = new CommitStore(1);
+        int repo = store.repoIndex("me/r1");
+        for (int i = 0; i < 1000; i++) {
+            store.add(repo, i, i * 1000L);
+        }
+        assertEquals(1000, store.size());
+        assertEquals(999_000L, store.time(999));
+        assertEquals(999L, store.sha(999));
+        assertEquals(1000, store.timesCopy().length);
+    }
+
+    @Test
+    void addAll_remapsRepositoriesByName() {
+        CommitStore a = new CommitStore();
+        a.add("me/x", "aaaaaaaaaaaaaaaa", 1L);
+
+        CommitStore b = new CommitStore();
+        b.add("me/y", "bbbbbbbbbbbbbbbb", 2L);
+        b.add("me/x", "cccccccccccccccc", 3L);
+
+        a.addAll(b);
+        assertEquals(3, a.size());
+        assertEquals(2, a.repoCount());
+        assertEquals("me/y", a.repoName(a.repo(1)));
+        assertEquals("me/x", a.repoName(a.repo(2)));
+        assertEquals(a.repo(0), a.repo(2));
+    }
+
+    @Test
+    void add_rejectsUnknownRepoIndex() {
+        CommitStore store = new CommitStore();
+        assertThrows(IndexOutOfBoundsException.class, () -> store.add(0, 1L, 1L));
+    }
+}
@@ -0,0 +1,149 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorRequest;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConditionalCacheTest {
+
+    /** Answers 304 when the client already has the current ETag. */
+    private static final class FakeGitHub implements GitHubConnector {
+        final List<String> conditions = new ArrayList<>();
+        String etag = "\"v1\"";
+
+        @Override
+        public GitHubConnectorResponse send(GitHubConnectorRequest request) {
+            String ifNoneMatch = request.header("If-None-Match");
+            conditions.add(String.valueOf(ifNoneMatch));
+            if (etag.equals(ifNoneMatch)) {
+                return new BufferedResponse(request, 304, Map.of("X-RateLimit-Remaining", List.of("4000")),
+                        new byte[0]);
+            }
+            return new BufferedResponse(request, 200, Map.of(
+                    "ETag", List.of(etag),
+                    "Link", List.of("<https://api.github.com/user/repos?page=2>; rel=\"next\""),
+                    "X-RateLimit-Remaining", List.of("4999")),
+                    ("body of " + request.url() + " at " + etag).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static RestClient.Request get(String url, String token) throws IOException {
+        return new RestClient.Request(new URL(url), token);
+    }
+
+    private static String body(GitHubConnectorResponse response) throws IOException {
+        try (response; InputStream in = response.bodyStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void notModified_servesCachedBodyAndHeaders() throws IOException {
+        FakeGitHub github = new FakeGitHub();
+        ConditionalCache cache = ConditionalCache.inMemory(1 << 20);
+        CachingConnector connector = new CachingConnector(github, cache);
+        String url = "https://api.github.com/user/repos?page=1";
+
+        String first = body(connector.send(get(url, "t")));
+        GitHubConnectorResponse again = connector.send(get(url, "t"));
+
+        assertEquals(200, again.statusCode());
+        assertEquals(first, body(again));
+        assertEquals("<https://api.github.com/user/repos?page=2>; rel=\"next\"", again.header("Link"));
+        assertEquals("4000", again.header("X-RateLimit-Remaining"));
+        assertEquals(List.of("null", "\"v1\""), github.conditions);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        github.etag = "\"v2\"";
+        assertTrue(body(connector.send(get(url, "t"))).endsWith("\"v2\""));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void differentTokensDontShareEntries() throws IOException {
+        FakeGitHub github = new FakeGitHub();
+        CachingConnector connector = new CachingConnector(github, ConditionalCache.inMemory(1 << 20));
+        body(connector.send(get("https://api.github.com/user", "alice")));
+        body(connector.send(get("https://api.github.com/user", "bob")));
+        assertEquals(List.of("null", "null"), github.conditions);
+    }
+
+    @Test
+    void differentMediaTypesDontShareEntries() throws IOException {
+        URL url = new URL("https://api.github.com/search/commits?q=author:me");
+        GitHubConnectorRequest json = mock(GitHubConnectorRequest.class);
+        when(json.url()).thenReturn(url);
+        when(json.header("Accept")).thenReturn("application/vnd.github+json");
+        GitHubConnectorRequest preview = mock(GitHubConnectorRequest.class);
+        when(preview.url()).thenReturn(url);
+        when(preview.header("Accept")).thenReturn("application/vnd.github.cloak-preview+json");
+
+        assertNotEquals(CachingConnector.key(json), CachingConnector.key(preview));
+        assertEquals(CachingConnector.key(json), CachingConnector.key(get(url.toString(), null)));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondSizeLimit() {
+        ConditionalCache cache = ConditionalCache.inMemory(1000);
+        cache.put("a", new ConditionalCache.Entry("a", null, Map.of(), new byte[200]));
+        cache.put("b", new ConditionalCache.Entry("b", null, Map.of(), new byte[200]));
+        cache.put("c", new ConditionalCache.Entry("c", null, Map.of(), new byte[200]));
+        assertNotNull(cache.get("a")); // a is now the most recent
+        cache.put("d", new ConditionalCache.Entry("d", null, Map.of(), new byte[200]));
+        cache.put("e", new ConditionalCache.Entry("e", null, Map.of(), new byte[200]));
+        cache.put("f", new ConditionalCache.Entry("f", null, Map.of(), new byte[200]));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(1000, cache.getBytes());
+        assertEquals(1, cache.getEvictions());
+
+        // too big to be worth keeping
+        cache.put("huge", new ConditionalCache.Entry("h", null, Map.of(), new byte[400]));
+        assertNull(cache.get("huge"));
+    }
+
+    @Test
+    void saveAndOpen_keepEntriesAndRecency(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("responses.bin");
+        ConditionalCache cache = ConditionalCache.open(file, 1000);
+        cache.put("old", new ConditionalCache.Entry("\"1\"", null, Map.of(), new byte[240]));
+        cache.put("new", new ConditionalCache.Entry(null, "Mon, 01 Jan 2024 00:00:00 GMT",
+                Map.of("Link", List.of("x")), "hello".getBytes(StandardCharsets.UTF_8)));
+        cache.get("old");
+        cache.save();
+
+        ConditionalCache reopened = ConditionalCache.open(file, 1000);
+        assertEquals(2, reopened.size());
+        ConditionalCache.Entry entry = reopened.get("new");
+        assertNull(entry.etag);
+        assertEquals("Mon, 01 Jan 2024 00:00:00 GMT", entry.lastModified);
+        assertEquals(List.of("x"), entry.headers.get("link"));
+        assertEquals("hello", new String(entry.body, StandardCharsets.UTF_8));
+
+        // "new" was the least recently used when saved, so it goes first
+        reopened = ConditionalCache.open(file, 1000);
+        reopened.put("a", new ConditionalCache.Entry("a", null, Map.of(), new byte[250]));
+        reopened.put("b", new ConditionalCache.Entry("b", null, Map.of(), new byte[250]));
+        reopened.put("c", new ConditionalCache.Entry("c", null, Map.of(), new byte[250]));
+        assertEquals(0, reopened.getEvictions());
+        reopened.put("d", new ConditionalCache.Entry("d", null, Map.of(), new byte[10]));
+        assertNull(reopened.get("new"));
+        assertNotNull(reopened.get("old"));
+    }
+}
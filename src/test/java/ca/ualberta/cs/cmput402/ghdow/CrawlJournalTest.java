@@ -0,0 +1,122 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrawlJournalTest {
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final Clock NOW = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private static CommitStore page(long... times) {
+        CommitStore page = new CommitStore();
+        for (long t : times) {
+            page.add(page.repoIndex("ignored"), t * 31, t);
+        }
+        return page;
+    }
+
+    @Test
+    void pagesAndFinishedRepos_surviveAReopen(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file, DAY, NOW);
+        assertFalse(journal.isResumed());
+        journal.addCommitPage("me/done", page(500, 400));
+        journal.markCommitsDone("me/done");
+        journal.addCommitPage("me/half", page(900, 800));
+        journal.addCommitPage("me/half", page(700));
+        journal.close(); // as if the run died here
+
+        CrawlJournal resumed = CrawlJournal.open(file, DAY, NOW);
+
+        assertTrue(resumed.isResumed());
+        assertTrue(resumed.isCommitsDone("me/done"));
+        assertFalse(resumed.isCommitsDone("me/half"));
+        CommitStore half = resumed.getCommits("me/half");
+        assertEquals(3, half.size());
+        assertEquals("me/half", half.repoName(0));
+        assertEquals(800 * 31, half.sha(1));
+        assertEquals(new Date(700), resumed.getCommitCursor("me/half"));
+        assertNull(resumed.getCommitCursor("me/new"));
+        assertEquals(2, resumed.getCommits("me/done").size());
+        assertEquals(1, resumed.getResumed());
+    }
+
+    @Test
+    void tornLastRecord_isDroppedAndTheJournalStaysAppendable(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file, DAY, NOW);
+        journal.addCommitPage("me/r", page(300, 200));
+        journal.addCommitPage("me/r", page(100));
+        journal.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        CrawlJournal reopened = CrawlJournal.open(file, DAY, NOW);
+        assertEquals(new Date(200), reopened.getCommitCursor("me/r"));
+        reopened.addCommitPage("me/r", page(150));
+        reopened.markCommitsDone("me/r");
+        reopened.close();
+
+        CrawlJournal again = CrawlJournal.open(file, DAY, NOW);
+        assertTrue(again.isCommitsDone("me/r"));
+        assertEquals(3, again.getCommits("me/r").size());
+    }
+
+    @Test
+    void partials_surviveAReopen(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file, DAY, NOW);
+        RepoPartial p = new RepoPartial(NOW.millis());
+        p.known.add(RepoAggregator.Resource.BRANCH_COUNT);
+        p.branches = 7;
+        journal.putPartial("me/r", p);
+        journal.close();
+
+        RepoPartial back = CrawlJournal.open(file, DAY, NOW).getPartial("me/r");
+
+        assertEquals(7, back.branches);
+        assertTrue(back.known.contains(RepoAggregator.Resource.BRANCH_COUNT));
+    }
+
+    @Test
+    void oldJournal_startsOver(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file, DAY, NOW);
+        journal.addCommitPage("me/r", page(100));
+        journal.markCommitsDone("me/r");
+        journal.close();
+
+        Clock later = Clock.offset(NOW, DAY.plusMinutes(1));
+        CrawlJournal reopened = CrawlJournal.open(file, DAY, later);
+
+        assertFalse(reopened.isResumed());
+        assertFalse(reopened.isCommitsDone("me/r"));
+    }
+
+    @Test
+    void finish_deletesTheFile(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal journal = CrawlJournal.open(file, DAY, NOW);
+        journal.addCommitPage("me/r", page(100));
+        assertTrue(Files.exists(file));
+
+        journal.finish();
+
+        assertTrue(journal.isFinished());
+        assertFalse(Files.exists(file));
+        assertFalse(CrawlJournal.open(file, DAY, NOW).isResumed());
+    }
+}
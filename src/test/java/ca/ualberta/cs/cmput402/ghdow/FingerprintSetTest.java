@@ -0,0 +1,67 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintSetTest {
+
+    @Test
+    void add_matchesHashSetAcrossGrowth() {
+        FingerprintSet set = new FingerprintSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            // plenty of repeats, and keys that differ only in their low bits
+            long fp = random.nextInt(3) == 0 ? random.nextInt(1000) : random.nextLong() << 20;
+            assertEquals(expected.add(fp), set.add(fp));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long fp : expected) {
+            assertTrue(set.contains(fp));
+        }
+        assertFalse(set.contains(1001));
+    }
+
+    @Test
+    void zeroIsAnOrdinaryKey() {
+        FingerprintSet set = new FingerprintSet(4);
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void distinct_keepsFirstOccurrenceOfEachSha() {
+        CommitStore store = new CommitStore();
+        store.add("me/app", "aaaaaaaaaaaaaaaa", 1_000L);
+        store.add("me/app-fork", "aaaaaaaaaaaaaaaa", 1_000L);
+        store.add("me/app-fork", "bbbbbbbbbbbbbbbb", 2_000L);
+
+        CommitStore unique = MyGithub.distinct(store);
+
+        assertEquals(2, unique.size());
+        assertEquals("me/app", unique.repoName(unique.repo(0)));
+        assertEquals("me/app-fork", unique.repoName(unique.repo(1)));
+        assertEquals(2_000L, unique.time(1));
+    }
+
+    @Test
+    void distinct_keepsEveryRowWithoutASha() {
+        CommitStore store = new CommitStore();
+        store.add("me/app", null, 1_000L);
+        store.add("me/app", null, 2_000L);
+        store.add("me/app-fork", null, 2_000L);
+
+        CommitStore unique = MyGithub.distinct(store);
+
+        assertEquals(3, unique.size());
+        assertEquals("me/app-fork", unique.repoName(unique.repo(2)));
+    }
+}
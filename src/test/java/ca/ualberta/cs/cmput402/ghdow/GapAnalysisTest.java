@@ -0,0 +1,104 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GapAnalysisTest {
+
+    @Test
+    void radixSort_matchesArraysSort() {
+        Random random = new Random(7);
+        long[] a = new long[10_000];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = 1_400_000_000_000L + (random.nextLong() & ((1L << 38) - 1));
+        }
+        long[] expected = a.clone();
+        Arrays.sort(expected);
+
+        RadixSort.sort(a);
+
+        assertArrayEquals(expected, a);
+    }
+
+    @Test
+    void radixSort_handlesNegativesAndFullRange() {
+        long[] a = {5, Long.MIN_VALUE, -1, Long.MAX_VALUE, 0, 5, -42};
+        long[] expected = a.clone();
+        Arrays.sort(expected);
+
+        RadixSort.sort(a);
+
+        assertArrayEquals(expected, a);
+    }
+
+    @Test
+    void analysis_unsortedTimes() {
+        // gaps of 10s, 20s, 30s and 1000s once sorted
+        long[] times = {60_000, 0, 1_060_000, 10_000, 30_000};
+
+        GapAnalysis gaps = GapAnalysis.ofTimes(times);
+
+        assertEquals(5, gaps.getCommitCount());
+        assertEquals(4, gaps.getGapCount());
+        assertEquals(265.0, gaps.getAverageGapSeconds().getAsDouble(), 1e-9);
+        assertEquals(25.0, gaps.getMedianGapSeconds().getAsDouble(), 1e-9);
+        assertEquals(1000.0, gaps.getLongestGapSeconds(), 1e-9);
+        assertEquals(60_000, gaps.getLongestGapStartMillis());
+        assertEquals(1_060_000, gaps.getLongestGapEndMillis());
+        assertEquals(10.0, gaps.getPercentileGapSeconds(0).getAsDouble(), 1e-9);
+        assertEquals(30.0, gaps.getPercentileGapSeconds(75).getAsDouble(), 1e-9);
+        assertEquals(1000.0, gaps.getPercentileGapSeconds(100).getAsDouble(), 1e-9);
+        assertEquals(4, gaps.getDistribution().getCount());
+    }
+
+    @Test
+    void analysis_averageMatchesGapStats() {
+        CommitStore store = new CommitStore();
+        Random random = new Random(3);
+        GapStats stats = new GapStats();
+        for (int i = 0; i < 1000; i++) {
+            long t = random.nextInt(1_000_000_000);
+            store.add("o/r", "sha" + i, t);
+            stats.add(t);
+        }
+
+        GapAnalysis gaps = GapAnalysis.of(store);
+
+        assertEquals(stats.getAverageGapSeconds().getAsDouble(),
+                gaps.getAverageGapSeconds().getAsDouble(), 1e-9);
+        assertEquals(store.size(), gaps.getCommitCount());
+    }
+
+    @Test
+    void analysis_subSecondGapsAgreeWithGapStats() {
+        // gaps of 1.5s and 2s; cut to whole seconds the median would be 1.5
+        long[] times = {0, 1_500, 3_500};
+        GapStats stats = new GapStats();
+        for (long t : times) {
+            stats.add(t);
+        }
+
+        GapAnalysis gaps = GapAnalysis.ofTimes(times);
+
+        double mean = stats.getAverageGapSeconds().getAsDouble();
+        assertEquals(1.75, mean, 1e-9);
+        assertEquals(mean, gaps.getAverageGapSeconds().getAsDouble(), 1e-9);
+        assertEquals(mean, gaps.getMedianGapSeconds().getAsDouble(), 1e-9);
+        assertEquals(1.5, gaps.getPercentileGapSeconds(50).getAsDouble(), 1e-9);
+        assertEquals(2.0, gaps.getLongestGapSeconds(), 1e-9);
+    }
+
+    @Test
+    void analysis_tooFewCommits() {
+        GapAnalysis one = GapAnalysis.ofTimes(new long[]{42});
+
+        assertTrue(one.getAverageGapSeconds().isEmpty());
+        assertTrue(one.getMedianGapSeconds().isEmpty());
+        assertEquals(0.0, one.getLongestGapSeconds(), 1e-9);
+        assertEquals(0, one.getDistribution().getCount());
+    }
+}
@@ -0,0 +1,100 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.kohsuke.github.connector.GitHubConnector;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpArchiveTest {
+
+    private static RestClient.Request get(String url) throws IOException {
+        return new RestClient.Request(new URL(url), "secret");
+    }
+
+    private static String body(GitHubConnectorResponse response) throws IOException {
+        try (InputStream in = response.bodyStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void recordThenReplay_servesSameStatusHeadersAndBodyOffline(@TempDir Path dir) throws IOException {
+        AtomicInteger live = new AtomicInteger();
+        GitHubConnector github = request -> {
+            int n = live.incrementAndGet();
+            String url = request.url().toString();
+            if (url.endsWith("page=2") && n == 2) {
+                return new BufferedResponse(request, 502, Map.of(), "{\"message\":\"bad gateway\"}".getBytes());
+            }
+            return new BufferedResponse(request, 200, Map.of(
+                    "Link", List.of("<https://api.github.com/user/repos?page=2>; rel=\"next\""),
+                    "Set-Cookie", List.of("dropped"),
+                    "X-RateLimit-Remaining", List.of("4999")),
+                    ("[\"" + url + "\"]").getBytes(StandardCharsets.UTF_8));
+        };
+
+        HttpArchive archive = new HttpArchive();
+        RecordingConnector recorder = new RecordingConnector(github, archive);
+        assertEquals(200, recorder.send(get("https://api.github.com/user/repos?page=1")).statusCode());
+        assertEquals(502, recorder.send(get("https://api.github.com/user/repos?page=2")).statusCode());
+        assertEquals(200, recorder.send(get("https://api.github.com/user/repos?page=2")).statusCode());
+        assertEquals(3, archive.size());
+
+        Path file = dir.resolve("run.gha");
+        archive.save(file);
+        ReplayConnector replayer = new ReplayConnector(HttpArchive.load(file));
+
+        GitHubConnectorResponse first = replayer.send(get("https://api.github.com/user/repos?page=1"));
+        assertEquals(200, first.statusCode());
+        assertEquals("[\"https://api.github.com/user/repos?page=1\"]", body(first));
+        assertEquals("<https://api.github.com/user/repos?page=2>; rel=\"next\"", first.header("link"));
+        assertEquals("4999", first.header("X-RateLimit-Remaining"));
+        assertNull(first.header("Set-Cookie"));
+
+        // the retried URL plays back in recorded order, then sticks on the last answer
+        assertEquals(502, replayer.send(get("https://api.github.com/user/repos?page=2")).statusCode());
+        assertEquals(200, replayer.send(get("https://api.github.com/user/repos?page=2")).statusCode());
+        assertEquals(200, replayer.send(get("https://api.github.com/user/repos?page=2")).statusCode());
+        assertEquals(0, replayer.getMisses());
+        assertEquals(3, live.get());
+    }
+
+    @Test
+    void replay_unknownRequestIs404(@TempDir Path dir) throws IOException {
+        HttpArchive archive = new HttpArchive();
+        archive.record("GET", "https://api.github.com/user", 200, Map.of(), "{}".getBytes());
+        Path file = dir.resolve("run.gha");
+        archive.save(file);
+
+        ReplayConnector replayer = new ReplayConnector(HttpArchive.load(file));
+        GitHubConnectorResponse miss = replayer.send(get("https://api.github.com/user/repos"));
+        assertEquals(404, miss.statusCode());
+        assertTrue(body(miss).contains("Not in archive"));
+        assertEquals(1, replayer.getMisses());
+    }
+
+    @Test
+    void bufferedResponse_gunzipsABodyStillMarkedGzip() throws IOException {
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(zipped)) {
+            out.write("[1,2]".getBytes(StandardCharsets.UTF_8));
+        }
+        BufferedResponse response = new BufferedResponse(get("https://api.github.com/x"), 200,
+                Map.of("Content-Encoding", List.of("gzip")), zipped.toByteArray());
+
+        assertEquals("[1,2]", body(response));
+    }
+}
@@ -0,0 +1,105 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.connector.GitHubConnectorResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientConnectorTest {
+    private HttpServer server;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> lastHeaders = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            lastHeaders.put("Authorization", String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+            lastHeaders.put("Accept-Encoding", String.valueOf(exchange.getRequestHeaders().getFirst("Accept-Encoding")));
+            byte[] json = "[{\"name\":\"main\"}]".getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream gz = new GZIPOutputStream(zipped)) {
+                gz.write(json);
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().add("Link", "<http://x/?page=2>; rel=\"next\"");
+            int status = exchange.getRequestURI().getPath().equals("/missing") ? 404 : 200;
+            exchange.sendResponseHeaders(status, zipped.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                zipped.writeTo(out);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static String body(GitHubConnectorResponse response) throws IOException {
+        try (response; InputStream in = response.bodyStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void send_passesHeadersAndUnzipsBody() throws IOException {
+        HttpClientConnector connector = new HttpClientConnector(Duration.ofSeconds(5), Duration.ofSeconds(5), null);
+
+        GitHubConnectorResponse response = connector.send(new RestClient.Request(new URL(url("/repos/o/r/branches")), "t0k"));
+
+        assertEquals(200, response.statusCode());
+        assertEquals("<http://x/?page=2>; rel=\"next\"", response.header("Link"));
+        assertEquals("[{\"name\":\"main\"}]", body(response));
+        assertEquals("Bearer t0k", lastHeaders.get("Authorization"));
+        assertEquals("gzip", lastHeaders.get("Accept-Encoding"));
+    }
+
+    @Test
+    void send_returnsErrorStatusesAsResponses() throws IOException {
+        HttpClientConnector connector = new HttpClientConnector();
+        GitHubConnectorResponse response = connector.send(new RestClient.Request(new URL(url("/missing")), null));
+        assertEquals(404, response.statusCode());
+        body(response);
+    }
+
+    @Test
+    void send_reusesConnectionAcrossRequests() throws IOException {
+        HttpClientConnector connector = new HttpClientConnector();
+        for (int i = 0; i < 20; i++) {
+            body(connector.send(new RestClient.Request(new URL(url("/user?i=" + i)), null)));
+        }
+        assertEquals(1, clientPorts.size(), "ports used: " + clientPorts);
+    }
+
+    @Test
+    void restClient_worksOverConnector() throws IOException {
+        RestClient rest = new RestClient(url(""), "t", new HttpClientConnector());
+        RestClient.Response response = rest.get("/repos/o/r/branches", Map.of("per_page", "1"));
+        assertEquals(List.of("<http://x/?page=2>; rel=\"next\""), response.headers.get("Link"));
+        assertEquals("[{\"name\":\"main\"}]", new String(response.body, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,135 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHIssueState;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IssueQueryTest {
+
+    /** Answers every page with {@code answer(page number)}. */
+    private static final class FakeRest extends RestClient {
+        final List<String> paths = new ArrayList<>();
+        final List<Map<String, String>> queries = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        final Function<Integer, String> answer;
+
+        FakeRest(Function<Integer, String> answer) {
+            super("https://api.github.com", null, null);
+            this.answer = answer;
+        }
+
+        @Override
+        Response get(String path, Map<String, String> query) {
+            paths.add(path);
+            queries.add(query);
+            threads.add(Thread.currentThread());
+            String body = answer.apply(Integer.parseInt(query.get("page")));
+            return new Response(200, Map.of(), body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    /** An item created at T0 and closed and last updated {@code hours} later. */
+    private static String item(int hours, boolean pullRequest) {
+        String closed = T0.plusSeconds(hours * 3600L).toString();
+        return "{\"number\":" + hours + ",\"created_at\":\"" + T0 + "\",\"closed_at\":\"" + closed
+                + "\",\"updated_at\":\"" + closed + "\""
+                + (pullRequest ? ",\"pull_request\":{\"url\":\"x\"}" : "") + "}";
+    }
+
+    private static String page(int from, int to, int pullEvery) {
+        List<String> items = new ArrayList<>();
+        for (int i = from; i > to; i--) {
+            items.add(item(i, pullEvery > 0 && i % pullEvery == 0));
+        }
+        return "[" + String.join(",", items) + "]";
+    }
+
+    @Test
+    void issues_sendTheFiltersAndLeavePullRequestsOut() throws IOException {
+        // 150 closed items, newest first, every third a pull request
+        FakeRest rest = new FakeRest(p -> p == 1 ? page(150, 50, 3) : page(50, 0, 3));
+        Date since = Date.from(T0);
+        List<IssueRow> rows = new ArrayList<>();
+
+        IssueQuery.issues(GHIssueState.CLOSED).since(since).sort(IssueQuery.Sort.UPDATED, false)
+                .forEachWhile("me/app", rest, new Paging(0), rows::add);
+
+        assertEquals(100, rows.size());
+        assertEquals(List.of("/repos/me/app/issues", "/repos/me/app/issues"), rest.paths);
+        Map<String, String> q = rest.queries.get(0);
+        assertEquals("closed", q.get("state"));
+        assertEquals("updated", q.get("sort"));
+        assertEquals("desc", q.get("direction"));
+        assertEquals("2024-01-01T00:00:00Z", q.get("since"));
+        assertEquals("100", q.get("per_page"));
+        assertEquals(Date.from(T0.plusSeconds(149 * 3600L)), rows.get(0).closedAt);
+        assertEquals(Date.from(T0), rows.get(0).createdAt);
+    }
+
+    @Test
+    void pullRequests_sortedByUpdated_stopAtTheFirstOneBeforeSince() throws IOException {
+        FakeRest rest = new FakeRest(p -> page(300 - (p - 1) * 100, 200 - (p - 1) * 100, 0));
+        List<IssueRow> rows = new ArrayList<>();
+
+        IssueQuery.pullRequests(GHIssueState.CLOSED)
+                .since(Date.from(T0.plusSeconds(250 * 3600L)))
+                .sort(IssueQuery.Sort.UPDATED, false)
+                .forEachWhile("me/app", rest, new Paging(0), rows::add);
+
+        // updated 300h down to 250h; the listing stopped on its first page
+        assertEquals(51, rows.size());
+        assertEquals(List.of("/repos/me/app/pulls"), rest.paths);
+        assertNull(rest.queries.get(0).get("since"), "the pulls endpoint has no since");
+    }
+
+    @Test
+    void sortedByCreation_sinceFiltersWithoutStopping() throws IOException {
+        FakeRest rest = new FakeRest(p -> "[" + item(1, false) + "," + item(5, false) + "]");
+        List<IssueRow> rows = new ArrayList<>();
+
+        IssueQuery.pullRequests(GHIssueState.CLOSED)
+                .since(Date.from(T0.plusSeconds(3 * 3600L)))
+                .forEachWhile("me/app", rest, new Paging(0), rows::add);
+
+        assertEquals(1, rows.size());
+        assertEquals("created", rest.queries.get(0).get("sort"));
+    }
+
+    @Test
+    void actionReturningFalse_stopsTheListing() throws IOException {
+        FakeRest rest = new FakeRest(p -> page(1000 - (p - 1) * 100, 900 - (p - 1) * 100, 0));
+        int[] seen = {0};
+
+        IssueQuery.issues(GHIssueState.ALL).forEachWhile("me/app", rest, new Paging(0), row -> ++seen[0] < 120);
+
+        assertEquals(120, seen[0]);
+        assertEquals(2, rest.paths.size());
+        assertEquals("all", rest.queries.get(0).get("state"));
+    }
+
+    @Test
+    void restPages_areReadAheadByPaging() throws IOException {
+        FakeRest rest = new FakeRest(p -> p < 3 ? page(300 - (p - 1) * 100, 200 - (p - 1) * 100, 0)
+                : page(100, 50, 0));
+        List<IssueRow> rows = new ArrayList<>();
+
+        IssueQuery.issues(GHIssueState.CLOSED).forEachWhile("me/app", rest, new Paging(2), rows::add);
+
+        assertEquals(250, rows.size());
+        assertEquals(List.of("1", "2", "3"), rest.queries.stream().map(q -> q.get("page")).toList());
+        assertSame(Thread.currentThread(), rest.threads.get(0));
+        assertNotSame(Thread.currentThread(), rest.threads.get(1));
+    }
+}
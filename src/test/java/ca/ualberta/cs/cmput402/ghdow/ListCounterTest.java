@@ -0,0 +1,68 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ListCounterTest {
+
+    private static RestClient.Response response(String link, String body) {
+        Map<String, List<String>> headers = link == null ? Map.of() : Map.of("Link", List.of(link));
+        return new RestClient.Response(200, headers, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void lastPage_readsPageNumberOfLastLink() {
+        String link = "<https://api.github.com/repositories/1/branches?per_page=1&page=2>; rel=\"next\", "
+                + "<https://api.github.com/repositories/1/branches?per_page=1&page=1234>; rel=\"last\"";
+        assertEquals(1234, ListCounter.lastPage(link));
+        assertEquals(-1, ListCounter.lastPage(null));
+        assertEquals(-1, ListCounter.lastPage("<https://x/y?page=1>; rel=\"prev\""));
+    }
+
+    @Test
+    void count_withoutLink_countsTopLevelElements() throws IOException {
+        RestClient rest = mock(RestClient.class);
+        when(rest.get(eq("/x"), eq(Map.of("per_page", "1"))))
+                .thenReturn(response(null, " [ \n ] "))
+                .thenReturn(response(null, "[{\"name\":\"a,]\\\"b\",\"commit\":{\"sha\":\"x\"}}]"))
+                .thenReturn(response(null, "[1, \"two\", [3, 4]]"));
+
+        ListCounter counter = new ListCounter(rest);
+        assertEquals(0, counter.count("/x", Map.of()));
+        assertEquals(1, counter.count("/x", Map.of()));
+        assertEquals(3, counter.count("/x", Map.of()));
+    }
+
+    @Test
+    void countBranches_usesOnePerPageRequest() throws IOException {
+        RestClient rest = mock(RestClient.class);
+        when(rest.get(eq("/repos/me/big/branches"), eq(Map.of("per_page", "1"))))
+                .thenReturn(response("<https://api.github.com/x?per_page=1&page=5000>; rel=\"last\"", "[{}]"));
+        when(rest.get(eq("/repos/me/one/branches"), eq(Map.of("per_page", "1"))))
+                .thenReturn(response(null, "[{\"name\":\"main\"}]"));
+        when(rest.get(eq("/repos/me/empty/branches"), eq(Map.of("per_page", "1"))))
+                .thenReturn(response(null, "[]"));
+
+        ListCounter counter = new ListCounter(rest);
+        assertEquals(5000, counter.countBranches("me/big"));
+        assertEquals(1, counter.countBranches("me/one"));
+        assertEquals(0, counter.countBranches("me/empty"));
+    }
+
+    @Test
+    void countPullRequests_passesStateFilter() throws IOException {
+        RestClient rest = mock(RestClient.class);
+        when(rest.get(eq("/repos/me/r/pulls"), eq(Map.of("state", "closed", "per_page", "1"))))
+                .thenReturn(response("<https://api.github.com/x?state=closed&per_page=1&page=42>; rel=\"last\"", "[{}]"));
+
+        assertEquals(42, new ListCounter(rest).countPullRequests("me/r", "closed"));
+    }
+}
@@ -0,0 +1,99 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueOnce() {
+        for (long v : new long[]{0, 1, 63, 64, 65, 127, 128, 1000, 86_400, 1L << 40, Long.MAX_VALUE / 2}) {
+            int i = LogHistogram.indexOf(v);
+            assertTrue(LogHistogram.lowerBound(i) <= v && v <= LogHistogram.upperBound(i), "value " + v);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, LogHistogram.indexOf(LogHistogram.lowerBound(i)));
+            assertEquals(i, LogHistogram.indexOf(LogHistogram.upperBound(i)));
+        }
+    }
+
+    @Test
+    void quantilesStayWithinTheRelativeError() {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LogHistogram h = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // heavy tail: mostly hours, some years
+            values[i] = (long) Math.exp(random.nextDouble() * 18);
+            h.add(values[i]);
+        }
+        Arrays.sort(values);
+        for (double q : new double[]{0.01, 0.5, 0.9, 0.99, 1.0}) {
+            long exact = values[(int) Math.ceil(q * values.length) - 1];
+            double approx = h.getQuantile(q).getAsDouble();
+            assertEquals(exact, approx, Math.max(1, exact * 0.016), "q=" + q);
+        }
+        assertEquals(values[0], h.getMin());
+        assertEquals(values[values.length - 1], (long) h.getQuantile(1.0).getAsDouble());
+        assertTrue(h.getQuantile(0.5).isPresent());
+        assertTrue(new LogHistogram().getQuantile(0.5).isEmpty());
+    }
+
+    @Test
+    void smallValuesAreExact() {
+        LogHistogram h = new LogHistogram();
+        for (long v = 1; v <= 10; v++) {
+            h.add(v);
+        }
+        assertEquals(5.0, h.getQuantile(0.5).getAsDouble(), 0);
+        assertEquals(9.0, h.getQuantile(0.9).getAsDouble(), 0);
+        assertEquals(55, h.getSum());
+    }
+
+    @Test
+    void mergedShardsMatchOneHistogram() throws IOException {
+        LogHistogram all = new LogHistogram();
+        LogHistogram[] shards = {new LogHistogram(), new LogHistogram(), new LogHistogram()};
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long v = random.nextInt(10_000_000);
+            all.add(v);
+            shards[i % 3].add(v);
+        }
+        LogHistogram merged = new LogHistogram().merge(shards[2]).merge(shards[0].merge(shards[1]));
+        assertEquals(all.getCount(), merged.getCount());
+        assertEquals(all.getSum(), merged.getSum());
+        for (double q : new double[]{0.5, 0.9, 0.99}) {
+            assertEquals(all.getQuantile(q), merged.getQuantile(q));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            merged.writeTo(out);
+        }
+        LogHistogram back = LogHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(merged.getQuantile(0.99), back.getQuantile(0.99));
+        assertEquals(merged.getMax(), back.getMax());
+    }
+
+    @Test
+    void countsBetween_splitsByRange() {
+        LogHistogram h = new LogHistogram();
+        h.add(10);
+        h.add(3_000);
+        h.add(90_000);
+        h.add(90_000);
+        h.add(100_000_000);
+        assertArrayEquals(new long[]{2, 2, 1}, h.countsBetween(3_600, 1_000_000));
+        assertThrows(IllegalArgumentException.class, () -> h.add(-1));
+    }
+}
@@ -2,6 +2,7 @@ package ca.ualberta.cs.cmput402.ghdow;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.kohsuke.github.*;
 import org.mockito.MockedConstruction;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -9,7 +10,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,6 +49,41 @@ class MyGithubTest {
         return c;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> PagedIterable<T> pagedOf(List<T> items) {
+        PagedIterable<T> iterable = (PagedIterable<T>) mock(PagedIterable.class);
+        when(iterable.iterator()).thenAnswer(inv -> {
+            Iterator<T> backing = items.iterator();
+            PagedIterator<T> it = (PagedIterator<T>) mock(PagedIterator.class);
+            when(it.hasNext()).thenAnswer(i -> backing.hasNext());
+            // never called for an empty list
+            lenient().when(it.next()).thenAnswer(i -> backing.next());
+            return it;
+        });
+        return iterable;
+    }
+
+    /** {@code count} branch refs, as {@code repo.listRefs("heads")} would list them. */
+    private static PagedIterable<GHRef> headRefs(int count) {
+        return pagedOf(Collections.nCopies(count, mock(GHRef.class)));
+    }
+
+    /** Answers {@code repo.queryPullRequests()...list()} with {@code prs}, whatever the filters. */
+    private static GHPullRequestQueryBuilder closedPullRequests(GHRepository repo, PagedIterable<GHPullRequest> prs) {
+        GHPullRequestQueryBuilder query = mock(GHPullRequestQueryBuilder.class, RETURNS_SELF);
+        when(repo.queryPullRequests()).thenReturn(query);
+        when(query.list()).thenReturn(prs);
+        return query;
+    }
+
+    /** Answers {@code repo.queryIssues()...list()} with {@code issues}, whatever the filters. */
+    private static GHIssueQueryBuilder.ForRepository closedIssues(GHRepository repo, PagedIterable<GHIssue> issues) {
+        GHIssueQueryBuilder.ForRepository query = mock(GHIssueQueryBuilder.ForRepository.class, RETURNS_SELF);
+        when(repo.queryIssues()).thenReturn(query);
+        when(query.list()).thenReturn(issues);
+        return query;
+    }
+
     // -----------------------------
     // Existing test (kept): getIssueCreateDates()
     // -----------------------------
@@ -70,7 +116,8 @@ class MyGithubTest {
             issueToDate.put(issueMockName, issueDate);
         }
 
-        when(fakeRepo.getIssues(GHIssueState.CLOSED)).thenReturn(mockIssues);
+        PagedIterable<GHIssue> closed = pagedOf(mockIssues);
+        GHIssueQueryBuilder.ForRepository query = closedIssues(fakeRepo, closed);
 
         List<Date> actualDates;
 
@@ -99,7 +146,8 @@ class MyGithubTest {
             assertEquals(expectedDates.get(i), actualDates.get(i));
         }
 
-        verify(fakeRepo, times(1)).getIssues(GHIssueState.CLOSED);
+        verify(fakeRepo, times(1)).queryIssues();
+        verify(query).state(GHIssueState.CLOSED);
     }
 
     // -----------------------------
@@ -123,6 +171,27 @@ class MyGithubTest {
         assertEquals("Monday", my.getMostPopularDay());
     }
 
+    @Test
+    void getMostPopularDay_usesExplicitZone() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+
+        // late Monday evenings in UTC are Tuesday mornings in Tokyo
+        List<GHCommit> commits = Arrays.asList(
+                commitAt(dateUTC(2024, Calendar.JANUARY, 1, 20, 0, 0)),
+                commitAt(dateUTC(2024, Calendar.JANUARY, 8, 21, 0, 0)),
+                commitAt(dateUTC(2024, Calendar.JANUARY, 3, 9, 0, 0))   // Wed either way
+        );
+
+        doReturn(commits).when(my).getCommits();
+        assertEquals("Monday", my.getMostPopularDay(ZoneOffset.UTC));
+        assertEquals("Tuesday", my.getMostPopularDay(ZoneId.of("Asia/Tokyo")));
+
+        my.setZone(ZoneId.of("Asia/Tokyo"));
+        assertEquals("Tuesday", my.getMostPopularDay());
+        assertEquals(2, my.getCommitActivity(ZoneOffset.UTC).getCount(DayOfWeek.MONDAY));
+    }
+
     // -----------------------------
     // Step 1 (2): getAverageTimeBetweenCommitsSeconds()
     // -----------------------------
@@ -212,7 +281,8 @@ class MyGithubTest {
         // Two issues: 1h and 3h => avg 2h = 7200s
         GHIssue i1 = mock(GHIssue.class, "i1");
         GHIssue i2 = mock(GHIssue.class, "i2");
-        when(repo.getIssues(GHIssueState.CLOSED)).thenReturn(Arrays.asList(i1, i2));
+        PagedIterable<GHIssue> closed = pagedOf(Arrays.asList(i1, i2));
+        closedIssues(repo, closed);
 
         Map<String, Date[]> issueTimes = new HashMap<>();
         issueTimes.put("i1", new Date[]{
@@ -252,7 +322,8 @@ class MyGithubTest {
         my.myRepos.put("r1", repo);
 
         GHIssue i1 = mock(GHIssue.class, "i1");
-        when(repo.getIssues(GHIssueState.CLOSED)).thenReturn(Collections.singletonList(i1));
+        PagedIterable<GHIssue> closed = pagedOf(Collections.singletonList(i1));
+        closedIssues(repo, closed);
 
         OptionalDouble avg;
         try (MockedConstruction<GHIssueWrapper> ignored = mockConstruction(
@@ -280,7 +351,8 @@ class MyGithubTest {
 
         GHIssue iBad = mock(GHIssue.class, "iBad");
         GHIssue iGood = mock(GHIssue.class, "iGood");
-        when(repo.getIssues(GHIssueState.CLOSED)).thenReturn(Arrays.asList(iBad, iGood));
+        PagedIterable<GHIssue> closed = pagedOf(Arrays.asList(iBad, iGood));
+        closedIssues(repo, closed);
 
         Map<String, Date[]> issueTimes = new HashMap<>();
         issueTimes.put("iBad", new Date[]{
@@ -310,6 +382,38 @@ class MyGithubTest {
         assertEquals(3600.0, avg.getAsDouble(), 1e-9);
     }
 
+    @Test
+    void getAverageClosedIssueOpenTimeSeconds_leavesPullRequestsOut() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = new MyGithub(gh);
+
+        GHRepository repo = mock(GHRepository.class);
+        my.myRepos = new HashMap<>();
+        my.myRepos.put("r1", repo);
+
+        // the issues endpoint lists pull requests too
+        GHIssue issue = mock(GHIssue.class, "issue");
+        GHIssue pr = mock(GHIssue.class, "pr");
+        when(pr.isPullRequest()).thenReturn(true);
+        PagedIterable<GHIssue> closed = pagedOf(Arrays.asList(pr, issue));
+        closedIssues(repo, closed);
+
+        OptionalDouble avg;
+        try (MockedConstruction<GHIssueWrapper> wrappers = mockConstruction(
+                GHIssueWrapper.class,
+                (w, context) -> {
+                    assertSame(issue, context.arguments().get(0));
+                    when(w.getCreatedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 0, 0, 0));
+                    when(w.getClosedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 1, 0, 0));
+                }
+        )) {
+            avg = my.getAverageClosedIssueOpenTimeSeconds();
+            assertEquals(1, wrappers.constructed().size());
+        }
+
+        assertEquals(3600.0, avg.getAsDouble(), 1e-9);
+    }
+
     @Test
     void getAverageClosedIssueOpenTimeSeconds_emptyWhenNoRepos() throws IOException {
         GitHub gh = mock(GitHub.class);
@@ -345,7 +449,7 @@ class MyGithubTest {
         when(it.hasNext()).thenReturn(true, true, false);
         when(it.next()).thenReturn(prClosed, prOpen);
 
-        when(repo.listPullRequests(GHIssueState.ALL)).thenReturn(prs);
+        closedPullRequests(repo, prs);
 
         Map<String, Date[]> prTimes = new HashMap<>();
         prTimes.put("prClosed", new Date[]{
@@ -396,7 +500,7 @@ class MyGithubTest {
         when(prs.iterator()).thenReturn(it);
         when(it.hasNext()).thenReturn(true, true, false);
         when(it.next()).thenReturn(pr1, pr2);
-        when(repo.listPullRequests(GHIssueState.ALL)).thenReturn(prs);
+        closedPullRequests(repo, prs);
 
         Map<String, Date[]> prTimes = new HashMap<>();
         prTimes.put("pr1", new Date[]{dateUTC(2024, Calendar.JANUARY, 1, 0, 0, 0), null});
@@ -439,7 +543,7 @@ class MyGithubTest {
         when(prs.iterator()).thenReturn(it);
         when(it.hasNext()).thenReturn(true, true, false);
         when(it.next()).thenReturn(prBad, prGood);
-        when(repo.listPullRequests(GHIssueState.ALL)).thenReturn(prs);
+        closedPullRequests(repo, prs);
 
         Map<String, Date[]> prTimes = new HashMap<>();
         prTimes.put("prBad", new Date[]{
@@ -484,25 +588,17 @@ class MyGithubTest {
         my.myRepos.put("r1", r1);
         my.myRepos.put("r2", r2);
 
-        Map<String, GHBranch> b1 = new HashMap<>();
-        b1.put("main", mock(GHBranch.class));
-        b1.put("dev", mock(GHBranch.class));
-
-        Map<String, GHBranch> b2 = new HashMap<>();
-        b2.put("main", mock(GHBranch.class));
-        b2.put("feature", mock(GHBranch.class));
-        b2.put("hotfix", mock(GHBranch.class));
-        b2.put("release", mock(GHBranch.class));
-
-        when(r1.getBranches()).thenReturn(b1); // 2
-        when(r2.getBranches()).thenReturn(b2); // 4
+        PagedIterable<GHRef> b1 = headRefs(2);
+        PagedIterable<GHRef> b2 = headRefs(4);
+        when(r1.listRefs("heads")).thenReturn(b1);
+        when(r2.listRefs("heads")).thenReturn(b2);
 
         OptionalDouble avg = my.getAverageBranchesPerRepo();
         assertTrue(avg.isPresent());
         assertEquals(3.0, avg.getAsDouble(), 1e-9);
     }
 
-    // Extra: branches empty/no repos + null branches map
+    // Extra: branches empty/no repos + empty repository
     @Test
     void getAverageBranchesPerRepo_emptyWhenNoRepos() throws IOException {
         GitHub gh = mock(GitHub.class);
@@ -513,7 +609,7 @@ class MyGithubTest {
     }
 
     @Test
-    void getAverageBranchesPerRepo_treatsNullBranchMapAsZero() throws IOException {
+    void getAverageBranchesPerRepo_treatsEmptyRepositoryAsZero() throws IOException {
         GitHub gh = mock(GitHub.class);
         MyGithub my = new MyGithub(gh);
 
@@ -524,17 +620,111 @@ class MyGithubTest {
         my.myRepos.put("r1", r1);
         my.myRepos.put("r2", r2);
 
-        when(r1.getBranches()).thenReturn(null); // treated as 0
-        Map<String, GHBranch> b2 = new HashMap<>();
-        b2.put("main", mock(GHBranch.class));
-        b2.put("dev", mock(GHBranch.class));
-        when(r2.getBranches()).thenReturn(b2); // 2
+        // an empty repository has no refs to list
+        when(r1.listRefs("heads")).thenThrow(new GHException("boom", new Exception("Repository is empty")));
+        PagedIterable<GHRef> b2 = headRefs(2);
+        when(r2.listRefs("heads")).thenReturn(b2);
 
         OptionalDouble avg = my.getAverageBranchesPerRepo();
         assertTrue(avg.isPresent());
         assertEquals(1.0, avg.getAsDouble(), 1e-9); // (0 + 2) / 2 repos
     }
 
+    @Test
+    void getAverageBranchesPerRepo_countsFromLinkHeaderWithoutListingBranches() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        RestClient rest = mock(RestClient.class);
+        MyGithub my = new MyGithub(gh, rest);
+
+        GHRepository r1 = mock(GHRepository.class);
+        when(r1.getFullName()).thenReturn("me/r1");
+        GHRepository r2 = mock(GHRepository.class);
+        when(r2.getFullName()).thenReturn("me/r2");
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("r1", r1);
+        my.myRepos.put("r2", r2);
+
+        when(rest.get(eq("/repos/me/r1/branches"), anyMap())).thenReturn(new RestClient.Response(200,
+                Map.of("Link", List.of("<https://api.github.com/x?per_page=1&page=3000>; rel=\"last\"")),
+                "[{}]".getBytes()));
+        when(rest.get(eq("/repos/me/r2/branches"), anyMap())).thenReturn(new RestClient.Response(200,
+                Map.of(), "[{}]".getBytes()));
+
+        OptionalDouble avg = my.getAverageBranchesPerRepo();
+        assertEquals(1500.5, avg.getAsDouble(), 1e-9);
+        verify(r1, never()).listRefs(anyString());
+        verify(r2, never()).listRefs(anyString());
+    }
+
+    // -----------------------------
+    // getReport(): one pass over the repos for every metric
+    // -----------------------------
+    @Test
+    void getReport_fetchesEachResourceOncePerRepo() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+
+        GHRepository r1 = mock(GHRepository.class);
+        GHRepository r2 = mock(GHRepository.class);
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("r1", r1);
+        my.myRepos.put("r2", r2);
+
+        GHIssue issue = mock(GHIssue.class, "issue");
+        PagedIterable<GHIssue> r1Issues = pagedOf(Collections.singletonList(issue));
+        PagedIterable<GHIssue> r2Issues = pagedOf(Collections.emptyList());
+        GHIssueQueryBuilder.ForRepository r1IssueQuery = closedIssues(r1, r1Issues);
+        GHIssueQueryBuilder.ForRepository r2IssueQuery = closedIssues(r2, r2Issues);
+
+        GHPullRequest pr = mock(GHPullRequest.class, "pr");
+        PagedIterable<GHPullRequest> r1Prs = pagedOf(Collections.singletonList(pr));
+        PagedIterable<GHPullRequest> r2Prs = pagedOf(Collections.emptyList());
+        GHPullRequestQueryBuilder r1Query = closedPullRequests(r1, r1Prs);
+        GHPullRequestQueryBuilder r2Query = closedPullRequests(r2, r2Prs);
+
+        PagedIterable<GHRef> r1Branches = headRefs(1);
+        PagedIterable<GHRef> r2Branches = headRefs(0);
+        when(r1.listRefs("heads")).thenReturn(r1Branches);
+        when(r2.listRefs("heads")).thenReturn(r2Branches);
+
+        doReturn(Arrays.asList(
+                commitAt(dateUTC(2024, Calendar.JANUARY, 1, 10, 0, 0)),
+                commitAt(dateUTC(2024, Calendar.JANUARY, 1, 10, 10, 0))
+        )).when(my).getCommits();
+
+        MetricsReport report;
+        try (MockedConstruction<GHIssueWrapper> ignoredIssues = mockConstruction(
+                GHIssueWrapper.class,
+                (w, context) -> {
+                    when(w.getCreatedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 0, 0, 0));
+                    when(w.getClosedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 1, 0, 0));
+                });
+             MockedConstruction<GHPullRequestWrapper> ignoredPrs = mockConstruction(
+                     GHPullRequestWrapper.class,
+                     (w, context) -> {
+                         when(w.getCreatedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 0, 0, 0));
+                         when(w.getClosedAt()).thenReturn(dateUTC(2024, Calendar.JANUARY, 1, 2, 0, 0));
+                     })) {
+            report = my.getReport();
+        }
+
+        assertEquals("Monday", report.getMostPopularDay());
+        assertEquals(600.0, report.getAverageTimeBetweenCommitsSeconds().getAsDouble(), 1e-9);
+        assertEquals(3600.0, report.getAverageClosedIssueOpenTimeSeconds().getAsDouble(), 1e-9);
+        assertEquals(7200.0, report.getAverageClosedPullRequestOpenTimeSeconds().getAsDouble(), 1e-9);
+        assertEquals(0.5, report.getAverageBranchesPerRepo().getAsDouble(), 1e-9);
+
+        for (GHRepository repo : Arrays.asList(r1, r2)) {
+            verify(repo, times(1)).queryIssues();
+            verify(repo, times(1)).queryPullRequests();
+            verify(repo, times(1)).listRefs("heads");
+        }
+        verify(r1Query).state(GHIssueState.CLOSED);
+        verify(r2Query).state(GHIssueState.CLOSED);
+        verify(r1IssueQuery).state(GHIssueState.CLOSED);
+        verify(r2IssueQuery).state(GHIssueState.CLOSED);
+    }
+
     // -----------------------------
     // Step 2: robustness tests (retries)
     // -----------------------------
@@ -597,6 +787,57 @@ class MyGithubTest {
         assertTrue(stderr.contains("Cause: net3"));
     }
 
+    @Test
+    void getGithubName_resolvesIdentityOnce_andSharesItWithRepoListing() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        GHMyself me = mock(GHMyself.class);
+        when(gh.getMyself()).thenReturn(me);
+        when(me.getLogin()).thenReturn("Souhardya");
+        when(me.getRepositories()).thenReturn(new HashMap<>());
+
+        MyGithub my = new MyGithub(gh);
+        assertEquals("Souhardya", my.getGithubName());
+        assertEquals("Souhardya", my.getGithubName());
+        assertTrue(my.getAverageBranchesPerRepo().isEmpty());
+
+        verify(gh, times(1)).getMyself();
+        verify(me, times(1)).getLogin();
+    }
+
+    @Test
+    void getGithubName_concurrentCallersShareOneRequest() throws Exception {
+        GitHub gh = mock(GitHub.class);
+        GHMyself me = mock(GHMyself.class);
+        when(me.getLogin()).thenReturn("Souhardya");
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(gh.getMyself()).thenAnswer(inv -> {
+            entered.countDown();
+            release.await();
+            return me;
+        });
+
+        MyGithub my = new MyGithub(gh);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> names = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                names.add(pool.submit(my::getGithubName));
+            }
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100); // let the other callers pile up behind the first
+            release.countDown();
+            for (Future<String> name : names) {
+                assertEquals("Souhardya", name.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(gh, times(1)).getMyself();
+    }
+
     // -----------------------------
     // Coverage helpers: hit getRepos() caching and real getCommits() path
     // -----------------------------
@@ -605,9 +846,14 @@ class MyGithubTest {
         GitHub gh = mock(GitHub.class);
         GHMyself me = mock(GHMyself.class);
 
+        GHRepository r1 = mock(GHRepository.class);
+        GHRepository r2 = mock(GHRepository.class);
+        PagedIterable<GHRef> none = headRefs(0);
+        when(r1.listRefs("heads")).thenReturn(none);
+        when(r2.listRefs("heads")).thenReturn(none);
         Map<String, GHRepository> reposMap = new HashMap<>();
-        reposMap.put("r1", mock(GHRepository.class));
-        reposMap.put("r2", mock(GHRepository.class));
+        reposMap.put("r1", r1);
+        reposMap.put("r2", r2);
 
         when(gh.getMyself()).thenReturn(me);
         when(me.getRepositories()).thenReturn(reposMap);
@@ -683,4 +929,305 @@ class MyGithubTest {
 
         assertThrows(GHException.class, my::getCommits);
     }
+
+    @Test
+    void getCommits_parallelCrawlMergesInRepoOrder() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+        doReturn("Souhardya").when(my).getGithubName();
+
+        my.myRepos = new LinkedHashMap<>();
+        List<GHCommit> expected = new ArrayList<>();
+        for (int r = 0; r < 6; r++) {
+            GHRepository repo = mock(GHRepository.class);
+            List<GHCommit> commits = new ArrayList<>();
+            for (int c = 0; c < 3; c++) {
+                commits.add(mock(GHCommit.class, "r" + r + "c" + c));
+            }
+            GHCommitQueryBuilder qb = mock(GHCommitQueryBuilder.class);
+            when(repo.queryCommits()).thenReturn(qb);
+            when(qb.author("Souhardya")).thenReturn(qb);
+            PagedIterable<GHCommit> listed = pagedOf(commits);
+            when(qb.list()).thenReturn(listed);
+
+            my.myRepos.put("r" + r, repo);
+            expected.addAll(commits);
+        }
+
+        my.setCrawlParallelism(4);
+        List<GHCommit> actual = new ArrayList<>();
+        for (GHCommit c : my.getCommits()) actual.add(c);
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void setCrawlParallelism_rejectsNonPositive() {
+        MyGithub my = new MyGithub(mock(GitHub.class));
+        assertThrows(IllegalArgumentException.class, () -> my.setCrawlParallelism(0));
+    }
+
+    @Test
+    void getCommitStore_forkSkipsHistorySeenUpstream_andReadsPastIt() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+        doReturn("Souhardya").when(my).getGithubName();
+        Date mon = dateUTC(2024, Calendar.JANUARY, 1, 10, 0, 0);
+        Date tue = dateUTC(2024, Calendar.JANUARY, 2, 10, 0, 0);
+        Date wed = dateUTC(2024, Calendar.JANUARY, 3, 10, 0, 0);
+
+        List<GHCommit> shared = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            GHCommit c = mock(GHCommit.class, "shared" + i);
+            when(c.getSHA1()).thenReturn(String.format("%016x", i + 1));
+            when(c.getCommitDate()).thenReturn(mon);
+            shared.add(c);
+        }
+        GHCommit forkOnly = mock(GHCommit.class, "forkOnly");
+        when(forkOnly.getSHA1()).thenReturn("f000000000000001");
+        when(forkOnly.getCommitDate()).thenReturn(tue);
+        // an own commit below more than a page of shared history
+        GHCommit beyond = mock(GHCommit.class, "beyond");
+        when(beyond.getSHA1()).thenReturn("f000000000000002");
+        when(beyond.getCommitDate()).thenReturn(wed);
+
+        GHRepository upstream = mock(GHRepository.class, "upstream");
+        when(upstream.getFullName()).thenReturn("me/app");
+        GHCommitQueryBuilder upstreamQuery = mock(GHCommitQueryBuilder.class);
+        when(upstream.queryCommits()).thenReturn(upstreamQuery);
+        when(upstreamQuery.author("Souhardya")).thenReturn(upstreamQuery);
+        PagedIterable<GHCommit> upstreamList = pagedOf(shared);
+        when(upstreamQuery.list()).thenReturn(upstreamList);
+
+        GHRepository fork = mock(GHRepository.class, "fork");
+        when(fork.isFork()).thenReturn(true);
+        when(fork.getSource()).thenReturn(upstream);
+        GHCommitQueryBuilder forkQuery = mock(GHCommitQueryBuilder.class);
+        when(fork.queryCommits()).thenReturn(forkQuery);
+        when(forkQuery.author("Souhardya")).thenReturn(forkQuery);
+        List<GHCommit> forkHistory = new ArrayList<>();
+        forkHistory.add(forkOnly);
+        forkHistory.addAll(shared);
+        forkHistory.add(beyond);
+        PagedIterable<GHCommit> forkList = pagedOf(forkHistory);
+        when(forkQuery.list()).thenReturn(forkList);
+
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("fork", fork); // listed first, crawled last
+        my.myRepos.put("app", upstream);
+
+        CommitStore store = my.getCommitStore();
+
+        assertEquals(152, store.size());
+        assertEquals("Monday", my.getMostPopularDay());
+        verify(fork).getSource();
+    }
+
+    @Test
+    void getCommitStore_withJournal_resumesWhereTheLastRunStopped(@TempDir Path tmp) throws IOException {
+        Date mon = dateUTC(2024, Calendar.JANUARY, 1, 10, 0, 0);
+        Date tue = dateUTC(2024, Calendar.JANUARY, 2, 10, 0, 0);
+        Path file = tmp.resolve("crawl.journal");
+        CrawlJournal earlier = CrawlJournal.open(file, Duration.ofDays(1));
+        CommitStore donePage = new CommitStore();
+        donePage.add("me/done", "d000000000000001", tue.getTime());
+        donePage.add("me/done", "d000000000000002", tue.getTime());
+        earlier.addCommitPage("me/done", donePage);
+        earlier.markCommitsDone("me/done");
+        CommitStore halfPage = new CommitStore();
+        halfPage.add("me/half", "h000000000000002", tue.getTime());
+        earlier.addCommitPage("me/half", halfPage);
+        earlier.close();
+
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+        doReturn("Souhardya").when(my).getGithubName();
+        my.setCrawlJournal(CrawlJournal.open(file, Duration.ofDays(1)));
+
+        GHRepository done = mock(GHRepository.class, "done");
+        when(done.getFullName()).thenReturn("me/done");
+        GHRepository half = mock(GHRepository.class, "half");
+        when(half.getFullName()).thenReturn("me/half");
+        GHCommitQueryBuilder query = mock(GHCommitQueryBuilder.class);
+        when(half.queryCommits()).thenReturn(query);
+        when(query.author("Souhardya")).thenReturn(query);
+        when(query.until(tue)).thenReturn(query);
+        GHCommit again = mock(GHCommit.class, "again"); // at the cursor, so listed once more
+        when(again.getSHA1()).thenReturn("h000000000000002");
+        when(again.getCommitDate()).thenReturn(tue);
+        GHCommit older = mock(GHCommit.class, "older");
+        when(older.getSHA1()).thenReturn("h000000000000001");
+        when(older.getCommitDate()).thenReturn(mon);
+        PagedIterable<GHCommit> list = pagedOf(List.of(again, older));
+        when(query.list()).thenReturn(list);
+
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("done", done);
+        my.myRepos.put("half", half);
+
+        CommitStore store = my.getCommitStore();
+
+        assertEquals(4, store.size());
+        assertEquals("Tuesday", my.getMostPopularDay(ZoneOffset.UTC));
+        verify(done, never()).queryCommits();
+        assertTrue(CrawlJournal.open(file, Duration.ofDays(1)).isCommitsDone("me/half"));
+    }
+
+    @Test
+    void getMostPopularDay_withCommitCache_onlyFetchesCommitsSinceWatermark(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("commits.bin");
+        Date mon = dateUTC(2024, Calendar.JANUARY, 1, 10, 0, 0);
+        Date tue = dateUTC(2024, Calendar.JANUARY, 2, 10, 0, 0);
+        Date wed = dateUTC(2024, Calendar.JANUARY, 3, 10, 0, 0);
+
+        CommitCache warm = CommitCache.open(file);
+        CommitStore cached = new CommitStore();
+        cached.add("me/r1", "s1", mon.getTime());
+        cached.add("me/r1", "s2", wed.getTime());
+        warm.merge("me/r1", cached);
+        warm.save();
+
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+        doReturn("Souhardya").when(my).getGithubName();
+
+        GHRepository repo = mock(GHRepository.class);
+        when(repo.getFullName()).thenReturn("me/r1");
+        my.myRepos = new HashMap<>();
+        my.myRepos.put("r1", repo);
+
+        // since() is inclusive, so the watermark commit comes back again
+        GHCommit again = mock(GHCommit.class, "again");
+        when(again.getSHA1()).thenReturn("s2");
+        when(again.getCommitDate()).thenReturn(wed);
+        GHCommit fresh = mock(GHCommit.class, "fresh");
+        when(fresh.getSHA1()).thenReturn("s3");
+        when(fresh.getCommitDate()).thenReturn(tue);
+
+        GHCommitQueryBuilder qb = mock(GHCommitQueryBuilder.class);
+        when(repo.queryCommits()).thenReturn(qb);
+        when(qb.author("Souhardya")).thenReturn(qb);
+        when(qb.since(wed)).thenReturn(qb);
+        PagedIterable<GHCommit> listed = pagedOf(Arrays.asList(again, fresh));
+        when(qb.list()).thenReturn(listed);
+
+        my.setCommitCache(CommitCache.open(file));
+        assertEquals("Monday", my.getMostPopularDay()); // Mon, Wed + new Tue: tie goes to Monday
+        assertEquals(3, CommitCache.open(file).size("me/r1"));
+
+        // second metric reuses the synced cache
+        assertTrue(my.getAverageTimeBetweenCommitsSeconds().isPresent());
+        verify(repo, times(1)).queryCommits();
+        verify(my, never()).getCommits();
+    }
+
+    @Test
+    void getCommitGapStats_window_isSentWithTheListingAndSkipsIdleRepos() throws IOException {
+        Date from = dateUTC(2024, Calendar.MARCH, 1, 0, 0, 0);
+        Date to = dateUTC(2024, Calendar.APRIL, 1, 0, 0, 0);
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = spy(new MyGithub(gh));
+        doReturn("me").when(my).getGithubName();
+
+        GHRepository active = mock(GHRepository.class, "active");
+        when(active.getFullName()).thenReturn("me/active");
+        when(active.getPushedAt()).thenReturn(dateUTC(2024, Calendar.MARCH, 20, 0, 0, 0));
+        GHRepository idle = mock(GHRepository.class, "idle");
+        when(idle.getFullName()).thenReturn("me/idle");
+        when(idle.getPushedAt()).thenReturn(dateUTC(2023, Calendar.JUNE, 1, 0, 0, 0));
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("active", active);
+        my.myRepos.put("idle", idle);
+
+        List<GHCommit> commits = new ArrayList<>();
+        Date[] dates = {dateUTC(2024, Calendar.MARCH, 6, 0, 0, 0), dateUTC(2024, Calendar.MARCH, 5, 0, 0, 0), to};
+        for (int i = 0; i < dates.length; i++) {
+            GHCommit c = mock(GHCommit.class);
+            when(c.getSHA1()).thenReturn("s" + i);
+            when(c.getCommitDate()).thenReturn(dates[i]);
+            commits.add(c);
+        }
+        GHCommitQueryBuilder qb = mock(GHCommitQueryBuilder.class);
+        when(active.queryCommits()).thenReturn(qb);
+        when(qb.author("me")).thenReturn(qb);
+        when(qb.since(from)).thenReturn(qb);
+        when(qb.until(to)).thenReturn(qb);
+        PagedIterable<GHCommit> listed = pagedOf(commits);
+        when(qb.list()).thenReturn(listed);
+
+        GapStats stats = my.getCommitGapStats(TimeWindow.between(from.toInstant(), to.toInstant()));
+
+        // until() is inclusive, so the commit right at the end comes back and is dropped
+        assertEquals(2, stats.getCount());
+        assertEquals(86400.0, stats.getAverageGapSeconds().getAsDouble(), 1e-9);
+        verify(idle, never()).queryCommits();
+        verify(my, never()).getCommits();
+    }
+
+    @Test
+    void getBranchStats_window_countsOnlyReposActiveInIt() throws IOException {
+        GitHub gh = mock(GitHub.class);
+        MyGithub my = new MyGithub(gh);
+
+        GHRepository active = mock(GHRepository.class, "active");
+        when(active.getPushedAt()).thenReturn(dateUTC(2024, Calendar.MARCH, 20, 0, 0, 0));
+        when(active.getCreatedAt()).thenReturn(dateUTC(2023, Calendar.JANUARY, 1, 0, 0, 0));
+        PagedIterable<GHRef> branches = headRefs(2);
+        when(active.listRefs("heads")).thenReturn(branches);
+        GHRepository idle = mock(GHRepository.class, "idle");
+        when(idle.getPushedAt()).thenReturn(dateUTC(2023, Calendar.JUNE, 1, 0, 0, 0));
+        GHRepository young = mock(GHRepository.class, "young");
+        when(young.getPushedAt()).thenReturn(dateUTC(2024, Calendar.APRIL, 10, 0, 0, 0));
+        when(young.getCreatedAt()).thenReturn(dateUTC(2024, Calendar.APRIL, 5, 0, 0, 0));
+        my.myRepos = new LinkedHashMap<>();
+        my.myRepos.put("active", active);
+        my.myRepos.put("idle", idle);
+        my.myRepos.put("young", young);
+
+        BranchStats stats = my.getBranchStats(TimeWindow.between(
+                dateUTC(2024, Calendar.MARCH, 1, 0, 0, 0).toInstant(),
+                dateUTC(2024, Calendar.APRIL, 1, 0, 0, 0).toInstant()));
+
+        assertEquals(1, stats.getRepoCount());
+        assertEquals(2, stats.getTotalBranches());
+        verify(idle, never()).listRefs(anyString());
+        verify(young, never()).listRefs(anyString());
+    }
+
+    @Test
+    void getAverageBranchesPerRepo_withRepoState_refetchesOnlyChangedRepos(@TempDir Path tmp) throws IOException {
+        RepoStateCache state = RepoStateCache.open(tmp.resolve("repos.bin"), Duration.ofDays(1));
+        Date pushed = dateUTC(2024, Calendar.JANUARY, 1, 0, 0, 0);
+        Date updated = dateUTC(2024, Calendar.JANUARY, 2, 0, 0, 0);
+
+        PagedIterable<GHRef> one = headRefs(1);
+        PagedIterable<GHRef> two = headRefs(2);
+        PagedIterable<GHRef> three = headRefs(3);
+
+        GHRepository quiet = mock(GHRepository.class);
+        when(quiet.getFullName()).thenReturn("me/quiet");
+        when(quiet.getPushedAt()).thenReturn(pushed);
+        when(quiet.getUpdatedAt()).thenReturn(updated);
+        when(quiet.listRefs("heads")).thenReturn(one);
+
+        GHRepository busy = mock(GHRepository.class);
+        when(busy.getFullName()).thenReturn("me/busy");
+        when(busy.getPushedAt()).thenReturn(pushed, dateUTC(2024, Calendar.FEBRUARY, 1, 0, 0, 0));
+        when(busy.getUpdatedAt()).thenReturn(updated);
+        when(busy.listRefs("heads")).thenReturn(two, three);
+
+        MyGithub first = new MyGithub(mock(GitHub.class));
+        first.myRepos = new LinkedHashMap<>(Map.of("quiet", quiet, "busy", busy));
+        first.setRepoStateCache(state);
+        assertEquals(1.5, first.getAverageBranchesPerRepo().getAsDouble(), 1e-9);
+
+        MyGithub second = new MyGithub(mock(GitHub.class));
+        second.myRepos = new LinkedHashMap<>(Map.of("quiet", quiet, "busy", busy));
+        second.setRepoStateCache(state);
+        assertEquals(2.0, second.getAverageBranchesPerRepo().getAsDouble(), 1e-9);
+
+        verify(quiet, times(1)).listRefs("heads");
+        verify(busy, times(2)).listRefs("heads");
+        assertEquals(1, state.getReused());
+    }
 }
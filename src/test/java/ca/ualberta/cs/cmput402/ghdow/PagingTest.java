@@ -0,0 +1,222 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHException;
+import org.kohsuke.github.PagedIterable;
+import org.kohsuke.github.PagedIterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class PagingTest {
+
+    /** A list whose iterator counts how many items have been pulled from it. */
+    @SuppressWarnings("unchecked")
+    private static PagedIterable<Integer> listOf(int n, AtomicInteger pulled, int failAt) {
+        PagedIterable<Integer> iterable = (PagedIterable<Integer>) mock(PagedIterable.class);
+        when(iterable.withPageSize(anyInt())).thenReturn(iterable);
+        when(iterable.iterator()).thenAnswer(inv -> {
+            Iterator<Integer> backing = IntStream.range(0, n).boxed().iterator();
+            PagedIterator<Integer> it = (PagedIterator<Integer>) mock(PagedIterator.class);
+            when(it.hasNext()).thenAnswer(i -> backing.hasNext());
+            when(it.next()).thenAnswer(i -> {
+                int next = backing.next();
+                if (next == failAt) {
+                    throw new GHException("page failed", new IOException("reset"));
+                }
+                pulled.incrementAndGet();
+                return next;
+            });
+            return it;
+        });
+        return iterable;
+    }
+
+    @Test
+    void sized_asksForMaximumPageSize() {
+        PagedIterable<Integer> list = listOf(0, new AtomicInteger(), -1);
+        assertSame(list, Paging.sized(list));
+        verify(list).withPageSize(100);
+    }
+
+    @Test
+    void forEach_keepsOrderAcrossPages() throws IOException {
+        List<Integer> expected = IntStream.range(0, 1050).boxed().collect(Collectors.toList());
+        for (int lookahead : new int[]{0, 1, 3}) {
+            List<Integer> seen = new ArrayList<>();
+            new Paging(lookahead).forEach(listOf(1050, new AtomicInteger(), -1), seen::add);
+            assertEquals(expected, seen, "lookahead " + lookahead);
+        }
+    }
+
+    @Test
+    void forEachWhile_stopsReadingOnceToldTo() throws IOException {
+        AtomicInteger pulled = new AtomicInteger();
+        List<Integer> seen = new ArrayList<>();
+        new Paging(0).forEachWhile(listOf(1050, pulled, -1), i -> {
+            seen.add(i);
+            return i < 149;
+        });
+
+        assertEquals(150, seen.size());
+        assertEquals(150, pulled.get());
+    }
+
+    @Test
+    void forEach_shortFirstPageStaysOnCallingThread() throws IOException {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        PagedIterable<Integer> list = listOf(3, new AtomicInteger(), -1);
+        PagedIterator<Integer> it = list.iterator();
+        when(list.iterator()).thenReturn(it);
+        when(it.hasNext()).thenAnswer(i -> {
+            threads.add(Thread.currentThread());
+            return threads.size() <= 3;
+        });
+        when(it.next()).thenReturn(0, 1, 2);
+
+        List<Integer> seen = new ArrayList<>();
+        new Paging(2).forEach(list, seen::add);
+
+        assertEquals(List.of(0, 1, 2), seen);
+        assertEquals(List.of(caller, caller, caller, caller), threads);
+    }
+
+    @Test
+    void forEach_readsAheadAtMostLookaheadPages() throws Exception {
+        AtomicInteger pulled = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        AtomicInteger processed = new AtomicInteger();
+
+        new Paging(2).forEach(listOf(2000, pulled, -1), item -> {
+            // give the reader time to run ahead if it is going to
+            if (item % 100 == 0) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            maxAhead.accumulateAndGet(pulled.get() - processed.incrementAndGet(), Math::max);
+        });
+
+        assertEquals(2000, processed.get());
+        // current page + two queued + the one being read
+        assertTrue(maxAhead.get() <= 4 * Paging.PAGE_SIZE, "ran " + maxAhead.get() + " items ahead");
+    }
+
+    @Test
+    void forEach_rethrowsPageFailureOnCallingThread() {
+        List<Integer> seen = new ArrayList<>();
+        GHException e = assertThrows(GHException.class,
+                () -> new Paging(2).forEach(listOf(500, new AtomicInteger(), 350), seen::add));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals(350, seen.size());
+    }
+
+    @Test
+    void forEach_failureBetweenPages_deliversEveryPageOnce() {
+        PagedIterable<Integer> list = listOf(0, new AtomicInteger(), -1);
+        PagedIterator<Integer> it = list.iterator();
+        when(list.iterator()).thenReturn(it);
+        AtomicInteger served = new AtomicInteger();
+        // github-api fetches the next page in hasNext()
+        doAnswer(i -> {
+            if (served.get() == 300) throw new GHException("page failed", new IOException("reset"));
+            return true;
+        }).when(it).hasNext();
+        doAnswer(i -> served.getAndIncrement()).when(it).next();
+
+        List<Integer> seen = new ArrayList<>();
+        assertThrows(GHException.class, () -> new Paging(2).forEach(list, seen::add));
+        assertEquals(IntStream.range(0, 300).boxed().collect(Collectors.toList()), seen);
+    }
+
+    @Test
+    void forEach_withoutLookahead_deliversTheSameItemsBeforeFailing() {
+        List<Integer> seen = new ArrayList<>();
+        assertThrows(GHException.class,
+                () -> new Paging(0).forEach(listOf(500, new AtomicInteger(), 350), seen::add));
+        assertEquals(350, seen.size());
+    }
+
+    @Test
+    void forEach_stopsReaderWhenActionFails() {
+        AtomicInteger pulled = new AtomicInteger();
+        assertThrows(IOException.class, () -> new Paging(1).forEach(listOf(100_000, pulled, -1), item -> {
+            if (item == 150) throw new IOException("stop");
+        }));
+        assertTrue(pulled.get() < 100_000);
+    }
+
+    /** Pages of {@code n} numbers, counting the fetches and failing page {@code failPage}. */
+    private static Paging.PageSource<Integer> sourceOf(int n, AtomicInteger fetches, int failPage) {
+        return number -> {
+            fetches.incrementAndGet();
+            if (number == failPage) {
+                throw new IOException("HTTP 502");
+            }
+            int from = Math.min((number - 1) * Paging.PAGE_SIZE, n);
+            return IntStream.range(from, Math.min(from + Paging.PAGE_SIZE, n)).boxed().collect(Collectors.toList());
+        };
+    }
+
+    @Test
+    void forEach_pageSource_keepsOrderAndStopsAfterAShortPage() throws IOException {
+        List<Integer> expected = IntStream.range(0, 250).boxed().collect(Collectors.toList());
+        for (int lookahead : new int[]{0, 2}) {
+            AtomicInteger fetches = new AtomicInteger();
+            List<Integer> seen = new ArrayList<>();
+            new Paging(lookahead).forEach(sourceOf(250, fetches, -1), seen::add);
+            assertEquals(expected, seen, "lookahead " + lookahead);
+            assertEquals(3, fetches.get(), "lookahead " + lookahead);
+        }
+    }
+
+    @Test
+    void forEach_pageSource_readsAheadOffTheCallingThread() throws IOException {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+        Paging.PageSource<Integer> pages = sourceOf(300, new AtomicInteger(), -1);
+
+        new Paging(2).forEach(number -> {
+            threads.add(Thread.currentThread());
+            return pages.fetch(number);
+        }, item -> { });
+
+        assertEquals(4, threads.size());
+        assertSame(caller, threads.get(0));
+        assertNotSame(caller, threads.get(1));
+    }
+
+    @Test
+    void forEach_pageSource_rethrowsTheFetchFailureItself() {
+        List<Integer> seen = new ArrayList<>();
+        IOException e = assertThrows(IOException.class,
+                () -> new Paging(2).forEach(sourceOf(500, new AtomicInteger(), 3), seen::add));
+        assertEquals("HTTP 502", e.getMessage());
+        assertEquals(200, seen.size());
+    }
+
+    @Test
+    void forEachWhile_pageSource_stopsFetchingOnceToldTo() throws IOException {
+        AtomicInteger fetches = new AtomicInteger();
+        List<Integer> seen = new ArrayList<>();
+        new Paging(0).forEachWhile(sourceOf(1050, fetches, -1), i -> {
+            seen.add(i);
+            return i < 149;
+        });
+
+        assertEquals(150, seen.size());
+        assertEquals(2, fetches.get());
+    }
+}
@@ -0,0 +1,75 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepoStateCacheTest {
+    private static final Duration DAY = Duration.ofDays(1);
+    private static final Clock NOW = Clock.fixed(Instant.parse("2024-06-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private static RepoPartial partial(long checkedAt) {
+        RepoPartial p = new RepoPartial(checkedAt);
+        p.known.addAll(EnumSet.of(RepoAggregator.Resource.CLOSED_ISSUES, RepoAggregator.Resource.BRANCH_COUNT));
+        p.issues.add(new Date(0), new Date(1_800_000));
+        p.issues.add(new Date(0), new Date(1_800_000));
+        p.branches = 5;
+        return p;
+    }
+
+    @Test
+    void partialIsReusedOnlyWhileBothTimestampsMatch(@TempDir Path tmp) throws IOException {
+        RepoStateCache state = RepoStateCache.open(tmp.resolve("repos.bin"), DAY, NOW);
+        Date pushed = new Date(1000);
+        Date updated = new Date(2000);
+        state.putPartial("me/r", pushed, updated, partial(NOW.millis()));
+
+        RepoPartial back = state.getPartial("me/r", pushed, updated);
+        assertNotNull(back);
+        assertEquals(2, back.issues.getCount());
+        assertEquals(5, back.branches);
+        assertNull(state.getPartial("me/r", new Date(1001), updated));
+        assertNull(state.getPartial("me/r", pushed, new Date(2001)));
+        assertNull(state.getPartial("me/r", null, updated));
+        assertNull(state.getPartial("other/r", pushed, updated));
+        assertEquals(1, state.getReused());
+    }
+
+    @Test
+    void partialExpiresAfterMaxAge(@TempDir Path tmp) throws IOException {
+        RepoStateCache state = RepoStateCache.open(tmp.resolve("repos.bin"), DAY, NOW);
+        Date pushed = new Date(1000);
+        state.putPartial("me/r", pushed, pushed, partial(NOW.millis() - DAY.toMillis() - 1));
+        assertNull(state.getPartial("me/r", pushed, pushed));
+    }
+
+    @Test
+    void saveAndOpen_roundTrip(@TempDir Path tmp) throws IOException {
+        Path file = tmp.resolve("repos.bin");
+        RepoStateCache state = RepoStateCache.open(file, DAY, NOW);
+        state.putPartial("me/r", new Date(1000), new Date(2000), partial(NOW.millis()));
+        state.markCommitsSynced("me/r", new Date(1000));
+        state.markCommitsSynced("me/quiet", new Date(500));
+        state.save();
+
+        RepoStateCache reopened = RepoStateCache.open(file, DAY, NOW);
+        assertEquals(2, reopened.size());
+        RepoPartial p = reopened.getPartial("me/r", new Date(1000), new Date(2000));
+        assertEquals(EnumSet.of(RepoAggregator.Resource.CLOSED_ISSUES, RepoAggregator.Resource.BRANCH_COUNT),
+                p.known);
+        assertEquals(3600, p.issues.getTotalSeconds());
+        assertTrue(reopened.commitsUnchanged("me/quiet", new Date(500)));
+        assertFalse(reopened.commitsUnchanged("me/quiet", new Date(501)));
+        assertFalse(reopened.commitsUnchanged("me/new", new Date(500)));
+    }
+}
@@ -0,0 +1,143 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepoStatsClientTest {
+
+    /** Answers each path from a queue of responses; the last one repeats. */
+    private static final class FakeRest extends RestClient {
+        final Map<String, Deque<Response>> answers = new HashMap<>();
+        final List<String> paths = new ArrayList<>();
+
+        FakeRest() {
+            super("https://api.github.com", null, null);
+        }
+
+        FakeRest on(String path, int status, String body) {
+            answers.computeIfAbsent(path, p -> new ArrayDeque<>())
+                    .add(new Response(status, Map.of(), body.getBytes(StandardCharsets.UTF_8)));
+            return this;
+        }
+
+        @Override
+        Response get(String path, Map<String, String> query) throws IOException {
+            paths.add(path);
+            Deque<Response> queue = answers.get(path);
+            if (queue == null) throw new StatusException(404, Map.of(), path);
+            return queue.size() > 1 ? queue.poll() : queue.peek();
+        }
+    }
+
+    // Sunday 2024-01-07 00:00 UTC, in seconds
+    private static final long WEEK = 1_704_585_600L;
+
+    private static String contributors(String login, int total, int weekCommits) {
+        return "{\"author\":{\"login\":\"" + login + "\",\"id\":1},\"total\":" + total
+                + ",\"weeks\":[{\"w\":" + WEEK + ",\"a\":10,\"d\":2,\"c\":" + weekCommits + "},"
+                + "{\"w\":" + (WEEK + 604_800) + ",\"a\":0,\"d\":0,\"c\":0}]}";
+    }
+
+    @Test
+    void fetch_pollsOnlyWhatIsStillComputing() throws IOException {
+        FakeRest rest = new FakeRest()
+                .on("/repos/me/a/stats/punch_card", 202, "{}")
+                .on("/repos/me/a/stats/punch_card", 200, "[[1,10,4],[3,23,2]]")
+                .on("/repos/me/a/stats/contributors", 200, "[" + contributors("me", 6, 6) + "]")
+                .on("/repos/me/b/stats/punch_card", 200, "[[5,12,10]]")
+                .on("/repos/me/b/stats/contributors", 202, "");
+        List<Long> sleeps = new ArrayList<>();
+        RepoStatsClient client = new RepoStatsClient(rest, new Retrier(), 3, 100);
+        client.setSleeper(sleeps::add);
+
+        List<RepoStatsClient.Stats> stats = client.fetch(List.of("me/a", "me/b"), "ME");
+
+        assertTrue(stats.get(0).complete());
+        assertEquals(6, stats.get(0).myCommits);
+        assertEquals(4, stats.get(0).punchCard[24 + 10]);
+        assertEquals(2, stats.get(0).punchCard[3 * 24 + 23]);
+        assertEquals(Map.of(WEEK, 6), stats.get(0).myWeeks);
+        // b's contributors never finished: asked in every round, its punch card only once
+        assertFalse(stats.get(1).complete());
+        assertEquals(List.of(100L, 200L), sleeps);
+        assertEquals(4 + 2 + 1, client.getRequests());
+        assertEquals(1, rest.paths.stream().filter(p -> p.equals("/repos/me/b/stats/punch_card")).count());
+    }
+
+    @Test
+    void fetch_emptyRepositoryAnswersNoContent() throws IOException {
+        FakeRest rest = new FakeRest()
+                .on("/repos/me/empty/stats/punch_card", 204, "")
+                .on("/repos/me/empty/stats/contributors", 204, "");
+        RepoStatsClient client = new RepoStatsClient(rest, new Retrier(), 3, 100);
+        client.setSleeper(ms -> fail("nothing to poll"));
+
+        RepoStatsClient.Stats s = client.fetch(List.of("me/empty"), "me").get(0);
+
+        assertTrue(s.complete());
+        assertEquals(0, s.myCommits);
+        assertEquals(2, client.getRequests());
+    }
+
+    @Test
+    void approximate_scalesBySharesAndShiftsIntoZone() throws IOException {
+        FakeRest rest = new FakeRest()
+                // only me: 3 commits Monday 01:00 UTC
+                .on("/repos/me/solo/stats/punch_card", 200, "[[1,1,3]]")
+                .on("/repos/me/solo/stats/contributors", 200, "[" + contributors("me", 3, 3) + "]")
+                // I wrote 1 of 10: Friday 12:00 UTC
+                .on("/repos/team/big/stats/punch_card", 200, "[[5,12,10]]")
+                .on("/repos/team/big/stats/contributors", 200,
+                        "[" + contributors("other", 9, 9) + "," + contributors("me", 1, 1) + "]");
+        RepoStatsClient client = new RepoStatsClient(rest, new Retrier(), 1, 100);
+        List<RepoStatsClient.Stats> stats = client.fetch(List.of("me/solo", "team/big"), "me");
+
+        ApproximateActivity approx = ApproximateActivity.of(stats, ZoneOffset.ofHours(-7),
+                Instant.EPOCH, client.getRequests());
+
+        double[] days = approx.getDayWeights();
+        // Monday 01:00 UTC is Sunday 18:00 at -7
+        assertEquals(3.0, days[0], 1e-9);
+        assertEquals(1.0, days[5], 1e-9);
+        assertEquals("Sunday", approx.getMostPopularDay());
+        assertEquals(4, approx.getCommitCount());
+        assertEquals(Map.of(LocalDate.of(2024, 1, 7), 4), approx.getWeeklyCommits());
+        assertEquals(4, approx.getRequests());
+        assertEquals(2, approx.getEstimatedExactRequests());
+        assertTrue(approx.getPendingRepos().isEmpty());
+    }
+
+    @Test
+    void approximate_comparesWithExactHistogram() throws IOException {
+        FakeRest rest = new FakeRest()
+                .on("/repos/me/solo/stats/punch_card", 200, "[[2,9,2]]")
+                .on("/repos/me/solo/stats/contributors", 200, "[" + contributors("me", 2, 2) + "]");
+        RepoStatsClient client = new RepoStatsClient(rest, new Retrier(), 1, 100);
+        ApproximateActivity approx = ApproximateActivity.of(client.fetch(List.of("me/solo"), "me"),
+                ZoneId.of("UTC"), Instant.EPOCH, client.getRequests());
+        ActivityHistogram exact = new ActivityHistogram();
+        // Tuesday 2024-01-09 09:00 UTC, twice
+        exact.add(1_704_790_800_000L, 0);
+        exact.add(1_704_790_800_000L, 0);
+
+        String report = approx.compareWith(exact);
+
+        assertTrue(report.contains("Tuesday   100.0% vs 100.0%"), report);
+        assertTrue(report.contains("most popular day: Tuesday vs Tuesday (agree)"), report);
+        assertTrue(report.contains("largest difference: 0.0 percentage points"), report);
+    }
+}
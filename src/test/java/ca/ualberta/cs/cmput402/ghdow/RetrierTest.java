@@ -0,0 +1,149 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+import org.kohsuke.github.GHException;
+import org.kohsuke.github.HttpException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RetrierTest {
+
+    private static HttpException http(int code, Map<String, List<String>> headers) {
+        HttpException e = mock(HttpException.class);
+        lenient().when(e.getResponseCode()).thenReturn(code);
+        lenient().when(e.getResponseHeaderFields()).thenReturn(headers);
+        lenient().when(e.getMessage()).thenReturn("HTTP " + code);
+        return e;
+    }
+
+    private static Retrier retrier(List<Long> sleeps) {
+        // full jitter can pick 0, which isn't slept; make every retry show up in sleeps
+        RetryPolicy policy = new BackoffRetryPolicy(4, 100, 1_000, 60_000) {
+            @Override
+            public long backoffMillis(int attempt, IOException failure, Failure kind) {
+                long delay = super.backoffMillis(attempt, failure, kind);
+                return delay == 0 ? 1 : delay;
+            }
+        };
+        Retrier r = new Retrier(policy, new RetryBudget());
+        r.setSleeper(sleeps::add);
+        return r;
+    }
+
+    @Test
+    void classify_separatesTransientRateLimitedAndFatal() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy();
+
+        assertEquals(RetryPolicy.Failure.TRANSIENT, policy.classify(new IOException("reset")));
+        assertEquals(RetryPolicy.Failure.TRANSIENT, policy.classify(http(502, Map.of())));
+        assertEquals(RetryPolicy.Failure.RATE_LIMITED, policy.classify(http(429, Map.of())));
+        assertEquals(RetryPolicy.Failure.RATE_LIMITED,
+                policy.classify(http(403, Map.of("X-RateLimit-Remaining", List.of("0")))));
+        assertEquals(RetryPolicy.Failure.FATAL, policy.classify(http(403, Map.of())));
+        assertEquals(RetryPolicy.Failure.FATAL, policy.classify(http(404, Map.of())));
+    }
+
+    @Test
+    void backoff_isJitteredAndBoundedByExponentialCeiling() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(10, 100, 1_000, 60_000);
+        IOException e = new IOException("reset");
+        for (int i = 0; i < 100; i++) {
+            long first = policy.backoffMillis(1, e, RetryPolicy.Failure.TRANSIENT);
+            long fourth = policy.backoffMillis(4, e, RetryPolicy.Failure.TRANSIENT);
+            long tenth = policy.backoffMillis(10, e, RetryPolicy.Failure.TRANSIENT);
+            assertTrue(first >= 0 && first <= 100, "first=" + first);
+            assertTrue(fourth >= 0 && fourth <= 800, "fourth=" + fourth);
+            assertTrue(tenth >= 0 && tenth <= 1_000, "tenth=" + tenth);
+        }
+        assertEquals(-1, policy.backoffMillis(1, e, RetryPolicy.Failure.FATAL));
+    }
+
+    @Test
+    void backoff_honoursRetryAfterAndRateLimitReset() {
+        BackoffRetryPolicy policy = new BackoffRetryPolicy(3, 100, 1_000, 60_000);
+        policy.setClock(() -> 1_000_000L);
+
+        HttpException retryAfter = http(403, Map.of("Retry-After", List.of("7")));
+        assertEquals(7_000, policy.backoffMillis(1, retryAfter, RetryPolicy.Failure.RATE_LIMITED));
+
+        // reset 30s from "now", plus a second of slack
+        HttpException reset = http(403, Map.of("X-RateLimit-Remaining", List.of("0"),
+                "X-RateLimit-Reset", List.of(String.valueOf(1_000 + 30))));
+        assertEquals(31_000, policy.backoffMillis(1, reset, RetryPolicy.Failure.RATE_LIMITED));
+
+        // an hour away is longer than we are willing to wait
+        HttpException farReset = http(403, Map.of("X-RateLimit-Remaining", List.of("0"),
+                "X-RateLimit-Reset", List.of(String.valueOf(1_000 + 3_600))));
+        assertEquals(-1, policy.backoffMillis(1, farReset, RetryPolicy.Failure.RATE_LIMITED));
+    }
+
+    @Test
+    void call_retriesTransientFailuresThenSucceeds() throws IOException {
+        List<Long> sleeps = new ArrayList<>();
+        Retrier r = retrier(sleeps);
+        AtomicInteger tries = new AtomicInteger();
+
+        String result = r.call(() -> {
+            if (tries.incrementAndGet() < 3) throw new IOException("blip");
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, sleeps.size());
+        assertEquals(3, r.getStats().getAttempts());
+        assertEquals(2, r.getStats().getRetries());
+        assertEquals(1, r.getStats().getSucceeded());
+    }
+
+    @Test
+    void call_doesNotRetryFatalFailures() {
+        List<Long> sleeps = new ArrayList<>();
+        Retrier r = retrier(sleeps);
+        HttpException notFound = http(404, Map.of());
+
+        IOException thrown = assertThrows(IOException.class, () -> r.call(() -> {
+            throw notFound;
+        }));
+
+        assertSame(notFound, thrown);
+        assertTrue(sleeps.isEmpty());
+        assertEquals(1, r.getStats().getFatal());
+        assertEquals(1, r.getStats().getFailed());
+    }
+
+    @Test
+    void call_retriesPagedIteratorFailures_andRethrowsTheOriginal() {
+        List<Long> sleeps = new ArrayList<>();
+        Retrier r = retrier(sleeps);
+        GHException wrapped = new GHException("page failed", new IOException("blip"));
+
+        GHException thrown = assertThrows(GHException.class, () -> r.call(() -> {
+            throw wrapped;
+        }));
+
+        assertSame(wrapped, thrown);
+        assertEquals(3, sleeps.size());
+        assertEquals(4, r.getStats().getAttempts());
+    }
+
+    @Test
+    void call_givesUpOnceSharedBudgetIsSpent() {
+        List<Long> sleeps = new ArrayList<>();
+        Retrier r = new Retrier(new BackoffRetryPolicy(10, 0, 0, 0), new RetryBudget(2, 0, 0));
+        r.setSleeper(sleeps::add);
+
+        assertThrows(IOException.class, () -> r.call(() -> {
+            throw new IOException("down");
+        }));
+
+        assertEquals(3, r.getStats().getAttempts()); // first try + two budgeted retries
+        assertEquals(1, r.getStats().getBudgetExhausted());
+    }
+}
@@ -0,0 +1,52 @@
+package ca.ualberta.cs.cmput402.ghdow;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeWindowTest {
+    private static final Instant FROM = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-02-01T00:00:00Z");
+
+    @Test
+    void between_isHalfOpen() {
+        TimeWindow w = TimeWindow.between(FROM, TO);
+
+        assertTrue(w.contains(FROM.toEpochMilli()));
+        assertTrue(w.contains(TO.toEpochMilli() - 1));
+        assertFalse(w.contains(TO.toEpochMilli()));
+        assertFalse(w.contains(FROM.toEpochMilli() - 1));
+        assertFalse(w.isAll());
+    }
+
+    @Test
+    void between_rejectsAnEmptyWindow() {
+        assertThrows(IllegalArgumentException.class, () -> TimeWindow.between(TO, FROM));
+        assertThrows(IllegalArgumentException.class, () -> TimeWindow.between(FROM, FROM));
+    }
+
+    @Test
+    void nullDate_isOnlyInAll() {
+        assertTrue(TimeWindow.ALL.contains((Date) null));
+        assertFalse(TimeWindow.since(FROM).contains((Date) null));
+        assertTrue(TimeWindow.until(TO).contains(new Date(0)));
+    }
+
+    @Test
+    void last_reachesBackFromNowAndIsOpenEnded() {
+        Clock now = Clock.fixed(TO, ZoneOffset.UTC);
+
+        TimeWindow w = TimeWindow.last(Duration.ofDays(31), now);
+
+        assertEquals(TimeWindow.since(FROM), w);
+        assertNull(w.toDate());
+        assertEquals(Date.from(FROM), w.fromDate());
+        assertEquals("2024-01-01T00:00:00Z to now", w.toString());
+    }
+}